@@ -0,0 +1,114 @@
+package org.gamejolt;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes 10000 players of a game server to each make one request at the
+ * same time, against a {@link GameJoltStubServer} that answers after 20 ms. Every player has
+ * a GameJoltAPI object of a shared {@link GameJoltClient} and asks for a rank of its own, so
+ * no two requests are shared.
+ * <p>
+ * The calls run on virtual threads (platform threads before Java 21) or on a cached pool of
+ * platform threads, through a transport with the default 8 connections or with 1000. With 8
+ * connections the executor makes no difference: a run takes at least 10000 / 8 * 20 ms, the
+ * threads only wait for a connection, and the players that wait longer than the 30 s read
+ * timeout fail. They are reported as the secondary result failed.
+ * <p>
+ * Raise the JVM's keep-alive cache along with the connections, e.g. with
+ * -Dhttp.maxConnections=1000, or most connections are closed after each request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ConcurrentPlayersBenchmark
+{
+	private static final int LATENCY = 20;
+
+	@Param({"10000"})
+	public int players;
+
+	@Param({"virtual", "cached"})
+	public String executor;
+
+	@Param({"8", "1000"})
+	public int maxConnections;
+
+	private GameJoltStubServer stub;
+	private ExecutorService threads;
+	private GameJoltAPI[] apis;
+
+	/** The players whose request failed in the last run. */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Failures
+	{
+		public long failed;
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		stub = new GameJoltStubServer(1, "secret");
+		stub.setLatency(LATENCY);
+		stub.start();
+		GameJoltClient client = new GameJoltClient.Builder(1, "secret")
+				.setBaseURL(stub.getBaseURL())
+				.setTransport(new GameJoltHttpTransport(GameJoltHttpTransport.DEFAULT_CONNECT_TIMEOUT,
+						GameJoltHttpTransport.DEFAULT_READ_TIMEOUT, maxConnections))
+				.build();
+		apis = new GameJoltAPI[players];
+		for (int i = 0; i < players; i++) {
+			apis[i] = client.createAPI();
+		}
+		threads = executor.equals("virtual") ? GameJoltExecutors.newVirtualThreadExecutor()
+				: GameJoltExecutors.newCachedExecutor();
+	}
+
+	@TearDown
+	public void tearDown() {
+		threads.shutdown();
+		stub.stop();
+	}
+
+	@Benchmark
+	public int allPlayersAtOnce(Failures failures) throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(players);
+		final AtomicInteger failed = new AtomicInteger();
+		for (int i = 0; i < players; i++) {
+			final GameJoltAPI api = apis[i];
+			final int sort = i;
+			threads.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (api.getHighscoreRank(sort, 0) < 0) {
+						failed.incrementAndGet();
+					}
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		failures.failed = failed.get();
+		return players - failed.get();
+	}
+}
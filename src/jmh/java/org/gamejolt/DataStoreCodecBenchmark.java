@@ -0,0 +1,106 @@
+package org.gamejolt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast the {@link DataStoreCodec} compresses and restores a JSON save game of
+ * 256 characters to 64k, and how many characters it saves per request; the sizes are
+ * reported as the secondary results rawChars, storedChars and savedChars of encode.
+ * encodeUnpooled creates and ends a Deflater per value, as a codec without the pool would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataStoreCodecBenchmark
+{
+	@Param({"256", "4096", "65536"})
+	public int length;
+
+	private final DataStoreCodec codec = new DataStoreCodec(0);
+	private String save;
+	private String stored;
+
+	/** The sizes of the last request, per thread. */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Sizes
+	{
+		public long rawChars;
+		public long storedChars;
+		public long savedChars;
+	}
+
+	@Setup
+	public void setup() {
+		save = saveGame(length);
+		stored = codec.encode(save);
+	}
+
+	/**
+	 * A save game of about the given length: levels with scores, times and flags.
+	 */
+	static String saveGame(int length) {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder("{\"version\":3,\"player\":\"Grapefruit\",\"levels\":[");
+		for (int i = 0; sb.length() < length - 80; i++) {
+			sb.append("{\"id\":").append(i)
+				.append(",\"stars\":").append(random.nextInt(4))
+				.append(",\"best\":").append(random.nextInt(100000))
+				.append(",\"time\":").append(random.nextInt(600000))
+				.append(",\"unlocked\":").append(random.nextBoolean())
+				.append("},");
+		}
+		if (sb.charAt(sb.length() - 1) == ',') {
+			sb.setLength(sb.length() - 1);
+		}
+		return sb.append("]}").toString();
+	}
+
+	@Benchmark
+	public String encode(Sizes sizes) {
+		String s = codec.encode(save);
+		sizes.rawChars = save.length();
+		sizes.storedChars = s.length();
+		sizes.savedChars = save.length() - s.length();
+		return s;
+	}
+
+	@Benchmark
+	public String decode() {
+		return DataStoreCodec.decode(stored);
+	}
+
+	@Benchmark
+	public int encodeUnpooled() {
+		byte[] raw = save.getBytes(StandardCharsets.UTF_8);
+		byte[] out = new byte[raw.length + raw.length / 1000 + 64];
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		try {
+			deflater.setInput(raw);
+			deflater.finish();
+			int n = deflater.deflate(out);
+			return GameJoltBase64.encode(out, 0, n).length();
+		} finally {
+			deflater.end();
+		}
+	}
+}
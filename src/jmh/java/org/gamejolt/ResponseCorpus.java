@@ -0,0 +1,79 @@
+package org.gamejolt;
+
+import java.util.HashMap;
+
+import org.gamejolt.Trophy.Difficulty;
+
+/**
+ * Records responses with a given number of entries from a {@link GameJoltStubServer}, so the
+ * benchmarks parse exactly what the client receives, in every format.
+ */
+class ResponseCorpus
+{
+	private static final String USERNAME = "player";
+	private static final String TOKEN = "token";
+
+	private final GameJoltStubServer stub = new GameJoltStubServer(1, "secret");
+	private final int entries;
+
+	/**
+	 * Fill a stub server with the given number of highscores, trophies and data store keys.
+	 * @param entries The number of entries in each list response.
+	 */
+	ResponseCorpus(int entries) {
+		this.entries = entries;
+		stub.addUser(1, USERNAME, TOKEN);
+		for (int i = 0; i < entries; i++) {
+			// a mix of guest and user scores with realistic strings
+			if (i % 3 == 0) {
+				HashMap<String, String> params = userParams(GameJoltAPI.Format.KEYPAIR);
+				params.put("score", (i * 7) + " Grapefruits");
+				params.put("sort", String.valueOf(i * 7));
+				params.put("extra_data", "level=" + (i % 12) + ";time=" + (i * 31 % 600));
+				stub.respond("scores/add", params);
+			} else {
+				stub.addGuestScore(1, "Guest " + i, (i * 7) + " Grapefruits", i * 7);
+			}
+			stub.addTrophy(i + 1, "Trophy number " + i, "Awarded for finishing challenge " + i + " without dying",
+					Difficulty.values()[i % Difficulty.values().length]);
+			HashMap<String, String> params = new HashMap<>();
+			params.put("key", "savegame_slot_" + i);
+			params.put("data", "{\"level\":" + i + "}");
+			stub.respond("data-store/set", params);
+		}
+	}
+
+	private HashMap<String, String> userParams(GameJoltAPI.Format format) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("game_id", "1");
+		params.put("username", USERNAME);
+		params.put("user_token", TOKEN);
+		params.put("format", format.toString());
+		return params;
+	}
+
+	String highscores(GameJoltAPI.Format format) {
+		HashMap<String, String> params = userParams(format);
+		params.remove("username");
+		params.remove("user_token");
+		params.put("limit", String.valueOf(entries));
+		return stub.respond("scores", params);
+	}
+
+	String trophies(GameJoltAPI.Format format) {
+		return stub.respond("trophies", userParams(format));
+	}
+
+	String user(GameJoltAPI.Format format) {
+		HashMap<String, String> params = userParams(format);
+		params.remove("user_token");
+		return stub.respond("users", params);
+	}
+
+	String dataStoreKeys(GameJoltAPI.Format format) {
+		HashMap<String, String> params = userParams(format);
+		params.remove("username");
+		params.remove("user_token");
+		return stub.respond("data-store/get-keys", params);
+	}
+}
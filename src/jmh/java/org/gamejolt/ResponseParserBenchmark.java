@@ -0,0 +1,137 @@
+package org.gamejolt;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast each response parser turns a recorded response into model objects, for
+ * list responses of 1, 100 and 10000 entries. Run with 'gradle jmh'; the gc profiler reports
+ * the bytes allocated per operation next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParserBenchmark
+{
+	@Param({"KEYPAIR", "JSON", "XML"})
+	public String format;
+
+	@Param({"1", "100", "10000"})
+	public int entries;
+
+	private GameJoltResponseParser parser;
+	private String highscores;
+	private byte[] highscoreBytes;
+	private String trophies;
+	private String user;
+	private String dataStoreKeys;
+	private ArrayList<Highscore> parsedHighscores;
+	private ArrayList<CompactHighscore> compactHighscores;
+
+	@Setup
+	public void setup() {
+		GameJoltAPI.Format f = GameJoltAPI.Format.valueOf(format);
+		ResponseCorpus corpus = new ResponseCorpus(entries);
+		parser = f.getParser();
+		highscores = corpus.highscores(f);
+		highscoreBytes = highscores.getBytes(StandardCharsets.UTF_8);
+		trophies = corpus.trophies(f);
+		user = corpus.user(f);
+		dataStoreKeys = corpus.dataStoreKeys(f);
+		parsedHighscores = parser.parseHighscoreResponse(highscores);
+		compactHighscores = parser.parseCompactHighscoreResponse(highscores);
+	}
+
+	@Benchmark
+	public ArrayList<Highscore> parseHighscoreResponse() {
+		return parser.parseHighscoreResponse(highscores);
+	}
+
+	/**
+	 * Parses the highscores as they are read from the connection, keeping only the
+	 * highscore properties.
+	 */
+	@Benchmark
+	public ArrayList<Highscore> parseHighscoreStream() throws IOException {
+		return parser.parseHighscoreResponse(parser.parse(new ByteArrayInputStream(highscoreBytes),
+				"scores", parser.getHighscoreProperties()));
+	}
+
+	/**
+	 * Streams the highscores and reads only the fields a leaderboard needs, so the other
+	 * values are never turned into Strings.
+	 */
+	@Benchmark
+	public long readLeaderboard() throws IOException {
+		long sum = 0;
+		for (Highscore h : parseHighscoreStream()) {
+			sum += h.getScoreValue() + h.getUserId();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public ArrayList<CompactHighscore> parseCompactHighscoreResponse() {
+		return parser.parseCompactHighscoreResponse(highscores);
+	}
+
+	/**
+	 * Sorts a leaderboard by score value, which parses the value on every comparison.
+	 */
+	@Benchmark
+	public ArrayList<Highscore> sortHighscores() {
+		ArrayList<Highscore> sorted = new ArrayList<>(parsedHighscores);
+		Collections.sort(sorted, new Comparator<Highscore>() {
+			@Override
+			public int compare(Highscore a, Highscore b) {
+				return Integer.compare(a.getScoreValue(), b.getScoreValue());
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * Sorts the same leaderboard with the values parsed once.
+	 */
+	@Benchmark
+	public ArrayList<CompactHighscore> sortCompactHighscores() {
+		ArrayList<CompactHighscore> sorted = new ArrayList<>(compactHighscores);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	@Benchmark
+	public ArrayList<Trophy> parseTrophyResponse() {
+		return parser.parseTrophyResponse(trophies);
+	}
+
+	@Benchmark
+	public User parseUserRequestResponse() {
+		return parser.parseUserRequestResponse(user);
+	}
+
+	@Benchmark
+	public ArrayList<String> parseDatastoresKeysResponse() {
+		return parser.parseDatastoresKeysResponse(dataStoreKeys);
+	}
+}
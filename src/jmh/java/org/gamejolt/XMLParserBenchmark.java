@@ -0,0 +1,112 @@
+package org.gamejolt;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * Compares the StAX reader with the DOM parsing the XML parser used to do, on large highscore
+ * and data store key lists. Run with 'gradle jmh -PjmhInclude=XMLParserBenchmark' and compare
+ * the gc.alloc.rate.norm column (bytes allocated per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XMLParserBenchmark
+{
+	@Param({"100", "10000"})
+	public int entries;
+
+	private final GameJoltXMLParser parser = new GameJoltXMLParser();
+	private String highscores;
+	private byte[] highscoreBytes;
+	private String dataStoreKeys;
+	private byte[] dataStoreKeyBytes;
+
+	@Setup
+	public void setup() {
+		ResponseCorpus corpus = new ResponseCorpus(entries);
+		highscores = corpus.highscores(GameJoltAPI.Format.XML);
+		highscoreBytes = highscores.getBytes(StandardCharsets.UTF_8);
+		dataStoreKeys = corpus.dataStoreKeys(GameJoltAPI.Format.XML);
+		dataStoreKeyBytes = dataStoreKeys.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public ArrayList<PropertyContainer> domHighscores() throws Exception {
+		return domRows(highscores);
+	}
+
+	@Benchmark
+	public ArrayList<Highscore> staxHighscores() {
+		return parser.parseHighscoreResponse(highscores);
+	}
+
+	@Benchmark
+	public ArrayList<Highscore> staxHighscoreStream() throws IOException {
+		return parser.parseHighscoreResponse(parser.parse(new ByteArrayInputStream(highscoreBytes),
+				"scores", parser.getHighscoreProperties()));
+	}
+
+	@Benchmark
+	public ArrayList<PropertyContainer> domDataStoreKeys() throws Exception {
+		return domRows(dataStoreKeys);
+	}
+
+	@Benchmark
+	public ArrayList<String> staxDataStoreKeys() {
+		return parser.parseDatastoresKeysResponse(dataStoreKeys);
+	}
+
+	@Benchmark
+	public ArrayList<String> staxDataStoreKeyStream() throws IOException {
+		return parser.parseDatastoresKeysResponse(parser.parse(new ByteArrayInputStream(dataStoreKeyBytes),
+				"keys", new String[]{"key"}));
+	}
+
+	/**
+	 * What the parser did before: a new factory and a full DOM for every response.
+	 */
+	private static ArrayList<PropertyContainer> domRows(String response) throws Exception {
+		InputSource is = new InputSource();
+		is.setCharacterStream(new StringReader(response));
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is);
+		NodeList dataList = doc.getDocumentElement().getChildNodes().item(1).getChildNodes();
+		ArrayList<PropertyContainer> containers = new ArrayList<>();
+		for (int i = 0; i < dataList.getLength(); i++) {
+			PropertyContainer container = new PropertyContainer();
+			NodeList values = dataList.item(i).getChildNodes();
+			for (int j = 0; j < values.getLength(); j++) {
+				Node n = values.item(j);
+				Node child = n.getFirstChild();
+				container.addProperty(n.getNodeName(), child == null ? "" : child.getNodeValue());
+			}
+			containers.add(container);
+		}
+		return containers;
+	}
+}
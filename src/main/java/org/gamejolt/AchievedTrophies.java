@@ -0,0 +1,56 @@
+package org.gamejolt;
+
+import java.util.Arrays;
+
+/**
+ * The IDs of the trophies one user is known to have, as a sorted array. Checking a trophy
+ * does not lock: adding one copies the array, which is fine because a user has few trophies
+ * and achieves them rarely, while they are checked often.
+ * <p>
+ * The set only ever says a trophy is achieved when Game Jolt said so, either in a trophy
+ * list or by accepting an achieveTrophy request; a trophy that is not in the set may still
+ * be achieved.
+ */
+final class AchievedTrophies
+{
+	private final String username;
+	private volatile int[] ids = new int[0];
+
+	/**
+	 * @param username The user the trophies belong to.
+	 */
+	AchievedTrophies(String username) {
+		this.username = username;
+	}
+
+	String getUsername() {
+		return username;
+	}
+
+	/**
+	 * Check if the user is known to have a trophy.
+	 * @param trophyId The ID of the trophy.
+	 * @return true if Game Jolt said the user has it.
+	 */
+	boolean contains(int trophyId) {
+		return Arrays.binarySearch(ids, trophyId) >= 0;
+	}
+
+	/**
+	 * Remember that the user has a trophy.
+	 * @param trophyId The ID of the trophy.
+	 */
+	synchronized void add(int trophyId) {
+		int[] current = ids;
+		int i = Arrays.binarySearch(current, trophyId);
+		if (trophyId < 0 || i >= 0) {
+			return;
+		}
+		i = -i - 1;
+		int[] next = new int[current.length + 1];
+		System.arraycopy(current, 0, next, 0, i);
+		next[i] = trophyId;
+		System.arraycopy(current, i, next, i + 1, current.length - i);
+		ids = next;
+	}
+}
@@ -0,0 +1,497 @@
+package org.gamejolt;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import org.gamejolt.DataStore.DataStoreOperation;
+import org.gamejolt.DataStore.DataStoreType;
+import org.gamejolt.Trophy.Achieved;
+
+/**
+ * <b>AsyncGameJoltAPI</b><br/>
+ * Runs the operations of a {@link GameJoltAPI} on an executor so the calling thread (e.g. your
+ * game loop) never waits for the HTTP round-trip. Every method returns immediately with a
+ * {@link Future}; you can poll it with {@link Future#isDone()} or pass a {@link Callback}
+ * that is called on the executor's thread once the result is there.
+ * <p>
+ * The results are exactly what the matching GameJoltAPI method returns, so a failed request
+ * still completes normally with false or null.
+ * <p>
+ * By default the operations run one after the other on a single background thread, which
+ * keeps them in the order they were submitted. Only pass an executor with more threads if the
+ * wrapped GameJoltAPI is not modified (verifyUser, setFormat, ...) while requests are running.
+ * {@link GameJoltExecutors} has executors suited to servers with many calls in flight.
+ */
+public class AsyncGameJoltAPI
+{
+	/**
+	 * Receives the result of an asynchronous operation.
+	 * @param <T> The type of the result.
+	 */
+	public interface Callback<T>
+	{
+		/**
+		 * Called when the operation finished.
+		 * @param result What the GameJoltAPI method returned.
+		 */
+		public void completed(T result);
+
+		/**
+		 * Called when the operation threw an exception or was cancelled.
+		 * @param t The exception.
+		 */
+		public void failed(Throwable t);
+	}
+
+	private final GameJoltAPI api;
+	private final Executor executor;
+	private final ExecutorService ownedExecutor;
+
+	/**
+	 * Create an AsyncGameJoltAPI that runs all operations on its own background thread.
+	 * Call {@link #shutdown()} when you do not need it anymore.
+	 * @param api The GameJoltAPI to perform the operations with.
+	 */
+	public AsyncGameJoltAPI(GameJoltAPI api) {
+		this(api, Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "GameJoltAPI-async");
+				t.setDaemon(true);
+				return t;
+			}
+		}), true);
+	}
+
+	/**
+	 * Create an AsyncGameJoltAPI that runs all operations on the given executor.
+	 * The executor is not shut down by {@link #shutdown()}.
+	 * @param api The GameJoltAPI to perform the operations with.
+	 * @param executor The executor to run the operations on.
+	 */
+	public AsyncGameJoltAPI(GameJoltAPI api, Executor executor) {
+		this(api, executor, false);
+	}
+
+	private AsyncGameJoltAPI(GameJoltAPI api, Executor executor, boolean owned) {
+		if (api == null || executor == null) {
+			throw new IllegalArgumentException("api and executor must not be null");
+		}
+		this.api = api;
+		this.executor = executor;
+		this.ownedExecutor = owned ? (ExecutorService) executor : null;
+	}
+
+	/**
+	 * Get the GameJoltAPI the operations are performed with.
+	 * @return The wrapped GameJoltAPI.
+	 */
+	public GameJoltAPI getAPI() {
+		return api;
+	}
+
+	/**
+	 * Stops the background thread once the submitted operations are done.
+	 * This has no effect if the executor was passed in to the constructor.
+	 */
+	public void shutdown() {
+		if (ownedExecutor != null) {
+			ownedExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Run any operation on the executor, e.g. one that uses several GameJoltAPI methods.
+	 * @param task The operation.
+	 * @param callback Called with the result, may be null.
+	 * @return The future result of the operation.
+	 */
+	public <T> Future<T> submit(Callable<T> task, final Callback<T> callback) {
+		FutureTask<T> future;
+		if (callback == null) {
+			future = new FutureTask<T>(task);
+		} else {
+			future = new FutureTask<T>(task) {
+				@Override
+				protected void done() {
+					try {
+						callback.completed(get());
+					} catch (ExecutionException e) {
+						callback.failed(e.getCause());
+					} catch (Exception e) {
+						callback.failed(e);
+					}
+				}
+			};
+		}
+		executor.execute(future);
+		return future;
+	}
+
+	/** @see GameJoltAPI#verifyUser(String, String) */
+	public Future<Boolean> verifyUser(String username, String userToken) {
+		return verifyUser(username, userToken, null);
+	}
+
+	/** @see GameJoltAPI#verifyUser(String, String) */
+	public Future<Boolean> verifyUser(final String username, final String userToken, Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.verifyUser(username, userToken);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getUser(String) */
+	public Future<User> getUser(String name) {
+		return getUser(name, null);
+	}
+
+	/** @see GameJoltAPI#getUser(String) */
+	public Future<User> getUser(final String name, Callback<User> callback) {
+		return submit(new Callable<User>() {
+			@Override
+			public User call() {
+				return api.getUser(name);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getUser(int) */
+	public Future<User> getUser(int id) {
+		return getUser(id, null);
+	}
+
+	/** @see GameJoltAPI#getUser(int) */
+	public Future<User> getUser(final int id, Callback<User> callback) {
+		return submit(new Callable<User>() {
+			@Override
+			public User call() {
+				return api.getUser(id);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getVerifiedUser() */
+	public Future<User> getVerifiedUser() {
+		return getVerifiedUser(null);
+	}
+
+	/** @see GameJoltAPI#getVerifiedUser() */
+	public Future<User> getVerifiedUser(Callback<User> callback) {
+		return submit(new Callable<User>() {
+			@Override
+			public User call() {
+				return api.getVerifiedUser();
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getHighscores() */
+	public Future<ArrayList<Highscore>> getHighscores() {
+		return getHighscores(0, true, 100, null);
+	}
+
+	/** @see GameJoltAPI#getHighscores(int) */
+	public Future<ArrayList<Highscore>> getHighscores(int id) {
+		return getHighscores(id, true, 100, null);
+	}
+
+	/** @see GameJoltAPI#getHighscores(int, boolean, int) */
+	public Future<ArrayList<Highscore>> getHighscores(int id, boolean all, int limit) {
+		return getHighscores(id, all, limit, null);
+	}
+
+	/** @see GameJoltAPI#getHighscores(int, boolean, int) */
+	public Future<ArrayList<Highscore>> getHighscores(final int id, final boolean all, final int limit, Callback<ArrayList<Highscore>> callback) {
+		return submit(new Callable<ArrayList<Highscore>>() {
+			@Override
+			public ArrayList<Highscore> call() {
+				return api.getHighscores(id, all, limit);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getHighscoreRank(int, int) */
+	public Future<Integer> getHighscoreRank(int score, int id) {
+		return getHighscoreRank(score, id, null);
+	}
+
+	/** @see GameJoltAPI#getHighscoreRank(int, int) */
+	public Future<Integer> getHighscoreRank(final int score, final int id, Callback<Integer> callback) {
+		return submit(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return api.getHighscoreRank(score, id);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getHighscoreTables() */
+	public Future<ArrayList<HighscoreTable>> getHighscoreTables() {
+		return getHighscoreTables(null);
+	}
+
+	/** @see GameJoltAPI#getHighscoreTables() */
+	public Future<ArrayList<HighscoreTable>> getHighscoreTables(Callback<ArrayList<HighscoreTable>> callback) {
+		return submit(new Callable<ArrayList<HighscoreTable>>() {
+			@Override
+			public ArrayList<HighscoreTable> call() {
+				return api.getHighscoreTables();
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#addHighscore(String, int) */
+	public Future<Boolean> addHighscore(String score, int sort) {
+		return addHighscore(0, score, sort, "", null);
+	}
+
+	/** @see GameJoltAPI#addHighscore(int, String, int, String) */
+	public Future<Boolean> addHighscore(int id, String score, int sort, String extra) {
+		return addHighscore(id, score, sort, extra, null);
+	}
+
+	/** @see GameJoltAPI#addHighscore(int, String, int, String) */
+	public Future<Boolean> addHighscore(final int id, final String score, final int sort, final String extra, Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.addHighscore(id, score, sort, extra);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#addHighscore(int, String, String, int, String) */
+	public Future<Boolean> addGuestHighscore(int id, String guest_username, String score, int sort, String extra) {
+		return addGuestHighscore(id, guest_username, score, sort, extra, null);
+	}
+
+	/** @see GameJoltAPI#addHighscore(int, String, String, int, String) */
+	public Future<Boolean> addGuestHighscore(final int id, final String guest_username, final String score, final int sort, final String extra, Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.addHighscore(id, guest_username, score, sort, extra);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#updateDataStore(DataStoreType, String, DataStoreOperation, String) */
+	public Future<DataStore> updateDataStore(DataStoreType type, String key, DataStoreOperation operation, String value) {
+		return updateDataStore(type, key, operation, value, null);
+	}
+
+	/** @see GameJoltAPI#updateDataStore(DataStoreType, String, DataStoreOperation, String) */
+	public Future<DataStore> updateDataStore(final DataStoreType type, final String key, final DataStoreOperation operation, final String value, Callback<DataStore> callback) {
+		return submit(new Callable<DataStore>() {
+			@Override
+			public DataStore call() {
+				return api.updateDataStore(type, key, operation, value);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#setDataStore(DataStoreType, String, String) */
+	public Future<DataStore> setDataStore(DataStoreType type, String key, String data) {
+		return setDataStore(type, key, data, null);
+	}
+
+	/** @see GameJoltAPI#setDataStore(DataStoreType, String, String) */
+	public Future<DataStore> setDataStore(final DataStoreType type, final String key, final String data, Callback<DataStore> callback) {
+		return submit(new Callable<DataStore>() {
+			@Override
+			public DataStore call() {
+				return api.setDataStore(type, key, data);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#removeDataStore(DataStoreType, String) */
+	public Future<Boolean> removeDataStore(DataStoreType type, String key) {
+		return removeDataStore(type, key, null);
+	}
+
+	/** @see GameJoltAPI#removeDataStore(DataStoreType, String) */
+	public Future<Boolean> removeDataStore(final DataStoreType type, final String key, Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.removeDataStore(type, key);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getDataStore(DataStoreType, String) */
+	public Future<DataStore> getDataStore(DataStoreType type, String key) {
+		return getDataStore(type, key, null);
+	}
+
+	/** @see GameJoltAPI#getDataStore(DataStoreType, String) */
+	public Future<DataStore> getDataStore(final DataStoreType type, final String key, Callback<DataStore> callback) {
+		return submit(new Callable<DataStore>() {
+			@Override
+			public DataStore call() {
+				return api.getDataStore(type, key);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getDataStoreKeys(DataStoreType) */
+	public Future<ArrayList<String>> getDataStoreKeys(DataStoreType type) {
+		return getDataStoreKeys(type, null);
+	}
+
+	/** @see GameJoltAPI#getDataStoreKeys(DataStoreType) */
+	public Future<ArrayList<String>> getDataStoreKeys(final DataStoreType type, Callback<ArrayList<String>> callback) {
+		return submit(new Callable<ArrayList<String>>() {
+			@Override
+			public ArrayList<String> call() {
+				return api.getDataStoreKeys(type);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getDataStoreObjects(DataStoreType) */
+	public Future<ArrayList<DataStore>> getDataStoreObjects(DataStoreType type) {
+		return getDataStoreObjects(type, null);
+	}
+
+	/** @see GameJoltAPI#getDataStoreObjects(DataStoreType) */
+	public Future<ArrayList<DataStore>> getDataStoreObjects(final DataStoreType type, Callback<ArrayList<DataStore>> callback) {
+		return submit(new Callable<ArrayList<DataStore>>() {
+			@Override
+			public ArrayList<DataStore> call() {
+				return api.getDataStoreObjects(type);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#sessionOpen() */
+	public Future<Boolean> sessionOpen() {
+		return sessionOpen(null);
+	}
+
+	/** @see GameJoltAPI#sessionOpen() */
+	public Future<Boolean> sessionOpen(Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.sessionOpen();
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#sessionCheck() */
+	public Future<Boolean> sessionCheck() {
+		return sessionCheck(null);
+	}
+
+	/** @see GameJoltAPI#sessionCheck() */
+	public Future<Boolean> sessionCheck(Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.sessionCheck();
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#sessionUpdate(boolean) */
+	public Future<Boolean> sessionUpdate(boolean active) {
+		return sessionUpdate(active, null);
+	}
+
+	/** @see GameJoltAPI#sessionUpdate(boolean) */
+	public Future<Boolean> sessionUpdate(final boolean active, Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.sessionUpdate(active);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#sessionClose() */
+	public Future<Boolean> sessionClose() {
+		return sessionClose(null);
+	}
+
+	/** @see GameJoltAPI#sessionClose() */
+	public Future<Boolean> sessionClose(Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.sessionClose();
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#achieveTrophy(int) */
+	public Future<Boolean> achieveTrophy(int trophyId) {
+		return achieveTrophy(trophyId, null);
+	}
+
+	/** @see GameJoltAPI#achieveTrophy(int) */
+	public Future<Boolean> achieveTrophy(final int trophyId, Callback<Boolean> callback) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return api.achieveTrophy(trophyId);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getTrophies(Achieved) */
+	public Future<ArrayList<Trophy>> getTrophies(Achieved a) {
+		return getTrophies(a, null);
+	}
+
+	/** @see GameJoltAPI#getTrophies(Achieved) */
+	public Future<ArrayList<Trophy>> getTrophies(final Achieved a, Callback<ArrayList<Trophy>> callback) {
+		return submit(new Callable<ArrayList<Trophy>>() {
+			@Override
+			public ArrayList<Trophy> call() {
+				return api.getTrophies(a);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getTrophy(int) */
+	public Future<Trophy> getTrophy(int trophyId) {
+		return getTrophy(trophyId, null);
+	}
+
+	/** @see GameJoltAPI#getTrophy(int) */
+	public Future<Trophy> getTrophy(final int trophyId, Callback<Trophy> callback) {
+		return submit(new Callable<Trophy>() {
+			@Override
+			public Trophy call() {
+				return api.getTrophy(trophyId);
+			}
+		}, callback);
+	}
+
+	/** @see GameJoltAPI#getServerTime() */
+	public Future<ServerTime> getServerTime() {
+		return getServerTime(null);
+	}
+
+	/** @see GameJoltAPI#getServerTime() */
+	public Future<ServerTime> getServerTime(Callback<ServerTime> callback) {
+		return submit(new Callable<ServerTime>() {
+			@Override
+			public ServerTime call() {
+				return api.getServerTime();
+			}
+		}, callback);
+	}
+}
@@ -0,0 +1,473 @@
+package org.gamejolt;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.gamejolt.DataStore.DataStoreType;
+import org.gamejolt.Trophy.Achieved;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * <b>BatchRequest</b><br/>
+ * Collects several API calls and sends them to Game Jolt's batch endpoint in a single
+ * HTTP request, e.g. when one frame awards a few trophies and submits a score.
+ * <p>
+ * Every method adds a sub-request and returns a {@link Result} which is filled in by
+ * {@link #execute()}:
+ * <pre>
+ * BatchRequest batch = new BatchRequest(api);
+ * BatchRequest.Result&lt;Boolean&gt; trophy = batch.achieveTrophy(12);
+ * BatchRequest.Result&lt;Boolean&gt; score = batch.addHighscore(0, "5 Grapefruits", 5, "");
+ * batch.execute();
+ * if (trophy.get()) { ... }
+ * </pre>
+ * Each sub-request is signed like a normal request and the batch itself is signed as well.
+ * The batch endpoint was added in version 1_2 of the Game Jolt API, so the GameJoltAPI object
+ * has to be set to that version or later with {@link GameJoltAPI#setVersion(String)}.
+ * Batch responses are always requested in the JSON format, whatever format the GameJoltAPI
+ * object uses, because it is the only format that keeps the sub-responses apart.
+ * <p>
+ * Trophies and highscores that were accepted update the achieved trophies and the leaderboard
+ * mirrors of the GameJoltAPI object, just like the matching GameJoltAPI methods do.
+ */
+public class BatchRequest
+{
+	/**
+	 * The result of one sub-request.
+	 * @param <T> The type of the result, the same type the matching GameJoltAPI method returns.
+	 */
+	public static abstract class Result<T>
+	{
+		private T value;
+		private boolean successful = false;
+		private boolean done = false;
+
+		/**
+		 * Builds the result value from the response of the sub-request.
+		 * @param parser The parser to use, always a JSON parser.
+		 * @param response The parsed response of the sub-request.
+		 * @return The result value.
+		 */
+		abstract T parse(GameJoltResponseParser parser, GameJoltResponse response);
+
+		/**
+		 * The value used when the sub-request failed or the batch could not be sent.
+		 * @return The failure value.
+		 */
+		T failed() {
+			return null;
+		}
+
+		void complete(GameJoltResponseParser parser, GameJoltResponse response) {
+			try {
+				successful = response.isSuccessful();
+				value = parse(parser, response);
+			} catch (Exception e) {
+				successful = false;
+				value = failed();
+			}
+			done = true;
+		}
+
+		void fail() {
+			successful = false;
+			value = failed();
+			done = true;
+		}
+
+		/**
+		 * Get the result of the sub-request.
+		 * @return The same value the matching GameJoltAPI method would have returned.
+		 * @throws IllegalStateException if the batch was not executed yet.
+		 */
+		public T get() {
+			if (!done) {
+				throw new IllegalStateException("The batch request has not been executed yet");
+			}
+			return value;
+		}
+
+		/**
+		 * Check whether Game Jolt reported success for the sub-request.
+		 * @return true if the sub-request was successful.
+		 */
+		public boolean isSuccessful() {
+			return successful;
+		}
+
+		/**
+		 * Check whether the batch this sub-request belongs to has been executed.
+		 * @return true once {@link #get()} can be called.
+		 */
+		public boolean isDone() {
+			return done;
+		}
+	}
+
+	/** A sub-request that results in true on success. */
+	private static class SuccessResult extends Result<Boolean>
+	{
+		@Override
+		Boolean parse(GameJoltResponseParser parser, GameJoltResponse response) {
+			return isSuccessful();
+		}
+
+		@Override
+		Boolean failed() {
+			return false;
+		}
+	}
+
+	/** An added highscore, which is also added to the table's leaderboard mirror. */
+	private class HighscoreResult extends SuccessResult
+	{
+		private final int tableId;
+		private final int sort;
+
+		HighscoreResult(int tableId, int sort) {
+			this.tableId = tableId;
+			this.sort = sort;
+		}
+
+		@Override
+		Boolean parse(GameJoltResponseParser parser, GameJoltResponse response) {
+			if (isSuccessful()) {
+				api.highscoreAdded(tableId, sort);
+			}
+			return isSuccessful();
+		}
+	}
+
+	private static class SubRequest
+	{
+		final String method;
+		final HashMap<String, String> params;
+		final boolean requireVerified;
+		final Result<?> result;
+
+		SubRequest(String method, HashMap<String, String> params, boolean requireVerified, Result<?> result) {
+			this.method = method;
+			this.params = params;
+			this.requireVerified = requireVerified;
+			this.result = result;
+		}
+	}
+
+	private final GameJoltAPI api;
+	private final ArrayList<SubRequest> requests = new ArrayList<>();
+	private boolean parallel = false;
+	private boolean breakOnError = false;
+	private boolean executed = false;
+
+	/**
+	 * Create a new, empty batch request.
+	 * @param api The GameJoltAPI object whose game and user the requests are made for.
+	 */
+	public BatchRequest(GameJoltAPI api) {
+		this.api = api;
+	}
+
+	/**
+	 * Let Game Jolt process the sub-requests in parallel instead of in order.
+	 * @param parallel true to process the sub-requests in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Stop processing the sub-requests after the first one that fails.
+	 * The remaining sub-requests are marked as failed.
+	 * @param breakOnError true to stop at the first failed sub-request.
+	 */
+	public void setBreakOnError(boolean breakOnError) {
+		this.breakOnError = breakOnError;
+	}
+
+	/**
+	 * Get the number of sub-requests added so far.
+	 * @return The number of sub-requests.
+	 */
+	public int size() {
+		return requests.size();
+	}
+
+	private <T> Result<T> add(String method, HashMap<String, String> params, boolean requireVerified, Result<T> result) {
+		if (executed) {
+			throw new IllegalStateException("The batch request has already been executed");
+		}
+		requests.add(new SubRequest(method, params, requireVerified, result));
+		return result;
+	}
+
+	/**
+	 * Give the currently verified user a trophy.
+	 * @see GameJoltAPI#achieveTrophy(int)
+	 */
+	public Result<Boolean> achieveTrophy(final int trophyId) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("trophy_id", String.valueOf(trophyId));
+		return add("trophies/add-achieved", params, true, new SuccessResult() {
+			@Override
+			Boolean parse(GameJoltResponseParser parser, GameJoltResponse response) {
+				if (isSuccessful()) {
+					api.trophyAchieved(trophyId);
+				}
+				return isSuccessful();
+			}
+		});
+	}
+
+	/**
+	 * Get a list of trophies.
+	 * @see GameJoltAPI#getTrophies(Achieved)
+	 */
+	public Result<ArrayList<Trophy>> getTrophies(Achieved a) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("achieved", a.toString().toLowerCase());
+		return add("trophies/", params, true, new Result<ArrayList<Trophy>>() {
+			@Override
+			ArrayList<Trophy> parse(GameJoltResponseParser parser, GameJoltResponse response) {
+				return parser.parseTrophyResponse(response);
+			}
+		});
+	}
+
+	/**
+	 * Add a highscore for the currently verified user.
+	 * @see GameJoltAPI#addHighscore(int, String, int, String)
+	 */
+	public Result<Boolean> addHighscore(int id, String score, int sort, String extra) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("score", ""+score);
+		params.put("extra_data", ""+extra);
+		params.put("sort", ""+sort);
+		if (id!=0)
+			params.put("table_id", String.valueOf(id));
+		return add("scores/add", params, true, new HighscoreResult(id, sort));
+	}
+
+	/**
+	 * Add a highscore for a guest.
+	 * @see GameJoltAPI#addHighscore(int, String, String, int, String)
+	 */
+	public Result<Boolean> addGuestHighscore(int id, String guest_username, String score, int sort, String extra) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("guest", guest_username);
+		params.put("score", ""+score);
+		params.put("extra_data", ""+extra);
+		params.put("sort", ""+sort);
+		if (id!=0)
+			params.put("table_id", String.valueOf(id));
+		return add("scores/add", params, false, new HighscoreResult(id, sort));
+	}
+
+	/**
+	 * Retrieve a list of highscores.
+	 * @see GameJoltAPI#getHighscores(int, boolean, int)
+	 */
+	public Result<ArrayList<Highscore>> getHighscores(int id, boolean all, int limit) {
+		HashMap<String, String> params = new HashMap<>();
+		if (id!=0)
+			params.put("table_id", String.valueOf(id));
+		params.put("limit", ""+limit);
+		return add("scores", params, !all, new Result<ArrayList<Highscore>>() {
+			@Override
+			ArrayList<Highscore> parse(GameJoltResponseParser parser, GameJoltResponse response) {
+				return parser.parseHighscoreResponse(response);
+			}
+		});
+	}
+
+	/**
+	 * Retrieve the rank of a score.
+	 * @see GameJoltAPI#getHighscoreRank(int, int)
+	 */
+	public Result<Integer> getHighscoreRank(int score, int id) {
+		HashMap<String, String> params = new HashMap<>();
+		if (id!=0)
+			params.put("table_id", String.valueOf(id));
+		params.put("sort", String.valueOf(score));
+		return add("scores/get-rank", params, false, new Result<Integer>() {
+			@Override
+			Integer parse(GameJoltResponseParser parser, GameJoltResponse response) {
+				return parser.parseHighscoreRankResponse(response);
+			}
+
+			@Override
+			Integer failed() {
+				return -1;
+			}
+		});
+	}
+
+	/**
+	 * Retrieve a piece of data from the data store.
+	 * @see GameJoltAPI#getDataStore(DataStoreType, String)
+	 */
+	public Result<DataStore> getDataStore(final DataStoreType type, final String key) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("key", ""+key);
+		return add("data-store/", params, type == DataStoreType.USER, new Result<DataStore>() {
+			@Override
+			DataStore parse(GameJoltResponseParser parser, GameJoltResponse response) {
+				if (!isSuccessful()) {
+					return null;
+				}
+				DataStore ds = new DataStore();
+				ds.setKey(key);
+				ds.setData(api.decodeDataStore(response.getProperty("data")));
+				ds.setType(type);
+				return ds;
+			}
+		});
+	}
+
+	/**
+	 * Store a piece of data in the data store. Unlike {@link GameJoltAPI#setDataStore(DataStoreType, String, String)}
+	 * the data is sent in the URL of the sub-request, so this is only suitable for small values.
+	 * @see GameJoltAPI#setDataStore(DataStoreType, String, String)
+	 */
+	public Result<DataStore> setDataStore(final DataStoreType type, final String key, final String data) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("key", ""+key);
+		params.put("data", api.encodeDataStore(""+data));
+		return add("data-store/set", params, type == DataStoreType.USER, new Result<DataStore>() {
+			@Override
+			DataStore parse(GameJoltResponseParser parser, GameJoltResponse response) {
+				if (!isSuccessful()) {
+					return null;
+				}
+				DataStore ds = new DataStore();
+				ds.setKey(key);
+				ds.setData(data);
+				ds.setType(type);
+				return ds;
+			}
+		});
+	}
+
+	/**
+	 * Remove a piece of data from the data store.
+	 * @see GameJoltAPI#removeDataStore(DataStoreType, String)
+	 */
+	public Result<Boolean> removeDataStore(DataStoreType type, String key) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("key", ""+key);
+		return add("data-store/remove", params, type == DataStoreType.USER, new SuccessResult());
+	}
+
+	/**
+	 * Retrieve the data store keys.
+	 * @see GameJoltAPI#getDataStoreKeys(DataStoreType)
+	 */
+	public Result<ArrayList<String>> getDataStoreKeys(DataStoreType type) {
+		return add("data-store/get-keys", new HashMap<String, String>(), type == DataStoreType.USER, new Result<ArrayList<String>>() {
+			@Override
+			ArrayList<String> parse(GameJoltResponseParser parser, GameJoltResponse response) {
+				return parser.parseDatastoresKeysResponse(response);
+			}
+		});
+	}
+
+	/**
+	 * Ping the current play session.
+	 * @see GameJoltAPI#sessionUpdate(boolean)
+	 */
+	public Result<Boolean> sessionUpdate(boolean active) {
+		HashMap<String, String> params = new HashMap<>();
+		params.put("status", active ? "active" : "idle");
+		return add("sessions/ping/", params, true, new SuccessResult());
+	}
+
+	/**
+	 * Send all sub-requests in one HTTP request and fill in their results.
+	 * A batch can only be executed once.
+	 * @return true if the batch request itself was successful. The sub-requests can still have
+	 * failed individually, check their results.
+	 */
+	public boolean execute() {
+		if (executed) {
+			throw new IllegalStateException("The batch request has already been executed");
+		}
+		executed = true;
+		if (requests.isEmpty()) {
+			return true;
+		}
+
+		HashMap<String, String> postParams = new HashMap<>();
+		try {
+			for (int i = 0; i < requests.size(); i++) {
+				SubRequest sub = requests.get(i);
+				sub.params.put("format", GameJoltAPI.Format.JSON.toString());
+				String path = api.getSignedRequestPath(sub.method, sub.params, sub.requireVerified);
+				if (path == null) {
+					if (api.isVerbose()) { System.err.println("GameJoltAPI: Could not send the batch request because the user is not verified."); }
+					failAll();
+					return false;
+				}
+				postParams.put("requests[" + i + "]", path);
+			}
+		} catch (UnsupportedEncodingException e) {
+			failAll();
+			return false;
+		}
+
+		HashMap<String, String> params = new HashMap<>();
+		params.put("format", GameJoltAPI.Format.JSON.toString());
+		if (parallel) {
+			params.put("parallel", "true");
+		}
+		if (breakOnError) {
+			params.put("break_on_error", "true");
+		}
+		String response = api.requestAsPost("batch", params, postParams, false);
+		for (SubRequest sub : requests) {
+			api.invalidateCacheAfter(sub.method);
+		}
+		if (api.isVerbose()) { System.out.println(response); }
+
+		JSONArray responses = parseResponses(response);
+		if (responses == null) {
+			if (api.isVerbose()) { System.err.println("GameJoltAPI: The batch request failed."); }
+			failAll();
+			return false;
+		}
+		GameJoltResponseParser parser = GameJoltAPI.Format.JSON.getParser();
+		for (int i = 0; i < requests.size(); i++) {
+			Result<?> result = requests.get(i).result;
+			if (i < responses.size() && responses.get(i) instanceof JSONObject) {
+				result.complete(parser, GameJoltJSONParser.toResponse((JSONObject) responses.get(i)));
+			} else {
+				result.fail(); // not processed because of break_on_error
+			}
+		}
+		return true;
+	}
+
+	private void failAll() {
+		for (SubRequest sub : requests) {
+			sub.result.fail();
+		}
+	}
+
+	/**
+	 * Get the list of sub-responses from the batch response.
+	 * @param response The batch response.
+	 * @return The sub-responses, or null if the batch request was not successful.
+	 */
+	private JSONArray parseResponses(String response) {
+		try {
+			JSONObject resp = (JSONObject)((JSONObject)(new JSONParser().parse(response))).get("response");
+			if (resp == null || !"true".equals(String.valueOf(resp.get("success")))) {
+				return null;
+			}
+			return (JSONArray) resp.get("responses");
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
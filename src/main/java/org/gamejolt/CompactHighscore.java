@@ -0,0 +1,139 @@
+package org.gamejolt;
+
+/**
+ * <b>CompactHighscore</b><br/>
+ * An immutable Highscore whose values are parsed and decoded once, when the response is read.
+ * Sorting or comparing a large leaderboard does not parse the score again on every call,
+ * which {@link Highscore#getScoreValue()} does.
+ * <p>
+ * The natural order is by score value, lowest first. Properties that have no getter are
+ * still available through {@link #getProperty(String)}.
+ * This class is only instantiated from within the org.gamejolt.* package.
+ */
+public final class CompactHighscore implements Comparable<CompactHighscore>
+{
+	private final String score;
+	private final long sort;
+	private final String extraData;
+	private final int userId;
+	private final String username;
+	private final boolean guest;
+	private final String time;
+	private final long timestamp;
+	private final PropertyContainer properties;
+
+	CompactHighscore(String score, long sort, String extraData, int userId, String username,
+			boolean guest, String time, long timestamp, PropertyContainer properties) {
+		this.score = score;
+		this.sort = sort;
+		this.extraData = extraData;
+		this.userId = userId;
+		this.username = username;
+		this.guest = guest;
+		this.time = time;
+		this.timestamp = timestamp;
+		this.properties = properties;
+	}
+
+	/**
+	 * Retrieve the string value associated with the highscore. e.g. "5 Grapefruits".
+	 * @return the decoded string value associated with the highscore.
+	 */
+	public String getScoreString() {
+		return score;
+	}
+
+	/**
+	 * Retrieve the integer value associated with the highscore. e.g. 5.
+	 * @return the value the highscore is sorted by, or 0 if Game Jolt sent none.
+	 */
+	public long getScoreValue() {
+		return sort;
+	}
+
+	/**
+	 * Retrieve the extra data associated with the highscore; usually JSON, XML or a serialised String.
+	 * @return the decoded extra data, or an empty String.
+	 */
+	public String getExtraData() {
+		return extraData;
+	}
+
+	/**
+	 * Retrieve whether the Highscore was submitted by a Guest or not.
+	 * @return true if the Highscore was submitted by a Guest, otherwise false.
+	 */
+	public boolean isGuestHighscore() {
+		return guest;
+	}
+
+	/**
+	 * Retrieve whether the Highscore was submitted by a User or not.
+	 * @return true if the Highscore was submitted by a User, otherwise false.
+	 */
+	public boolean isUserHighscore() {
+		return !guest;
+	}
+
+	/**
+	 * Retrieve the User ID of the User that submitted the highscore.
+	 * @return The User ID, or -1 for a guest highscore.
+	 */
+	public int getUserId() {
+		return userId;
+	}
+
+	/**
+	 * If this is a user score, this returns the display name for the user.
+	 * If this is a guest score, this returns the guest's submitted name.
+	 * @return the name of the scorer
+	 */
+	public String getUsername() {
+		return username;
+	}
+
+	/**
+	 * Retrieve the time that the highscore was submitted, as Game Jolt describes it.
+	 * @return The time that the highscore was submitted. e.g. "2 weeks ago".
+	 */
+	public String getTime() {
+		return time;
+	}
+
+	/**
+	 * Retrieve the UNIX time stamp of when the highscore was submitted.
+	 * @return The time stamp, or -1 if Game Jolt did not send it.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Get a property of the highscore that isn't specified by a specific method.
+	 * This exists for forward compatibility.
+	 * @param key The key of the property.
+	 * @return The raw value Game Jolt sent, or null.
+	 */
+	public String getProperty(String key) {
+		return properties.getProperty(key);
+	}
+
+	/**
+	 * Get the properties of the highscore as a Highscore. The Highscore is a copy; changing
+	 * it does not change this object.
+	 * @return A new Highscore with the same properties.
+	 */
+	public Highscore toHighscore() {
+		return new Highscore(properties);
+	}
+
+	@Override
+	public int compareTo(CompactHighscore other) {
+		return (sort < other.sort) ? -1 : ((sort == other.sort) ? 0 : 1);
+	}
+
+	@Override
+	public String toString() {
+		return "Highscore [user_id=" + userId + ", score=" + score + "]";
+	}
+}
@@ -0,0 +1,104 @@
+package org.gamejolt;
+
+import org.gamejolt.Trophy.Difficulty;
+
+/**
+ * <b>CompactTrophy</b><br/>
+ * An immutable Trophy whose values are parsed once, when the response is read.
+ * Properties that have no getter are still available through {@link #getProperty(String)}.
+ * This class is only instantiated from within the org.gamejolt.* package.
+ */
+public final class CompactTrophy
+{
+	private final int id;
+	private final String title;
+	private final String description;
+	private final Difficulty difficulty;
+	private final boolean achieved;
+	private final String imageURL;
+	private final PropertyContainer properties;
+
+	CompactTrophy(int id, String title, String description, Difficulty difficulty,
+			boolean achieved, String imageURL, PropertyContainer properties) {
+		this.id = id;
+		this.title = title;
+		this.description = description;
+		this.difficulty = difficulty;
+		this.achieved = achieved;
+		this.imageURL = imageURL;
+		this.properties = properties;
+	}
+
+	/**
+	 * Get the ID of the Trophy.
+	 * @return The ID of the Trophy, or -1 if Game Jolt sent none.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Get the name of the Trophy.
+	 * @return The name of the Trophy.
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Get the description of the Trophy.
+	 * @return The description of the Trophy.
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Get the difficulty of the Trophy.
+	 * i.e. Bronze, Silver, Gold, Platinum.
+	 * @return The difficulty of the Trophy, or null if Game Jolt sent one this version does not know.
+	 */
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+	/**
+	 * Determines whether the Trophy is achieved or not.
+	 * @return True if the verified user has the Trophy.
+	 */
+	public boolean isAchieved() {
+		return achieved;
+	}
+
+	/**
+	 * Gets the URL of the Trophy's image.
+	 * @return The URL of the Trophy's image.
+	 */
+	public String getImageURL() {
+		return imageURL;
+	}
+
+	/**
+	 * Get a property of the Trophy that isn't specified by a specific method.
+	 * This exists for forward compatibility.
+	 * @param key The key of the property.
+	 * @return The raw value Game Jolt sent, or null.
+	 */
+	public String getProperty(String key) {
+		return properties.getProperty(key);
+	}
+
+	/**
+	 * Get the properties of the trophy as a Trophy. The Trophy is a copy; changing it does
+	 * not change this object.
+	 * @return A new Trophy with the same properties.
+	 */
+	public Trophy toTrophy() {
+		return new Trophy(properties);
+	}
+
+	@Override
+	public String toString() {
+		return "Trophy [id=" + id + ", title=" + title + "]";
+	}
+}
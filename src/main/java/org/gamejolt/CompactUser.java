@@ -0,0 +1,126 @@
+package org.gamejolt;
+
+import org.gamejolt.User.UserStatus;
+import org.gamejolt.User.UserType;
+
+/**
+ * <b>CompactUser</b><br/>
+ * An immutable User whose values are parsed once, when the response is read.
+ * Properties that have no getter are still available through {@link #getProperty(String)}.
+ * This class is only instantiated from within the org.gamejolt.* package.
+ */
+public final class CompactUser
+{
+	private final int id;
+	private final String name;
+	private final UserType type;
+	private final UserStatus status;
+	private final String avatarURL;
+	private final String signedUp;
+	private final String lastLoggedIn;
+	private final PropertyContainer properties;
+
+	CompactUser(int id, String name, UserType type, UserStatus status, String avatarURL,
+			String signedUp, String lastLoggedIn, PropertyContainer properties) {
+		this.id = id;
+		this.name = name;
+		this.type = type;
+		this.status = status;
+		this.avatarURL = avatarURL;
+		this.signedUp = signedUp;
+		this.lastLoggedIn = lastLoggedIn;
+		this.properties = properties;
+	}
+
+	/**
+	 * @return The ID of the user, or -1 if Game Jolt sent none.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return The name of the user.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The type of the user, or null if Game Jolt sent one this version does not know.
+	 */
+	public UserType getType() {
+		return type;
+	}
+
+	/**
+	 * @return Whether the user is active or banned, or null if Game Jolt sent neither.
+	 */
+	public UserStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return The URL of the user's avatar.
+	 */
+	public String getAvatarURL() {
+		return avatarURL;
+	}
+
+	/**
+	 * @return When the user signed up. e.g. "4 weeks ago".
+	 */
+	public String getSignedUp() {
+		return signedUp;
+	}
+
+	/**
+	 * @return When the user was last logged in. e.g. "Online Now".
+	 */
+	public String getLastLoggedIn() {
+		return lastLoggedIn;
+	}
+
+	public String getDeveloperName() {
+		return properties.getProperty("developer_name");
+	}
+
+	public String getDeveloperWebsite() {
+		return properties.getProperty("developer_website");
+	}
+
+	public String getDeveloperDescription() {
+		return properties.getProperty("developer_description");
+	}
+
+	/**
+	 * Get a property of the user that isn't specified by a specific method.
+	 * This exists for forward compatibility.
+	 * @param key The key of the property.
+	 * @return The raw value Game Jolt sent, or null.
+	 */
+	public String getProperty(String key) {
+		return properties.getProperty(key);
+	}
+
+	/**
+	 * Get the properties of the user as a User. The User is a copy; changing it does not
+	 * change this object.
+	 * @return A new User with the same properties.
+	 */
+	public User toUser() {
+		User u = new User(properties);
+		if (type != null) {
+			u.setType(type);
+		}
+		if (status != null) {
+			u.setStatus(status);
+		}
+		return u;
+	}
+
+	@Override
+	public String toString() {
+		return "User [name=" + name + ", type=" + type + ", avatar_url=" + avatarURL + "]";
+	}
+}
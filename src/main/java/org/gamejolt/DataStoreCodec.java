@@ -0,0 +1,155 @@
+package org.gamejolt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses data store values on their way to Game Jolt and back. Save games and level
+ * data are text that deflates to a fraction of its size; the data store only holds text, so
+ * the deflated bytes are Base64 encoded and marked with a prefix:
+ * <pre>
+ * GJZ1:&lt;length of the original in bytes&gt;:&lt;Base64 of the zlib stream&gt;
+ * </pre>
+ * Values shorter than the threshold, and values that would not get shorter, are stored as
+ * they are. Reading leaves values without the prefix alone, so compressed and plain values
+ * can be mixed under one game, and inflates values with it whether compression is on or
+ * not, as another copy of the game may have stored them.
+ * <p>
+ * A Deflater or Inflater holds native memory and is slow to create, so they are kept in a
+ * small pool shared by all codecs and reset between uses.
+ */
+final class DataStoreCodec
+{
+	static final String PREFIX = "GJZ1:";
+	static final int DEFAULT_THRESHOLD = 256;
+
+	private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+	private static final ArrayDeque<Deflater> deflaters = new ArrayDeque<>();
+	private static final ArrayDeque<Inflater> inflaters = new ArrayDeque<>();
+
+	private final int threshold;
+
+	/**
+	 * @param threshold The length in characters below which values are stored as they are.
+	 */
+	DataStoreCodec(int threshold) {
+		this.threshold = threshold;
+	}
+
+	int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @return The value to store: compressed, or data itself if that is not shorter.
+	 */
+	String encode(String data) {
+		if (data == null || data.length() < threshold) {
+			return data;
+		}
+		byte[] raw = data.getBytes(StandardCharsets.UTF_8);
+		// zlib never grows incompressible data by more than a few bytes per 16k block
+		byte[] out = new byte[raw.length + raw.length / 1000 + 64];
+		int length;
+		Deflater deflater = takeDeflater();
+		try {
+			deflater.setInput(raw);
+			deflater.finish();
+			length = deflater.deflate(out);
+			if (!deflater.finished()) {
+				return data;
+			}
+		} finally {
+			giveBack(deflater);
+		}
+		String encoded = PREFIX + raw.length + ":" + GameJoltBase64.encode(out, 0, length);
+		return (encoded.length() < data.length()) ? encoded : data;
+	}
+
+	/**
+	 * @return The original value, or stored itself if it was not compressed or can not be
+	 * decompressed.
+	 */
+	static String decode(String stored) {
+		if (stored == null || !stored.startsWith(PREFIX)) {
+			return stored;
+		}
+		int colon = stored.indexOf(':', PREFIX.length());
+		if (colon < 0) {
+			return stored;
+		}
+		Inflater inflater = takeInflater();
+		try {
+			int length = Integer.parseInt(stored.substring(PREFIX.length(), colon));
+			byte[] compressed = GameJoltBase64.decode(stored.substring(colon + 1));
+			if (length < 0 || length / 1032 > compressed.length) {
+				return stored; // more than deflate can pack into that many bytes
+			}
+			byte[] raw = new byte[length];
+			inflater.setInput(compressed);
+			int n = 0;
+			while (n < length) {
+				int inflated = inflater.inflate(raw, n, length - n);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += inflated;
+			}
+			if (n != length || !inflater.finished()) {
+				return stored; // not something this codec wrote
+			}
+			return new String(raw, StandardCharsets.UTF_8);
+		} catch (DataFormatException e) {
+			return stored;
+		} catch (RuntimeException e) {
+			return stored; // a bad length or Base64
+		} finally {
+			giveBack(inflater);
+		}
+	}
+
+	private static Deflater takeDeflater() {
+		synchronized (deflaters) {
+			Deflater d = deflaters.poll();
+			if (d != null) {
+				return d;
+			}
+		}
+		return new Deflater(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	private static void giveBack(Deflater d) {
+		d.reset();
+		synchronized (deflaters) {
+			if (deflaters.size() < POOL_SIZE) {
+				deflaters.push(d);
+				return;
+			}
+		}
+		d.end();
+	}
+
+	private static Inflater takeInflater() {
+		synchronized (inflaters) {
+			Inflater i = inflaters.poll();
+			if (i != null) {
+				return i;
+			}
+		}
+		return new Inflater();
+	}
+
+	private static void giveBack(Inflater i) {
+		i.reset();
+		synchronized (inflaters) {
+			if (inflaters.size() < POOL_SIZE) {
+				inflaters.push(i);
+				return;
+			}
+		}
+		i.end();
+	}
+}
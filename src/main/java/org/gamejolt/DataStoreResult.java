@@ -0,0 +1,125 @@
+package org.gamejolt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import org.gamejolt.DataStore.DataStoreType;
+
+/**
+ * <b>DataStoreResult</b><br/>
+ * The data of every key of a data store, as read by
+ * {@link GameJoltAPI#getDataStoreObjects(DataStoreType, int)}. Keys whose data could not be
+ * read have an error message instead, so one failed request does not lose the others.
+ * This class is only instantiated from within the org.gamejolt.* package.
+ */
+public final class DataStoreResult
+{
+	private final DataStoreType type;
+	private final ArrayList<String> keys;
+	private final DataStore[] objects;
+	private final String[] errors;
+
+	/**
+	 * @param keys The keys in the order Game Jolt listed them, or null if they could not be read.
+	 * @param objects The data of each key, null where it could not be read.
+	 * @param errors The error of each key, null where the data was read.
+	 */
+	DataStoreResult(DataStoreType type, ArrayList<String> keys, DataStore[] objects, String[] errors) {
+		this.type = type;
+		this.keys = keys;
+		this.objects = objects;
+		this.errors = errors;
+	}
+
+	/**
+	 * @return The type of the data store.
+	 */
+	public DataStoreType getType() {
+		return type;
+	}
+
+	/**
+	 * Check whether the keys of the data store could be read.
+	 * @return true if the keys were read, even if the data of some of them was not.
+	 */
+	public boolean isSuccessful() {
+		return keys != null;
+	}
+
+	/**
+	 * Check whether the data of every key was read.
+	 * @return true if there are no errors.
+	 */
+	public boolean isComplete() {
+		if (keys == null) {
+			return false;
+		}
+		for (String error : errors) {
+			if (error != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The number of keys.
+	 */
+	public int size() {
+		return (keys == null) ? 0 : keys.size();
+	}
+
+	/**
+	 * Get the keys of the data store, in the order Game Jolt listed them.
+	 * @return The keys, empty if they could not be read.
+	 */
+	public ArrayList<String> getKeys() {
+		return (keys == null) ? new ArrayList<String>() : new ArrayList<String>(keys);
+	}
+
+	/**
+	 * Get the data of one key.
+	 * @param index The index of the key in {@link #getKeys()}.
+	 * @return The DataStore, or null if its data could not be read.
+	 */
+	public DataStore getObject(int index) {
+		return objects[index];
+	}
+
+	/**
+	 * Get why the data of one key could not be read.
+	 * @param index The index of the key in {@link #getKeys()}.
+	 * @return The error message, or null if the data was read.
+	 */
+	public String getError(int index) {
+		return errors[index];
+	}
+
+	/**
+	 * Get the data that could be read, in the order of the keys.
+	 * @return The DataStore objects, without the keys that failed.
+	 */
+	public ArrayList<DataStore> getObjects() {
+		ArrayList<DataStore> list = new ArrayList<DataStore>();
+		for (int i = 0; i < size(); i++) {
+			if (objects[i] != null) {
+				list.add(objects[i]);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Get the keys whose data could not be read.
+	 * @return The error message of each failed key, in the order of the keys.
+	 */
+	public LinkedHashMap<String, String> getErrors() {
+		LinkedHashMap<String, String> map = new LinkedHashMap<String, String>();
+		for (int i = 0; i < size(); i++) {
+			if (errors[i] != null) {
+				map.put(keys.get(i), errors[i]);
+			}
+		}
+		return map;
+	}
+}
@@ -1,26 +1,29 @@
 package org.gamejolt;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.gamejolt.DataStore.DataStoreOperation;
 import org.gamejolt.DataStore.DataStoreType;
@@ -36,11 +39,11 @@ import org.gamejolt.Trophy.Achieved;
  */
 public class GameJoltAPI 
 {
-	private final String protocol = new String("http://");
-	//private final String api_root = new String("staging.gamejolt.com/api/game/");
-	//private final String api_root = new String("staging.gamejolt.com/game-api/");
-	private final String api_root = new String("gamejolt.com/api/game/");
-	//private final String api_root = new String("gamejoltdevash.dyndns.org/api/game/");
+	/** The address of the Game Jolt game API, without the version. */
+	public static final String DEFAULT_BASE_URL = "http://gamejolt.com/api/game/";
+	//public static final String DEFAULT_BASE_URL = "http://staging.gamejolt.com/api/game/";
+	//public static final String DEFAULT_BASE_URL = "http://gamejoltdevash.dyndns.org/api/game/";
+	private String baseURL = DEFAULT_BASE_URL;
 	
         public enum Format {
             XML, 
@@ -70,8 +73,53 @@ public class GameJoltAPI
         private GameJoltResponseParser parser;
         public Format format;
         
+        // performs the HTTP requests
+        private GameJoltTransport transport = new GameJoltHttpTransport();
+        
+        // identical concurrent read requests share one HTTP request
+        private static final Set<String> READ_METHODS = new HashSet<String>(Arrays.asList(
+                "users", "users/auth", "scores", "scores/tables", "scores/get-rank",
+                "trophies", "data-store", "data-store/get-keys", "sessions/check",
+                "get-time", "time"));
+        // reads that are not shared all the same: they answer for the user's login or play
+        // session as it is now, and a request sent before e.g. sessionOpen() returned would not
+        private static final Set<String> UNSHARED_READ_METHODS = new HashSet<String>(Arrays.asList(
+                "users/auth", "sessions/check"));
+        // the reads whose responses may be cached, see setCacheTime
+        private static final Set<String> CACHEABLE_METHODS = new HashSet<String>(Arrays.asList(
+                "trophies", "scores/tables", "scores", "users", "data-store/get-keys"));
+        private static final String[] DATA_STORE_KEY_PROPERTIES = {"key"};
+        private final GameJoltCoalescer coalescer;
+        private boolean coalescing = true;
+        
+        // responses that rarely change, such as the trophy list; nothing is cached by default
+        private final GameJoltCache cache;
+        
+        // the trophies the verified user is known to have, so achieveTrophy can skip them
+        private final Object achievedLock = new Object();
+        private volatile AchievedTrophies achieved;
+        private boolean trophyTracking = true;
+        
+        // local copies of highscore tables, by table id
+        private final ConcurrentHashMap<Integer, LeaderboardMirror> mirrors;
+        // the id of the primary table once it is known, as the mirrors are kept by the real id
+        private volatile int primaryTableId = 0;
+        
+        // the server time without a request per call, created when first asked for
+        private ServerClock serverClock;
+        
+        // compresses data store values, or null to store them as they are
+        private DataStoreCodec dataStoreCodec;
+        
+        // makes the requests of the mirrors and the clock; this, unless shared with a GameJoltClient
+        private final GameJoltAPI gameAPI;
+        
+        // created by a GameJoltClient, whose settings it must not change
+        private final boolean clientHandle;
+        
 	private int gameId;
 	private String privateKey;
+	private RequestSigner signer;
 	private String version = "1_1";
 	//private double version = 0.95;
 	
@@ -97,21 +145,20 @@ public class GameJoltAPI
 	{
 		this.gameId = gameId;
 		this.privateKey = privateKey;
-		File f = new File("gjapi-credentials.txt");
-		if (f.exists()) {
-			try(Scanner sc = new Scanner(f)) {
-				this.quickplay_username = sc.nextLine();
-				this.quickplay_usertoken = sc.nextLine();
-				//this.verifyUser(username, usertoken);		
-			} catch(FileNotFoundException exc) {
-			} catch(NoSuchElementException exc) {
-				if(verbose)
-					System.err.println(exc.getCause());
-			}
+		this.signer = new RequestSigner(privateKey);
+		String[] quickplay = readQuickplay();
+		if (quickplay != null) {
+			this.quickplay_username = quickplay[0];
+			this.quickplay_usertoken = quickplay[1];
 		}
                 // the initial parser
                 format = Format.KEYPAIR;
                 parser = format.getParser();
+                coalescer = new GameJoltCoalescer();
+                cache = new GameJoltCache();
+                mirrors = new ConcurrentHashMap<>();
+                gameAPI = this;
+                clientHandle = false;
 	}
 		
 	/**
@@ -121,16 +168,72 @@ public class GameJoltAPI
 	 */
 	public GameJoltAPI(int gameId, String privateKey, String username, String userToken) 
 	{
-		this.gameId = gameId;
-		this.privateKey = privateKey;
+		this(gameId, privateKey);
 		this.verifyUser(username, userToken);
 	}
 	
+	/**
+	 * Create a GameJoltAPI object that shares the settings, caches and connections of a
+	 * client. Nothing is read or allocated apart from the object itself.
+	 * @see GameJoltClient#createAPI()
+	 */
+	GameJoltAPI(GameJoltClient client)
+	{
+		this.gameId = client.gameId;
+		this.privateKey = client.privateKey;
+		this.signer = client.signer;
+		this.baseURL = client.baseURL;
+		this.version = client.version;
+		this.format = client.format;
+		this.parser = client.parser;
+		this.transport = client.transport;
+		this.verbose = client.verbose;
+		this.coalescer = client.coalescer;
+		this.cache = client.cache;
+		this.mirrors = client.mirrors;
+		this.dataStoreCodec = client.dataStoreCodec;
+		this.quickplay_username = client.quickplayUsername;
+		this.quickplay_usertoken = client.quickplayUsertoken;
+		// both are still null while the client creates its own GameJoltAPI
+		this.serverClock = client.serverClock;
+		this.gameAPI = (client.gameAPI != null) ? client.gameAPI : this;
+		this.clientHandle = true;
+	}
+	
+	/**
+	 * Refuse to change a setting of the GameJoltClient this object was created by, as it
+	 * would change it for every player of the client.
+	 * @throws IllegalStateException if this object belongs to a GameJoltClient.
+	 */
+	private void checkNotClientHandle(String setting) {
+		if (clientHandle) {
+			throw new IllegalStateException(setting + " is shared by every player of the GameJoltClient");
+		}
+	}
+	
+	/**
+	 * Read the Game Jolt Quick Play file (gjapi-credentials.txt).
+	 * @return The username and the user token, or null if there is no such file.
+	 */
+	static String[] readQuickplay() {
+		File f = new File("gjapi-credentials.txt");
+		if (f.exists()) {
+			try(Scanner sc = new Scanner(f)) {
+				return new String[] { sc.nextLine(), sc.nextLine() };
+			} catch(FileNotFoundException exc) {
+			} catch(NoSuchElementException exc) {
+			}
+		}
+		return null;
+	}
+	
 	/**
 	 * Set the version of the GameJolt API to use.
 	 * @param version The version of the GameJolt API to be using.
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
 	 */
 	public void setVersion(String version) {
+		checkNotClientHandle("The version");
 		this.version = version;
 	}
 	
@@ -142,6 +245,29 @@ public class GameJoltAPI
 		return version;
 	}	
 
+	/**
+	 * Set the address of the Game Jolt game API the requests are sent to, e.g. to use a
+	 * {@link GameJoltStubServer} for testing. The version is appended to it.
+	 * By default, this is {@link #DEFAULT_BASE_URL}.
+	 * @param baseURL The address, such as "http://127.0.0.1:8080/api/game/".
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
+	 */
+	public void setBaseURL(String baseURL) {
+		checkNotClientHandle("The base URL");
+		if (!baseURL.endsWith("/")) {
+			baseURL = baseURL + "/";
+		}
+		this.baseURL = baseURL;
+	}
+	
+	/**
+	 * Get the address of the Game Jolt game API the requests are sent to.
+	 * @return The address the requests are sent to.
+	 */
+	public String getBaseURL() {
+		return baseURL;
+	}
+
 	/**
 	 * Sets whether the API should print out debug information to the Console.
 	 * By default, this is set to true.
@@ -247,14 +373,13 @@ public class GameJoltAPI
          * @return The user object that was returned if it succeeds, or null if it fails.
          */
         private User getUserRequest(HashMap<String, String> params) {
-                String response = request("users/", params, false);
-		if (verbose) { System.out.println(response); }
+                GameJoltResponse response = requestResponse("users/", params, false, "users", parser.getUserProperties());
 		
                 try {
                     User u = parser.parseUserRequestResponse(response);
                     if (verbose && u == null) { 
                             System.err.println("GameJoltAPI: Could not get the Verified User with Username: " + this.username); 
-                            System.err.println(response);
+                            System.err.println(response.getMessage());
                     }
                     return u;
                 } catch (Exception pe) {
@@ -335,42 +460,102 @@ public class GameJoltAPI
 	 * @return An array of Highscore objects on success, an empty array or null on failure.
 	 */
 	public ArrayList<Highscore> getHighscores(int id, boolean all, int limit) {
-		if (all == false && !this.verified) { 
-			if (verbose) { System.err.println("GameJoltAPI: Could not get the Highscores for the verified user as the user is not verified."); }
-			return null; 
+		GameJoltResponse response = requestHighscores(id, all, limit);
+		if (response == null) {
+			return null;
 		}
-		try {
-			HashMap<String, String> params = new HashMap<String, String>();
-                        String response = null;
-                        if (id!=0)
-                                params.put("table_id", String.valueOf(id));
-			if (all == true) { // all highscores
-				params.put("limit", (""+limit));
-
-				response = request("scores", params, false);			
-			} else { // verified user's highscores.
-				params.put("username", username);
-				params.put("user_token", usertoken);  
-				params.put("limit", ""+limit);
-
-				response = request("scores", params, true);
+		ArrayList<Highscore> highscores = parser.parseHighscoreResponse(response);
+		if (highscores == null) {
+			if (verbose) {
+				System.err.println("GameJoltAPI: Could not get the highscores "
+						+ "from the table with the id '" + id + "'");
 			}
-			
+		}
+		return highscores;
+	}
+
+	/**
+	 * Retrieve a list of Highscores as CompactHighscores, whose scores are parsed once.
+	 * Use this instead of {@link #getHighscores(int, boolean, int)} when sorting or
+	 * comparing many highscores.
+	 * @param id the id of the table. If 0 is given it will use the primary
+	 * high score table
+	 * @param all If set to true, this will retrieve all highscores. Otherwise it will retrieve the currently verified user's highscores.
+	 * @param limit the number of scores you want to receive (max. 100)
+	 * @return An array of CompactHighscore objects on success, an empty array or null on failure.
+	 */
+	public ArrayList<CompactHighscore> getCompactHighscores(int id, boolean all, int limit) {
+		GameJoltResponse response = requestHighscores(id, all, limit);
+		if (response == null) {
+			return null;
+		}
+		ArrayList<CompactHighscore> highscores = parser.parseCompactHighscoreResponse(response);
+		if (highscores == null) {
 			if (verbose) {
-				System.out.println(response);
+				System.err.println("GameJoltAPI: Could not get the highscores "
+						+ "from the table with the id '" + id + "'");
 			}
-                        ArrayList<Highscore> highscores = parser.parseHighscoreResponse(response);
-                        if (highscores == null) {
-                            if (verbose) {
-                                System.err.println("GameJoltAPI: Could not get the highscores "
-                                        + "from the table with the id '" + id + "'");
-                            }
-                        }
-                        return highscores;
-		} catch(Exception e) {
-			e.printStackTrace();
+		}
+		return highscores;
+	}
+
+	/**
+	 * Retrieve a list of Highscores one at a time, as they are read from the connection.
+	 * Memory use does not grow with the limit, which makes this the way to read whole tables.
+	 * The iterator must be closed if it is not read to the end.
+	 * @param id the id of the table. If 0 is given it will use the primary
+	 * high score table
+	 * @param all If set to true, this will retrieve all highscores. Otherwise it will retrieve the currently verified user's highscores.
+	 * @param limit the number of scores you want to receive
+	 * @return An iterator over the highscores, or null if the request could not be made.
+	 */
+	public HighscoreIterator getHighscoreIterator(int id, boolean all, int limit) {
+		HashMap<String, String> params = getHighscoreParams(id, all, limit);
+		if (params == null) {
 			return null;
 		}
+		InputStream in = null;
+		try {
+			in = transport.get(getSignedRequestURL("scores", params));
+			HighscoreIterator it = new HighscoreIterator(in, parser.openRowReader(in, "scores", parser.getHighscoreProperties()));
+			in = null;
+			return it;
+		} catch (IOException e) {
+			if (verbose) { System.err.println("GameJoltAPI: Could not get the highscores: " + e.getMessage()); }
+			return null;
+		} finally {
+			if (in != null) {
+				try { in.close(); } catch (IOException e) { }
+			}
+		}
+	}
+
+	/**
+	 * Request a list of highscores.
+	 * @return The response, or null if the user's highscores were asked for and the user is not verified.
+	 */
+	private GameJoltResponse requestHighscores(int id, boolean all, int limit) {
+		HashMap<String, String> params = getHighscoreParams(id, all, limit);
+		if (params == null) {
+			return null;
+		}
+		return requestResponse("scores", params, false, "scores", parser.getHighscoreProperties());
+	}
+
+	/**
+	 * Get the parameters of a highscores request.
+	 * @return The parameters, or null if the user's highscores were asked for and the user is not verified.
+	 */
+	private HashMap<String, String> getHighscoreParams(int id, boolean all, int limit) {
+		HashMap<String, String> params = new HashMap<String, String>();
+		if (all == false && !addCredentials(params)) { 
+			if (verbose) { System.err.println("GameJoltAPI: Could not get the Highscores for the verified user as the user is not verified."); }
+			return null; 
+		}
+		if (id!=0)
+			params.put("table_id", String.valueOf(id));
+		params.put("limit", (""+limit));
+		return params;
 	}
         
 	/**
@@ -389,7 +574,18 @@ public class GameJoltAPI
          * get the primary high score table.
 	 * @return the closest rank to the score, or -1 if there was an error
 	 */
-	public int getHighscoreRank(int score, int id){		
+	public int getHighscoreRank(int score, int id){
+		return getHighscoreRank((long) score, id);
+	}
+	/**
+	 * retrieve the Rank with the score closest to the given score, for sort values
+	 * that do not fit in an int.
+	 * @param score the score for which the rank should be retrieved
+	 * @param id the id of the HighscoreTable. If this is 0, it will 
+         * get the primary high score table.
+	 * @return the closest rank to the score, or -1 if there was an error
+	 */
+	public int getHighscoreRank(long score, int id){
 		try {
 			HashMap<String, String> params = new HashMap<String, String>();
                         // if no ID is supplied, it will get the primary score table.
@@ -420,14 +616,10 @@ public class GameJoltAPI
 	 * @return a list of Highscoretables, or null if there is an error or it's not successful
 	 */
 	public ArrayList<HighscoreTable> getHighscoreTables(){
-		String response = null;
 		try {
 			HashMap<String, String> params = new HashMap<String, String>();
-			response = request("scores/tables", params, false);
+			GameJoltResponse response = requestResponse("scores/tables", params, false, "tables", parser.getHighscoreTableProperties());
 			
-			if (verbose) {
-				System.out.println(response);
-			}
 			ArrayList<HighscoreTable> tables = parser.parseHighscoreTableResponse(response);
                         if (tables == null) {
                             if (verbose) {
@@ -503,6 +695,7 @@ public class GameJoltAPI
 				if (verbose) { System.out.println(response); }
 				return false;
 			}
+			highscoreAdded(id, sort);
 			return true;
 		} catch (Exception e) {
 			return false;
@@ -571,12 +764,78 @@ public class GameJoltAPI
 				if (verbose) { System.out.println(response); }
 				return false;
 			}
+			highscoreAdded(id, sort);
 			return true;
 		} catch (Exception e) {
 			return false;
 		}
 	}
 	
+	/**
+	 * Get a local copy of a highscore table that answers rank queries without a request.
+	 * The mirror is created on the first call for a table and loads the table in the
+	 * background; call {@link LeaderboardMirror#sync()} to wait for it instead. Highscores
+	 * added through this API are added to the mirror.
+	 * @param id the id of the table. If 0 is given it will use the primary high score table,
+	 * and the mirror is the same as the one of the primary table's id.
+	 * @return The mirror of the table.
+	 */
+	public LeaderboardMirror getLeaderboardMirror(int id) {
+		if (id == 0) {
+			id = getPrimaryTableId(); // stays 0 if it can not be found out
+		}
+		LeaderboardMirror mirror = mirrors.get(id);
+		if (mirror == null) {
+			LeaderboardMirror created = new LeaderboardMirror(gameAPI, id, 100);
+			mirror = mirrors.putIfAbsent(id, created);
+			if (mirror == null) {
+				mirror = created;
+			}
+		}
+		return mirror;
+	}
+	
+	/**
+	 * Add a highscore that Game Jolt accepted to the mirror of its table, if there is one.
+	 */
+	void highscoreAdded(int id, int sort) {
+		if (mirrors.isEmpty()) {
+			return;
+		}
+		LeaderboardMirror mirror = mirrors.get(id);
+		if (mirror == null && id == 0) {
+			int primary = getPrimaryTableId();
+			mirror = (primary != 0) ? mirrors.get(primary) : null;
+		}
+		if (mirror != null) {
+			mirror.add(sort);
+		}
+	}
+	
+	/**
+	 * Get the id of the primary highscore table. It is asked for once, and shared by the
+	 * GameJoltAPI objects of a client.
+	 * @return The id, or 0 if it could not be found out.
+	 */
+	int getPrimaryTableId() {
+		if (gameAPI != this) {
+			return gameAPI.getPrimaryTableId();
+		}
+		int id = primaryTableId;
+		if (id == 0) {
+			ArrayList<HighscoreTable> tables = getHighscoreTables();
+			if (tables != null) {
+				for (HighscoreTable t : tables) {
+					if (t.isPrimary()) {
+						id = t.getId();
+						primaryTableId = id;
+					}
+				}
+			}
+		}
+		return id;
+	}
+	
 	/*
 	 * Data Storage
 	 * 
@@ -613,6 +872,13 @@ public class GameJoltAPI
 	}
 	/**
 	 * updates the data of an existing entry on the gamejolts servers by performing a {@link DataStoreOperation} between the data on the Server and the values
+	 * <p>
+	 * Game Jolt would append to or prepend to the compressed text of a value stored with
+	 * {@link #setDataStoreCompression(boolean)}. So while compression is on, APPEND and PREPEND
+	 * read the value first, and if it is compressed, set the changed original instead. That
+	 * takes one more request, and an update that is made by someone else at the same time may
+	 * be lost. With compression off they are done by Game Jolt in one request, so they must not
+	 * be used on a value that may have been stored compressed.
 	 * @param type the Type of the Data Store. Should be either DataTypeStore.USER or DataTypeStore.GAME.
 	 * @param key key for which to store the data. You use this key to retrieve the DataStore.
 	 * @param operation the operation to perform on the entry
@@ -621,6 +887,17 @@ public class GameJoltAPI
 	 */
 	public DataStore updateDataStore(DataStoreType type, String key, DataStoreOperation operation, String value) 
 	{
+		if (dataStoreCodec != null && (operation == DataStoreOperation.APPEND || operation == DataStoreOperation.PREPEND)) {
+			String stored = requestDataStore(type, key);
+			if (stored != null && stored.startsWith("SUCCESS") && stored.length() > 9) {
+				String raw = stored.substring(9);
+				String data = decodeDataStore(raw);
+				if (!data.equals(raw)) { // compressed
+					data = (operation == DataStoreOperation.APPEND) ? data + value : value + data;
+					return setDataStore(type, key, data);
+				}
+			}
+		}
 		String response=null;
 		try {
 			if (type == DataStoreType.GAME) {
@@ -655,7 +932,7 @@ public class GameJoltAPI
 		} 
 		DataStore ds = new DataStore();
 		ds.setKey(key);
-		ds.setData(response.substring(9));
+		ds.setData(decodeDataStore(response.substring(9)));
 		ds.setType(type);
 		return ds;
 	}
@@ -676,7 +953,7 @@ public class GameJoltAPI
 			HashMap<String,String> postParams = new HashMap<String,String>();
 
 			params.put("key", ""+key);
-			postParams.put("data", ""+data);
+			postParams.put("data", encodeDataStore(""+data));
 			
 			response=requestAsPost("data-store/set", params,postParams, false);
 			
@@ -684,7 +961,7 @@ public class GameJoltAPI
 			HashMap<String, String> params = new HashMap<String, String>();
 			HashMap<String,String> postParams = new HashMap<String,String>();
 			params.put("key", ""+key);
-			postParams.put("data", ""+data);
+			postParams.put("data", encodeDataStore(""+data));
 			
 			response = this.requestAsPost("data-store/set", params,postParams,true);
 			if (verbose) { System.out.println(response); }
@@ -739,6 +1016,7 @@ public class GameJoltAPI
 	 * This method loops through all of the keys and creates all objects using a new http request for each key.
 	 * For this reason, it is slow, and it is advised that you use GameJoltAPI.getDataStoreKeys();
 	 * In Big O notation, this method takes O(n + 1)  time.
+	 * Use {@link #getDataStoreObjects(DataStoreType, int)} to make several of the requests at once.
 	 * 
 	 * @param type The Type of keys to get, either DataStoreType.USER or DataStoreType.GAME.
 	 * @return a list of Data Store keys for the type specified by the parameters.
@@ -752,6 +1030,90 @@ public class GameJoltAPI
 		return datastores;
 	}
 	
+	/**
+	 * Retrieve all DataStore Objects for the type specified by the parameter, with up to
+	 * maxInFlight requests running at the same time. This still makes a request for each key,
+	 * but hundreds of keys load in about the time of hundreds divided by maxInFlight.
+	 * <p>
+	 * A key whose data could not be read does not fail the others: the result holds the
+	 * data that was read, in the order of the keys, and an error message for every other key.
+	 * <p>
+	 * If the calling thread is interrupted, no more keys are requested. The requests that are
+	 * running are waited for, the keys that were not read get an error message, and the
+	 * thread is left interrupted.
+	 * 
+	 * @param type The Type of keys to get, either DataStoreType.USER or DataStoreType.GAME.
+	 * @param maxInFlight How many requests may run at once, e.g. 8.
+	 * @return The data of every key, unsuccessful if the keys could not be read.
+	 */
+	public DataStoreResult getDataStoreObjects(final DataStoreType type, int maxInFlight) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be at least 1");
+		}
+		final ArrayList<String> keys = this.getDataStoreKeys(type);
+		if (keys == null) {
+			return new DataStoreResult(type, null, null, null);
+		}
+		final DataStore[] objects = new DataStore[keys.size()];
+		final String[] errors = new String[keys.size()];
+		final AtomicInteger next = new AtomicInteger();
+		final Thread caller = Thread.currentThread();
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				// every worker takes the next key until there are none left
+				int i;
+				while (!caller.isInterrupted() && (i = next.getAndIncrement()) < objects.length) {
+					String key = keys.get(i);
+					try {
+						String response = requestDataStore(type, key);
+						if (response == null || response.equals("REQUEST_FAILED")) {
+							errors[i] = "Could not reach Game Jolt.";
+						} else if (response.startsWith("SUCCESS")) {
+							objects[i] = newDataStore(type, key, response);
+						} else {
+							errors[i] = (response.length() > 9) ? response.substring(9).trim() : response;
+						}
+					} catch (RuntimeException e) {
+						errors[i] = String.valueOf(e.getMessage());
+					}
+				}
+			}
+		};
+		// the calling thread is one of the workers
+		int helpers = Math.min(maxInFlight, objects.length) - 1;
+		ExecutorService executor = GameJoltExecutors.shared();
+		ArrayList<Future<?>> running = new ArrayList<Future<?>>();
+		for (int i = 0; i < helpers; i++) {
+			running.add(executor.submit(worker));
+		}
+		worker.run();
+		// the helpers write to objects and errors, so they are waited for even when interrupted
+		boolean interrupted = caller.isInterrupted();
+		for (Future<?> f : running) {
+			while (true) {
+				try {
+					f.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					next.set(objects.length); // no more keys for the helpers
+				} catch (ExecutionException e) {
+					break; // the worker catches its own errors
+				}
+			}
+		}
+		if (interrupted) {
+			for (int i = 0; i < objects.length; i++) {
+				if (objects[i] == null && errors[i] == null) {
+					errors[i] = "Interrupted before it was read.";
+				}
+			}
+			caller.interrupt();
+		}
+		return new DataStoreResult(type, keys, objects, errors);
+	}
+	
 	/**
 	 * Retrieve a list of Data Store keys for the type specified by the parameter.
 	 * 
@@ -761,15 +1123,8 @@ public class GameJoltAPI
 	 */
 	public ArrayList<String> getDataStoreKeys(DataStoreType type) {
 		try {
-			String response;
-			if (type == DataStoreType.GAME) {
-				response = request("data-store/get-keys",new HashMap<String,String>(),false);
-			} else {
-					response = this.request("data-store/get-keys", new HashMap<String,String>(),true);
-			}
-			if (verbose) {
-				System.out.println(response);
-			}
+			GameJoltResponse response = requestResponse("data-store/get-keys", new HashMap<String,String>(),
+					type == DataStoreType.USER, "keys", DATA_STORE_KEY_PROPERTIES);
 			ArrayList<String> keys_list = parser.parseDatastoresKeysResponse(response);
 			if (keys_list == null) {
 				if (verbose) {
@@ -795,6 +1150,20 @@ public class GameJoltAPI
 	 * @return The DataStore Object for the key passed in.
 	 */
 	public DataStore getDataStore(DataStoreType type, String key){
+		String response = requestDataStore(type, key);
+		if (!response.substring(0, 7).equals("SUCCESS")) {
+			if (verbose) { System.err.println("GameJoltAPI: " + response.substring(9)); }
+			if (verbose) { System.out.println(response); }
+			return null;
+		} 
+		return newDataStore(type, key, response);
+	}
+	
+	/**
+	 * Request a piece of data in the dump format.
+	 * @return The response, starting with SUCCESS or FAILURE.
+	 */
+	private String requestDataStore(DataStoreType type, String key) {
 		String response = null;
 		if (type == DataStoreType.GAME) {
 			HashMap<String, String> params = new HashMap<String, String>();
@@ -807,14 +1176,13 @@ public class GameJoltAPI
 			if (verbose) { System.out.println(response); }
 			
 		}
-		if (!response.substring(0, 7).equals("SUCCESS")) {
-			if (verbose) { System.err.println("GameJoltAPI: " + response.substring(9)); }
-			if (verbose) { System.out.println(response); }
-			return null;
-		} 
+		return response;
+	}
+	
+	private DataStore newDataStore(DataStoreType type, String key, String response) {
 		DataStore ds = new DataStore();
 		ds.setKey(key);
-		ds.setData(response.substring(9));
+		ds.setData(decodeDataStore(response.substring(9)));
 		ds.setType(type);
 		return ds;
 	}
@@ -980,19 +1348,130 @@ public class GameJoltAPI
 	 * @param trophyId The ID of the Trophy to give.
 	 * @return true on successfully given trophy.
 	 */
-	public boolean achieveTrophy(int trophyId) {
-		String response = this.request("trophies/add-achieved", "trophy_id=" + trophyId);
-		if (parser.isSuccessful(response)) {
+	public boolean achieveTrophy(final int trophyId) {
+		final AchievedTrophies known = getAchievedTrophies();
+		if (known != null && known.contains(trophyId)) {
 			return true;
-		} else {
-			if (verbose) {
-				System.err.println("GameJoltAPI: Could not give Trophy to user.\n");
-				System.err.println(response);
-			}
+		}
+		try {
+			// the same trophy achieved from several threads at once is only sent once
+			return coalescer.execute("trophies/add-achieved#" + username + "#" + trophyId, new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					if (known != null && known.contains(trophyId)) {
+						return true; // a request that got there first has finished meanwhile
+					}
+					String response = request("trophies/add-achieved", "trophy_id=" + trophyId);
+					if (parser.isSuccessful(response)) {
+						if (known != null) {
+							known.add(trophyId);
+						}
+						return true;
+					}
+					if (verbose) {
+						System.err.println("GameJoltAPI: Could not give Trophy to user.\n");
+						System.err.println(response);
+					}
+					return false;
+				}
+			});
+		} catch (Exception e) {
+			if (verbose) { System.err.println("GameJoltAPI: Could not give Trophy to user: " + e.getMessage()); }
 			return false;
 		}
 	}
 	
+	/**
+	 * Remember a trophy that Game Jolt accepted for the verified user, if their achieved
+	 * trophies are tracked already.
+	 */
+	void trophyAchieved(int trophyId) {
+		trophyAchieved(username, trophyId);
+	}
+	
+	/**
+	 * Remember a trophy that Game Jolt accepted for the given user, if that user is the
+	 * verified one and their achieved trophies are tracked already.
+	 */
+	void trophyAchieved(String user, int trophyId) {
+		AchievedTrophies known = achieved;
+		if (verified && known != null && known.getUsername().equals(user) && user.equals(username)) {
+			known.add(trophyId);
+		}
+	}
+	
+	/**
+	 * Get the trophies the verified user is known to have. The first time for a user they
+	 * are fetched with getTrophies(Achieved.TRUE); if that fails they are fetched again the
+	 * next time.
+	 * @return The achieved trophies, or null if they are not tracked, no user is verified or
+	 * they could not be fetched.
+	 */
+	private AchievedTrophies getAchievedTrophies() {
+		if (!trophyTracking || !verified) {
+			return null;
+		}
+		AchievedTrophies known = achieved;
+		if (known != null && known.getUsername().equals(username)) {
+			return known;
+		}
+		synchronized (achievedLock) {
+			known = achieved;
+			if (known != null && known.getUsername().equals(username)) {
+				return known;
+			}
+			ArrayList<Trophy> trophies = getTrophies(Achieved.TRUE);
+			if (trophies == null) {
+				return null; // an empty set would claim the user has no trophies
+			}
+			known = new AchievedTrophies(username);
+			for (Trophy t : trophies) {
+				known.add((int) GameJoltResponseParser.parseLong(t.getId(), -1));
+			}
+			achieved = known;
+			return known;
+		}
+	}
+	
+	/**
+	 * Remember the achieved trophies of a trophy list, if the achieved trophies of the
+	 * verified user are tracked already.
+	 */
+	private void rememberAchieved(ArrayList<Trophy> trophies) {
+		AchievedTrophies known = achieved;
+		if (known == null || trophies == null || !known.getUsername().equals(username)) {
+			return;
+		}
+		for (Trophy t : trophies) {
+			String a = t.getProperty("achieved");
+			if (a != null && !a.equals("false")) {
+				known.add((int) GameJoltResponseParser.parseLong(t.getId(), -1));
+			}
+		}
+	}
+	
+	/**
+	 * Sets whether the API remembers which trophies the verified user has, so that
+	 * achieveTrophy returns true at once for a trophy the user has already achieved,
+	 * instead of asking Game Jolt again. The first achieveTrophy call for a user fetches
+	 * the user's achieved trophies. By default, this is set to true.
+	 * @param b whether achieved trophies should be remembered.
+	 */
+	public void setTrophyTracking(boolean b) {
+		this.trophyTracking = b;
+		if (!b) {
+			achieved = null;
+		}
+	}
+	
+	/**
+	 * Returns true if the API remembers which trophies the verified user has.
+	 * @return true if achieved trophies are remembered.
+	 */
+	public boolean isTrophyTracking() {
+		return trophyTracking;
+	}
+	
 	
 	/**
 	 * Get a list of all trophies.
@@ -1010,7 +1489,9 @@ public class GameJoltAPI
 	 * @return A list of trophy objects.
 	 */
 	public ArrayList<Trophy> getTrophies(Achieved a) {
-		String response = this.request("trophies/", "achieved=" + a.toString().toLowerCase());
+		HashMap<String, String> params = new HashMap<String, String>();
+		params.put("achieved", a.toString().toLowerCase());
+		GameJoltResponse response = requestResponse("trophies/", params, true, "trophies", parser.getTrophyProperties());
 		
                 try {
                     ArrayList<Trophy> trophies = parser.parseTrophyResponse(response);
@@ -1019,6 +1500,7 @@ public class GameJoltAPI
                             System.err.println("GameJoltAPI: Error while getting trophies"); 
                         }
                     }
+                    rememberAchieved(trophies);
                     return trophies;
                 } catch(Exception e) {
                     if (verbose) { 
@@ -1035,7 +1517,9 @@ public class GameJoltAPI
 	 * @return The Trophy Object with the ID passed, or null if there is an error.
 	 */
 	public Trophy getTrophy(int trophyId) {
-		String response = this.request("trophies/", "trophy_id=" + trophyId);
+		HashMap<String, String> params = new HashMap<String, String>();
+		params.put("trophy_id", String.valueOf(trophyId));
+		GameJoltResponse response = requestResponse("trophies/", params, true, "trophies", parser.getTrophyProperties());
                 try {
                     ArrayList<Trophy> trophies = parser.parseTrophyResponse(response);
                     if (trophies == null) {
@@ -1044,6 +1528,7 @@ public class GameJoltAPI
                         }
                         return null;
                     } else {
+                        rememberAchieved(trophies);
                         return trophies.get(0);
                     }
                 } catch(Exception e) {
@@ -1056,6 +1541,19 @@ public class GameJoltAPI
 	}
 	
 
+	/**
+	 * Get Game Jolt's clock, synced locally so that reading the server time does not make
+	 * a request. Use this instead of {@link #getServerTime()} for checks that run often,
+	 * such as when a daily challenge rolls over.
+	 * @return The server clock of this API.
+	 */
+	public synchronized ServerClock getServerClock() {
+		if (serverClock == null) {
+			serverClock = new ServerClock(gameAPI);
+		}
+		return serverClock;
+	}
+
 	public ServerTime getServerTime(){
 		String response = null;
 		try {
@@ -1089,23 +1587,7 @@ public class GameJoltAPI
 	 */
 	public String MD5(String input)
 	{
-		String res = "";
-		try {
-			MessageDigest algorithm = MessageDigest.getInstance("MD5");
-			algorithm.reset();
-			algorithm.update(input.getBytes());
-			byte[] md5 = algorithm.digest();
-			String tmp = "";
-			for (int i = 0; i < md5.length; i++) {
-				tmp = (Integer.toHexString(0xFF & md5[i]));
-				if (tmp.length() == 1) {
-					res += "0" + tmp;
-				} else {
-					res += tmp;
-				}
-			}
-		} catch (NoSuchAlgorithmException ex) {}
-		return res;
+		return RequestSigner.md5(input);
 	}
 
 	
@@ -1185,25 +1667,196 @@ public class GameJoltAPI
 	 * @param requireVerified This is only set to true when checking if the user is verified.
 	 * @return
 	 */
-	private String request(String method, HashMap<String, String> params, boolean requireVerified)
+	String request(String method, HashMap<String, String> params, boolean requireVerified)
 	{
 		try {
-			if (requireVerified){
-				if (!verified){
-					return "REQUIRES_AUTHENTICATION";
-				}
-				params.put("user_token", this.usertoken);
-				params.put("username", this.username);
+			if (requireVerified && !addCredentials(params)){
+				return "REQUIRES_AUTHENTICATION";
 			}
-			String urlString = this.getRequestURL(method, params);
-			String signature = this.MD5(urlString.concat(privateKey));
-			
-			urlString = urlString.concat("&signature=").concat(signature);
+			String prefix = this.getRequestURLPrefix(method);
+			String query = this.getRequestQuery(params);
+			String urlString = prefix.concat(query).concat("&signature=").concat(signer.sign(prefix, query));
 			if (verbose) { System.out.println(urlString); }
-			return this.openURLAndGetResponse(urlString);
+			if (coalescing && isSharedReadMethod(method)) {
+				return this.openURLAndGetResponseCoalesced(getCoalescingKey(method, params), urlString);
+			}
+			String response = this.openURLAndGetResponse(urlString);
+			invalidateCacheAfter(method);
+			return response;
 		} catch (UnsupportedEncodingException e) { e.printStackTrace(); }
 		return null;
 	}
+	/**
+	 * Make a request to the GameJolt API and parse the response as it is read from the
+	 * connection, keeping only one list and the given properties of its objects.
+	 * Identical read requests that are in flight share the parsed response.
+	 * @param method The GameJolt API method, such as "scores/".
+	 * @param params A map of the parameters you want to include.
+	 * @param requireVerified Whether the user's credentials have to be added.
+	 * @param arrayName The list to keep, such as "scores".
+	 * @param properties The properties to keep of the objects in the list.
+	 * @return The parsed response, unsuccessful if the request failed.
+	 */
+	GameJoltResponse requestResponse(final String method, HashMap<String, String> params, boolean requireVerified,
+			final String arrayName, final String[] properties)
+	{
+		try {
+			if (requireVerified && !addCredentials(params)){
+				return GameJoltResponse.failed();
+			}
+			final String urlString = getSignedRequestURL(method, params);
+			final GameJoltResponseParser parser = this.parser;
+			final Callable<GameJoltResponse> call = new Callable<GameJoltResponse>() {
+				@Override
+				public GameJoltResponse call() throws IOException {
+					return parser.parse(transport.get(urlString), arrayName, properties);
+				}
+			};
+			if (!isReadMethod(method)) {
+				return call.call();
+			}
+			// a different key from the String responses, as the result type differs
+			final String key = getCoalescingKey(method, params) + "#" + arrayName + "#" + format;
+			return cache.get(normalizeMethod(method), params.get("username"), key, new Callable<GameJoltResponse>() {
+				@Override
+				public GameJoltResponse call() throws Exception {
+					return (coalescing && isSharedReadMethod(method)) ? coalescer.execute(key, call) : call.call();
+				}
+			});
+		} catch (Exception e) {
+			if (this.verbose) { System.err.println("GameJoltAPI: " + e.getMessage()); }
+			return GameJoltResponse.failed();
+		}
+	}
+	/**
+	 * Get the full, signed url of a request.
+	 * @param method The GameJolt API method, such as "scores/".
+	 * @param params A map of the parameters you want to include.
+	 * @return The url to request.
+	 */
+	private String getSignedRequestURL(String method, HashMap<String, String> params) throws UnsupportedEncodingException
+	{
+		String prefix = this.getRequestURLPrefix(method);
+		String query = this.getRequestQuery(params);
+		String urlString = prefix.concat(query).concat("&signature=").concat(signer.sign(prefix, query));
+		if (verbose) { System.out.println(urlString); }
+		return urlString;
+	}
+	/**
+	 * Performs the HTTP Request, sharing it with any identical request that is in flight.
+	 * @param key The canonical form of the request.
+	 * @param urlString The URL to HTTP Request.
+	 * @return The HTTP Response.
+	 */
+	private String openURLAndGetResponseCoalesced(String key, final String urlString)
+	{
+		try {
+			return coalescer.execute(key, new Callable<String>() {
+				@Override
+				public String call() {
+					return openURLAndGetResponse(urlString);
+				}
+			});
+		} catch (Exception e) {
+			if (this.verbose) { System.err.println("GameJoltAPI: " + e.getMessage()); }
+			return "REQUEST_FAILED";
+		}
+	}
+	/**
+	 * Check whether an API method only reads data, so identical concurrent requests
+	 * for it can share one HTTP request.
+	 * @param method The GameJolt API method, such as "scores/".
+	 * @return true if the method does not change anything on Game Jolt.
+	 */
+	static boolean isReadMethod(String method) {
+		return READ_METHODS.contains(normalizeMethod(method));
+	}
+	/**
+	 * Check whether identical concurrent requests for an API method can share one HTTP
+	 * request. That is every read but the ones about the user's login and play session.
+	 * @param method The GameJolt API method, such as "scores/".
+	 * @return true if a caller may get the response of a request that was already in flight.
+	 */
+	static boolean isSharedReadMethod(String method) {
+		String m = normalizeMethod(method);
+		return READ_METHODS.contains(m) && !UNSHARED_READ_METHODS.contains(m);
+	}
+	/**
+	 * Check whether the responses of an API method may be cached with setCacheTime.
+	 * @param method The GameJolt API method, such as "trophies/".
+	 * @return true if the method is one of the cacheable reads.
+	 */
+	static boolean isCacheableMethod(String method) {
+		return CACHEABLE_METHODS.contains(normalizeMethod(method));
+	}
+	/**
+	 * Strips the slashes around a method name, so "trophies/" and "trophies" are the same.
+	 */
+	static String normalizeMethod(String method) {
+		int start = 0;
+		int end = method.length();
+		while (start < end && method.charAt(start) == '/') { start++; }
+		while (end > start && method.charAt(end - 1) == '/') { end--; }
+		return method.substring(start, end);
+	}
+	/**
+	 * Drop the cached responses that a request may have changed, e.g. the trophies after
+	 * a trophy was achieved.
+	 * @param method The GameJolt API method that was called.
+	 */
+	void invalidateCacheAfter(String method) {
+		String m = normalizeMethod(method);
+		if (isReadMethod(m)) {
+			return;
+		}
+		if (m.startsWith("trophies/")) {
+			cache.invalidate("trophies", username); // only the user's achieved flags changed
+			if (m.equals("trophies/remove-achieved")) {
+				achieved = null; // fetched again when it is needed
+			}
+		} else if (m.startsWith("scores/")) {
+			cache.invalidate("scores");
+		} else if (m.startsWith("data-store/")) {
+			cache.invalidate("data-store/get-keys");
+		}
+	}
+	/**
+	 * Get the canonical form of a request: the method plus the parameters sorted by name.
+	 */
+	private String getCoalescingKey(String method, HashMap<String, String> params) {
+		return this.version + "/" + normalizeMethod(method) + new TreeMap<String, String>(params);
+	}
+	/**
+	 * Adds the username and user token of the verified user to the parameters of a request.
+	 * @param params The parameters of the request.
+	 * @return true if the credentials were added, false if the user is not verified.
+	 */
+	boolean addCredentials(HashMap<String, String> params)
+	{
+		if (!verified) {
+			return false;
+		}
+		params.put("user_token", this.usertoken);
+		params.put("username", this.username);
+		return true;
+	}
+	/**
+	 * Get the signed path of a request relative to the API version root, as used for
+	 * the sub-requests of a {@link BatchRequest}.
+	 * @param method The GameJolt API method, such as "scores/".
+	 * @param params A map of the parameters you want to include.
+	 * @param requireVerified Whether the user's credentials have to be added.
+	 * @return The signed path starting with "/", or null if the user must be verified and is not.
+	 */
+	String getSignedRequestPath(String method, HashMap<String, String> params, boolean requireVerified) throws UnsupportedEncodingException
+	{
+		if (requireVerified && !addCredentials(params)){
+			return null;
+		}
+		String prefix = "/" + method + "?game_id=" + this.gameId;
+		String query = this.getRequestQuery(params);
+		return prefix.concat(query).concat("&signature=").concat(signer.sign(prefix, query));
+	}
 	/**
 	 * Make a request to the GameJoltAPI using the RequestMethod POST
 	 * @param method The GameJolt API method, such as "add-trophy", without the "game-api/" part.
@@ -1213,23 +1866,20 @@ public class GameJoltAPI
 	 * @param requireVerifiedThis is only set to true when checking if the user is verified.
 	 * @return
 	 */
-	private String requestAsPost(String method, HashMap<String, String> urlParams,HashMap<String, String> postParams, boolean requireVerified)
+	String requestAsPost(String method, HashMap<String, String> urlParams,HashMap<String, String> postParams, boolean requireVerified)
 	{
 		try {
-			if (requireVerified){
-				if (!verified){
-					return "REQUIRES_AUTHENTICATION";
-				}
-				urlParams.put("user_token", this.usertoken);
-				urlParams.put("username", this.username);
+			if (requireVerified && !addCredentials(urlParams)){
+				return "REQUIRES_AUTHENTICATION";
 			}
-			String urlString = this.getRequestURL(method, urlParams);
-			String signature = this.MD5(urlString.concat(privateKey));
-			
-			urlString = urlString.concat("&signature=").concat(signature);
+			String prefix = this.getRequestURLPrefix(method);
+			String query = this.getRequestQuery(urlParams);
+			String urlString = prefix.concat(query).concat("&signature=").concat(signer.sign(prefix, query));
 			if (verbose) { System.out.println(urlString); }
-			return this.openURLAndGetResponseUsingPost(urlString,postParams);
-		
+			String response = this.openURLAndGetResponseUsingPost(urlString,postParams);
+			invalidateCacheAfter(method);
+			return response;
+
 		} catch (UnsupportedEncodingException e) { e.printStackTrace(); }
 		return null;
 	}
@@ -1240,20 +1890,9 @@ public class GameJoltAPI
 	 */
 	public String openURLAndGetResponse(String urlString)
 	{
-		try {
-			URL url = new URL(urlString);
-			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-			connection.connect();
-			InputStream stream = connection.getInputStream();
-			BufferedInputStream buff = new BufferedInputStream(stream);
-			int character = -1;
-			StringBuilder response = new StringBuilder();
-			while ((character = buff.read()) != -1) {
-				response.append((char)character);
-			}
-			return response.toString();
+		try (InputStream stream = transport.get(urlString)) {
+			return readResponse(stream);
 		} catch (IOException e) {
-			//e.printStackTrace();
 			if (this.verbose) { System.err.println("GameJoltAPI: " + e.getMessage()); }
 			return "REQUEST_FAILED";
 		}
@@ -1265,34 +1904,31 @@ public class GameJoltAPI
 	 */
 	public String openURLAndGetResponseUsingPost(String urlString,HashMap<String,String> postParams)
 	{
-		try {
-			URL url = new URL(urlString);
-			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("POST");
-			connection.setDoOutput(true);
-			OutputStream os = connection.getOutputStream();
-			BufferedWriter writer = new BufferedWriter(
-			        new OutputStreamWriter(os, "UTF-8"));
-			writer.write(getQuery(postParams));
-			writer.flush();
-			writer.close();
-			os.close();
-			connection.connect();
-			InputStream stream = connection.getInputStream();
-			BufferedInputStream buff = new BufferedInputStream(stream);
-			int character = -1;
-			StringBuilder response = new StringBuilder();
-			while ((character = buff.read()) != -1) {
-				response.append((char) character);
-			}
-			System.out.println(response);
-			return response.toString();
+		try (InputStream stream = transport.post(urlString, getQuery(postParams))) {
+			String response = readResponse(stream);
+			if (this.verbose) { System.out.println(response); }
+			return response;
 		} catch (IOException e) {
-			e.printStackTrace();
 			if (this.verbose) { System.err.println("GameJoltAPI: " + e.getMessage()); }
 			return "REQUEST_FAILED";
 		}
 	}
+	/**
+	 * Reads a whole response body into a String.
+	 * @param stream The response body.
+	 * @return The response as a String.
+	 * @throws IOException if the body could not be read.
+	 */
+	private String readResponse(InputStream stream) throws IOException
+	{
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			response.write(buffer, 0, read);
+		}
+		return response.toString("UTF-8");
+	}
 	/**
 	 * converts a HashMap into the html Parameter-format<br>key1=value1&key2=value2&...&keyN=valueN
 	 * @param params the HashMap that should be converted
@@ -1320,14 +1956,22 @@ public class GameJoltAPI
 	}
 	
 	/**
-	 * Get the full request url from the parameters given.
-	 * @param method The GameJolt API method, such as "game-api/add-trophy".
+	 * Get the start of the request url, which is the same for every request to a method.
+	 * The {@link RequestSigner} keeps the digest state of it.
+	 * @param method The GameJolt API method, such as "scores/".
+	 * @return The url up to and including the game_id.
+	 */
+	private String getRequestURLPrefix(String method) {
+		return baseURL + "v" + this.version + "/" + method + "?game_id=" + this.gameId;
+	}
+	
+	/**
+	 * Get the parameters of a request as they follow the game_id in the url.
 	 * @param params A map of the parameters you want to include. 
-	 * @return The full request url.
+	 * @return The parameters, each starting with "&".
 	 */
-	private String getRequestURL(String method, HashMap<String, String> params) throws UnsupportedEncodingException {
-		String urlString = protocol + api_root + "v" + this.version + "/" + method + "?game_id=" + this.gameId;
-		//String urlString = protocol + api_root + method + "?game_id=" + this.gameId;
+	private String getRequestQuery(HashMap<String, String> params) throws UnsupportedEncodingException {
+		String urlString = "";
 		if (!params.containsKey("format"))
 			params.put("format", format.toString());
 		Set<String> keyset = params.keySet();
@@ -1352,10 +1996,175 @@ public class GameJoltAPI
         /**
          * Set the format Game Jolt's responses will be.
          * @param format The format to make the responses.
+         * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
          */
         public void setFormat(Format format) {
+            checkNotClientHandle("The format");
             this.format = format;
             this.parser = format.getParser();
         }
 
+	/**
+	 * Sets whether identical read requests (highscores, trophies, data store values, ...)
+	 * that are made at the same time from several threads should share one HTTP request.
+	 * Requests that change something, such as adding a highscore, are never shared, and
+	 * neither are verifyUser() and sessionCheck(), which answer for the user's login and play
+	 * session as they are when the call is made.
+	 * By default, this is set to true.
+	 * @param b whether identical concurrent read requests should be shared.
+	 */
+	public void setRequestCoalescing(boolean b) {
+		this.coalescing = b;
+	}
+
+	/**
+	 * Returns true if identical concurrent read requests share one HTTP request.
+	 * @return true if identical concurrent read requests share one HTTP request.
+	 */
+	public boolean isRequestCoalescing() {
+		return coalescing;
+	}
+
+	/**
+	 * Sets whether data store values are compressed. Save games and level data usually
+	 * shrink to a fifth or less, which makes setting and getting them that much faster.
+	 * Values are deflated and Base64 encoded when they are set; values shorter than 256
+	 * characters, or that would not get shorter, are stored as they are. Compressed values
+	 * are recognized and inflated when they are read, even with compression off.
+	 * By default, this is set to false.
+	 * <p>
+	 * Other programs reading the data store see the compressed text.
+	 * While compression is on,
+	 * {@link #updateDataStore(DataStoreType, String, DataStoreOperation, String)} appends to
+	 * or prepends to the original text of a compressed value.
+	 * @param b whether to compress data store values.
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
+	 */
+	public void setDataStoreCompression(boolean b) {
+		setDataStoreCompression(b, DataStoreCodec.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Sets whether data store values are compressed.
+	 * @see #setDataStoreCompression(boolean)
+	 * @param b whether to compress data store values.
+	 * @param threshold The length in characters below which values are stored as they are.
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
+	 */
+	public void setDataStoreCompression(boolean b, int threshold) {
+		checkNotClientHandle("Data store compression");
+		this.dataStoreCodec = b ? new DataStoreCodec(threshold) : null;
+	}
+
+	/**
+	 * Returns true if data store values are compressed.
+	 * @return true if data store values are compressed.
+	 */
+	public boolean isDataStoreCompression() {
+		return dataStoreCodec != null;
+	}
+
+	/**
+	 * @return The data to send, compressed if compression is on.
+	 */
+	String encodeDataStore(String data) {
+		DataStoreCodec codec = dataStoreCodec;
+		return (codec != null) ? codec.encode(data) : data;
+	}
+
+	/**
+	 * @return The data that was set, inflated if it was compressed, whether compression is
+	 * on or not.
+	 */
+	String decodeDataStore(String stored) {
+		return DataStoreCodec.decode(stored);
+	}
+
+	/**
+	 * Cache the responses of a read method for the given time, so that menus which ask
+	 * for the same thing over and over do not wait for Game Jolt every time. Once a cached
+	 * response is older than this it is still returned, and fetched again in the background.
+	 * Nothing is cached by default. Achieving a trophy, adding a highscore or changing the
+	 * data store drops the cached responses it affects.
+	 * <p>
+	 * The methods that can be cached are "trophies" (getTrophies and getTrophy),
+	 * "scores/tables" (getHighscoreTables), "scores" (getHighscores), "users" (getUser)
+	 * and "data-store/get-keys" (getDataStoreKeys).
+	 * @param method The Game Jolt API method, such as "trophies".
+	 * @param time How long a response is fresh, or 0 to stop caching the method.
+	 * @param unit The unit of the time.
+	 * @throws IllegalArgumentException if the method is not one of these.
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
+	 */
+	public void setCacheTime(String method, long time, TimeUnit unit) {
+		checkNotClientHandle("The cache");
+		if (!isCacheableMethod(method)) {
+			throw new IllegalArgumentException(method + " can not be cached");
+		}
+		cache.setTimeToLive(normalizeMethod(method), unit.toNanos(time));
+	}
+
+	/**
+	 * Set how many responses are cached at most. When the cache is full the response that
+	 * was used least recently is dropped. By default, this is 256.
+	 * @param entries The maximum number of cached responses.
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
+	 */
+	public void setCacheSize(int entries) {
+		checkNotClientHandle("The cache");
+		if (entries < 1) {
+			throw new IllegalArgumentException("entries must be at least 1");
+		}
+		cache.setMaxEntries(entries);
+	}
+
+	/**
+	 * Drop every cached response, so the next requests go to Game Jolt.
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
+	 */
+	public void invalidateCache() {
+		checkNotClientHandle("The cache");
+		cache.invalidate();
+	}
+
+	/**
+	 * Drop the cached responses of one method, so its next requests go to Game Jolt.
+	 * @param method The Game Jolt API method, such as "trophies".
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
+	 */
+	public void invalidateCache(String method) {
+		checkNotClientHandle("The cache");
+		cache.invalidate(normalizeMethod(method));
+	}
+
+	/**
+	 * Get the parser for the responses in the current format.
+	 * @return The parser in use.
+	 */
+	GameJoltResponseParser getParser() {
+		return parser;
+	}
+
+	/**
+	 * Set the transport used to perform the HTTP requests.
+	 * By default a {@link GameJoltHttpTransport} with keep-alive connections is used.
+	 * @param transport The transport to use for all following requests.
+	 * @throws IllegalStateException if this object was created by a {@link GameJoltClient}.
+	 */
+	public void setTransport(GameJoltTransport transport) {
+		checkNotClientHandle("The transport");
+		if (transport == null) {
+			throw new IllegalArgumentException("transport must not be null");
+		}
+		this.transport = transport;
+	}
+
+	/**
+	 * Get the transport used to perform the HTTP requests.
+	 * @return The transport in use.
+	 */
+	public GameJoltTransport getTransport() {
+		return transport;
+	}
+
 }
@@ -0,0 +1,86 @@
+package org.gamejolt;
+
+import java.util.Arrays;
+
+/**
+ * Base64 with the standard alphabet and padding, for keeping binary data in the data store,
+ * which only holds text. Java 7 has no public Base64 class of its own.
+ */
+final class GameJoltBase64
+{
+	private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+	private static final int[] VALUES = new int[128];
+
+	static {
+		Arrays.fill(VALUES, -1);
+		for (int i = 0; i < ALPHABET.length; i++) {
+			VALUES[ALPHABET[i]] = i;
+		}
+	}
+
+	private GameJoltBase64() {
+	}
+
+	/**
+	 * @return The bytes as Base64, with padding.
+	 */
+	static String encode(byte[] data, int offset, int length) {
+		char[] out = new char[(length + 2) / 3 * 4];
+		int o = 0;
+		int end = offset + length;
+		int i = offset;
+		for (; i + 2 < end; i += 3) {
+			int bits = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff);
+			out[o++] = ALPHABET[bits >>> 18];
+			out[o++] = ALPHABET[(bits >>> 12) & 63];
+			out[o++] = ALPHABET[(bits >>> 6) & 63];
+			out[o++] = ALPHABET[bits & 63];
+		}
+		if (i < end) {
+			int bits = (data[i] & 0xff) << 16 | ((i + 1 < end) ? (data[i + 1] & 0xff) << 8 : 0);
+			out[o++] = ALPHABET[bits >>> 18];
+			out[o++] = ALPHABET[(bits >>> 12) & 63];
+			out[o++] = (i + 1 < end) ? ALPHABET[(bits >>> 6) & 63] : '=';
+			out[o++] = '=';
+		}
+		return new String(out);
+	}
+
+	/**
+	 * Decode Base64, ignoring whitespace.
+	 * @return The bytes.
+	 * @throws IllegalArgumentException if the text is not Base64.
+	 */
+	static byte[] decode(CharSequence text) {
+		byte[] out = new byte[text.length() / 4 * 3 + 3];
+		int o = 0;
+		int bits = 0;
+		int count = 0;
+		int padding = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+				continue;
+			}
+			int value;
+			if (c == '=') {
+				padding++;
+				value = 0;
+			} else if (padding > 0 || c >= 128 || (value = VALUES[c]) < 0) {
+				throw new IllegalArgumentException("Not Base64: '" + c + "'");
+			}
+			bits = bits << 6 | value;
+			if (++count == 4) {
+				out[o++] = (byte) (bits >>> 16);
+				out[o++] = (byte) (bits >>> 8);
+				out[o++] = (byte) bits;
+				bits = 0;
+				count = 0;
+			}
+		}
+		if (count != 0 || padding > 2) {
+			throw new IllegalArgumentException("Base64 length is not a multiple of 4");
+		}
+		return Arrays.copyOf(out, o - padding);
+	}
+}
@@ -0,0 +1,417 @@
+package org.gamejolt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.gamejolt.DataStore.DataStoreType;
+
+/**
+ * <b>GameJoltBlobStore</b><br/>
+ * Keeps large binary data, such as save files, in the data store. A data store item has
+ * to fit into one request, so the data is split into chunks that are stored under keys of
+ * their own and sent several at a time.
+ * <pre>
+ * GameJoltBlobStore blobs = new GameJoltBlobStore(api);
+ * blobs.put(DataStoreType.USER, "save", new FileInputStream(saveFile));
+ * try (InputStream in = blobs.get(DataStoreType.USER, "save")) { ... }
+ * </pre>
+ * The key itself holds a manifest with the size, the number of chunks and the SHA-256
+ * hash of the data. The chunks are Base64 encoded and stored as "key.chunk.id.n", where id
+ * is new for every upload: a new version is written next to the old one and only replaces
+ * it when the manifest is written, so a failed upload never leaves a mix of both. The old
+ * chunks are removed afterwards.
+ * <p>
+ * Reading fetches the next chunks while the caller reads the current one, and checks the
+ * hash at the end of the data; an {@link IOException} is thrown if it does not match.
+ */
+public class GameJoltBlobStore
+{
+	private static final String MAGIC = "GJBLOB1";
+
+	private final GameJoltAPI api;
+	private volatile int chunkSize = 65536;
+	private volatile int maxInFlight = 4;
+
+	/** The parsed manifest of a blob. */
+	private static class Manifest
+	{
+		long size;
+		int chunks;
+		String id;
+		byte[] hash;
+
+		String chunkKey(String key, int index) {
+			return key + ".chunk." + id + "." + index;
+		}
+	}
+
+	/**
+	 * @param api The GameJoltAPI object to read and write the data store with.
+	 */
+	public GameJoltBlobStore(GameJoltAPI api) {
+		this.api = api;
+	}
+
+	/**
+	 * Set how many bytes go into one chunk, before Base64 makes them a third longer.
+	 * By default, this is 64 KiB.
+	 * @param bytes The size of a chunk.
+	 */
+	public void setChunkSize(int bytes) {
+		if (bytes < 1) {
+			throw new IllegalArgumentException("bytes must be at least 1");
+		}
+		this.chunkSize = bytes;
+	}
+
+	/**
+	 * Set how many chunks are sent or fetched at the same time. By default, this is 4.
+	 * @param requests The number of requests.
+	 */
+	public void setMaxInFlight(int requests) {
+		if (requests < 1) {
+			throw new IllegalArgumentException("requests must be at least 1");
+		}
+		this.maxInFlight = requests;
+	}
+
+	/**
+	 * Store data, replacing what was stored under the key.
+	 * @param type The type of the Data Store. Should be either DataTypeStore.USER or DataTypeStore.GAME.
+	 * @param key The key to store the data under.
+	 * @param data The data.
+	 * @return true if all of the data was stored.
+	 */
+	public boolean put(DataStoreType type, String key, byte[] data) {
+		try {
+			return put(type, key, new ByteArrayInputStream(data));
+		} catch (IOException e) {
+			return false; // not thrown by a ByteArrayInputStream
+		}
+	}
+
+	/**
+	 * Store data, replacing what was stored under the key. The data is read a chunk at a
+	 * time, so it does not have to fit into memory.
+	 * @param type The type of the Data Store. Should be either DataTypeStore.USER or DataTypeStore.GAME.
+	 * @param key The key to store the data under.
+	 * @param in The data; it is not closed.
+	 * @return true if all of the data was stored.
+	 * @throws IOException if the data could not be read.
+	 */
+	public boolean put(final DataStoreType type, final String key, InputStream in) throws IOException {
+		Manifest old = readManifest(type, key);
+		final Manifest manifest = new Manifest();
+		manifest.id = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 1);
+		MessageDigest digest = sha256();
+		ExecutorService executor = GameJoltExecutors.shared();
+		ArrayDeque<Future<Boolean>> sending = new ArrayDeque<>();
+		int limit = maxInFlight;
+		byte[] buffer = new byte[chunkSize];
+		boolean successful = true;
+		try {
+			int n;
+			while (successful && (n = readFully(in, buffer)) > 0) {
+				digest.update(buffer, 0, n);
+				final String chunk = GameJoltBase64.encode(buffer, 0, n);
+				final String chunkKey = manifest.chunkKey(key, manifest.chunks);
+				manifest.size += n;
+				manifest.chunks++;
+				if (sending.size() == limit) {
+					successful = succeeded(sending.poll());
+				}
+				sending.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						return api.setDataStore(type, chunkKey, chunk) != null;
+					}
+				}));
+			}
+		} catch (IOException e) {
+			while (!sending.isEmpty()) {
+				succeeded(sending.poll());
+			}
+			removeChunks(type, key, manifest);
+			throw e;
+		}
+		while (!sending.isEmpty()) {
+			successful &= succeeded(sending.poll());
+		}
+		manifest.hash = digest.digest();
+		if (successful) {
+			successful = api.setDataStore(type, key, formatManifest(manifest)) != null;
+		}
+		// remove the chunks that are not in use now
+		removeChunks(type, key, successful ? old : manifest);
+		return successful;
+	}
+
+	/**
+	 * Read stored data. The chunks are fetched in the background as the stream is read.
+	 * @param type The type of the Data Store. Should be either DataTypeStore.USER or DataTypeStore.GAME.
+	 * @param key The key the data was stored under.
+	 * @return A stream of the data, or null if nothing was stored under the key with
+	 * {@link #put(DataStoreType, String, InputStream)} or the key could not be read.
+	 */
+	public InputStream get(DataStoreType type, String key) {
+		Manifest manifest = readManifest(type, key);
+		if (manifest == null) {
+			return null;
+		}
+		return new ChunkInputStream(type, key, manifest);
+	}
+
+	/**
+	 * Read stored data into memory.
+	 * @param type The type of the Data Store. Should be either DataTypeStore.USER or DataTypeStore.GAME.
+	 * @param key The key the data was stored under.
+	 * @return The data, or null if there is no data under the key.
+	 * @throws IOException if a chunk could not be read or the data does not match its hash.
+	 */
+	public byte[] getBytes(DataStoreType type, String key) throws IOException {
+		try (InputStream in = get(type, key)) {
+			if (in == null) {
+				return null;
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Remove stored data and its chunks.
+	 * @param type The type of the Data Store. Should be either DataTypeStore.USER or DataTypeStore.GAME.
+	 * @param key The key the data was stored under.
+	 * @return true if the data was removed, false if there was none or the request failed.
+	 */
+	public boolean remove(DataStoreType type, String key) {
+		Manifest manifest = readManifest(type, key);
+		if (manifest == null || !api.removeDataStore(type, key)) {
+			return false;
+		}
+		removeChunks(type, key, manifest);
+		return true;
+	}
+
+	private void removeChunks(final DataStoreType type, final String key, final Manifest manifest) {
+		if (manifest == null) {
+			return;
+		}
+		ExecutorService executor = GameJoltExecutors.shared();
+		ArrayList<Future<Boolean>> removing = new ArrayList<>();
+		for (int i = 0; i < manifest.chunks; i++) {
+			final String chunkKey = manifest.chunkKey(key, i);
+			removing.add(executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return api.removeDataStore(type, chunkKey);
+				}
+			}));
+		}
+		for (Future<Boolean> f : removing) {
+			succeeded(f); // a chunk that was left behind is only wasted space
+		}
+	}
+
+	/**
+	 * Streams the chunks of a blob, keeping the next few of them in flight.
+	 */
+	private class ChunkInputStream extends InputStream
+	{
+		private final DataStoreType type;
+		private final String key;
+		private final Manifest manifest;
+		private final MessageDigest digest = sha256();
+		private final ArrayDeque<Future<byte[]>> fetching = new ArrayDeque<>();
+		private int requested = 0;
+		private byte[] chunk = new byte[0];
+		private int position = 0;
+		private long read = 0;
+		private boolean closed = false;
+
+		ChunkInputStream(DataStoreType type, String key, Manifest manifest) {
+			this.type = type;
+			this.key = key;
+			this.manifest = manifest;
+			fetchAhead();
+		}
+
+		private void fetchAhead() {
+			ExecutorService executor = GameJoltExecutors.shared();
+			int limit = maxInFlight;
+			while (fetching.size() < limit && requested < manifest.chunks) {
+				final String chunkKey = manifest.chunkKey(key, requested++);
+				fetching.add(executor.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws IOException {
+						DataStore ds = api.getDataStore(type, chunkKey);
+						if (ds == null) {
+							throw new IOException("Could not read " + chunkKey);
+						}
+						return GameJoltBase64.decode(ds.getData());
+					}
+				}));
+			}
+		}
+
+		/** @return false at the end of the data. */
+		private boolean nextChunk() throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			while (position == chunk.length) {
+				Future<byte[]> next = fetching.poll();
+				if (next == null) {
+					if (read != manifest.size || !MessageDigest.isEqual(digest.digest(), manifest.hash)) {
+						throw new IOException("The data of " + key + " does not match its hash");
+					}
+					return false;
+				}
+				try {
+					chunk = next.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while reading " + key);
+				} catch (ExecutionException e) {
+					throw new IOException("Could not read " + key + ": " + e.getCause().getMessage(), e.getCause());
+				}
+				position = 0;
+				digest.update(chunk);
+				read += chunk.length;
+				fetchAhead();
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position == chunk.length && !nextChunk()) {
+				return -1;
+			}
+			return chunk[position++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (position == chunk.length && !nextChunk()) {
+				return -1;
+			}
+			int n = Math.min(len, chunk.length - position);
+			System.arraycopy(chunk, position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return chunk.length - position;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			for (Future<byte[]> f : fetching) {
+				f.cancel(true);
+			}
+			fetching.clear();
+		}
+	}
+
+	private Manifest readManifest(DataStoreType type, String key) {
+		DataStore ds = api.getDataStore(type, key);
+		if (ds == null || !ds.getData().startsWith(MAGIC + " ")) {
+			return null;
+		}
+		Manifest m = new Manifest();
+		try {
+			for (String field : ds.getData().trim().split(" ")) {
+				int eq = field.indexOf('=');
+				if (eq < 0) {
+					continue;
+				}
+				String name = field.substring(0, eq);
+				String value = field.substring(eq + 1);
+				switch (name) {
+					case "size": m.size = Long.parseLong(value); break;
+					case "chunks": m.chunks = Integer.parseInt(value); break;
+					case "id": m.id = value; break;
+					case "sha256": m.hash = fromHex(value); break;
+					default: break; // added by a later version
+				}
+			}
+		} catch (RuntimeException e) {
+			return null;
+		}
+		return (m.id != null && m.hash != null) ? m : null;
+	}
+
+	private static String formatManifest(Manifest m) {
+		return MAGIC + " size=" + m.size + " chunks=" + m.chunks + " id=" + m.id + " sha256=" + toHex(m.hash);
+	}
+
+	private static boolean succeeded(Future<Boolean> f) {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			return false;
+		}
+	}
+
+	private static int readFully(InputStream in, byte[] buffer) throws IOException {
+		int n = 0;
+		while (n < buffer.length) {
+			int r = in.read(buffer, n, buffer.length - n);
+			if (r == -1) {
+				break;
+			}
+			n += r;
+		}
+		return n;
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JVM has SHA-256
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+		}
+		return sb.toString();
+	}
+
+	private static byte[] fromHex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+}
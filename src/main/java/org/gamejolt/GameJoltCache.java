@@ -0,0 +1,212 @@
+package org.gamejolt;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A read-through cache for responses that rarely change, such as the trophy list or the
+ * highscore tables. Every method has its own time to live and is not cached unless one has
+ * been set. The least recently used responses are dropped once the cache is full.
+ * <p>
+ * When a response is older than its time to live it is still returned, and fetched again
+ * in the background (stale-while-revalidate). Once the cache is warm callers only wait for
+ * Game Jolt the first time they ask for something.
+ * <p>
+ * Each response belongs to the user it was asked for, or to no user, so that a change by
+ * one player only drops what they can see. A response that was being loaded while what it
+ * belongs to was invalidated is returned, but not stored.
+ */
+class GameJoltCache
+{
+	private final HashMap<String, Long> timesToLive = new HashMap<>();
+	private final LinkedHashMap<String, Cached> entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+			return size() > maxEntries;
+		}
+	};
+	private final HashSet<Load> loads = new HashSet<>();
+	private int maxEntries = 256;
+
+	private static class Cached
+	{
+		final String method;
+		final String user;
+		GameJoltResponse response;
+		long expires;
+		boolean refreshing = false;
+
+		Cached(String method, String user, GameJoltResponse response, long expires) {
+			this.method = method;
+			this.user = user;
+			this.response = response;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * A response that is being fetched.
+	 */
+	private static class Load
+	{
+		final String method;
+		final String user;
+		boolean invalidated = false;
+
+		Load(String method, String user) {
+			this.method = method;
+			this.user = user;
+		}
+	}
+
+	/**
+	 * Set how long the responses of a method are fresh.
+	 * @param method The normalized method, e.g. "trophies".
+	 * @param nanos The time to live in nanoseconds, or 0 to stop caching the method.
+	 */
+	synchronized void setTimeToLive(String method, long nanos) {
+		if (nanos > 0) {
+			timesToLive.put(method, nanos);
+		} else {
+			timesToLive.remove(method);
+			invalidate(method);
+		}
+	}
+
+	synchronized void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+		Iterator<String> it = entries.keySet().iterator();
+		while (entries.size() > maxEntries && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Get a response from the cache, or load it.
+	 * @param method The normalized method, e.g. "trophies".
+	 * @param user The user the response is for, or null if it is the same for everybody.
+	 * @param key Identifies the request, e.g. the method and its parameters.
+	 * @param load Fetches the response from Game Jolt.
+	 * @return The cached or loaded response.
+	 * @throws Exception whatever the load threw.
+	 */
+	GameJoltResponse get(String method, String user, String key, Callable<GameJoltResponse> load) throws Exception {
+		Long ttl;
+		Cached entry;
+		Load loading = null;
+		GameJoltResponse stale = null;
+		synchronized (this) {
+			ttl = timesToLive.get(method);
+			entry = (ttl != null) ? entries.get(key) : null;
+			if (entry == null && ttl != null) {
+				loading = new Load(method, user);
+				loads.add(loading);
+			}
+			if (entry != null) {
+				if (System.nanoTime() - entry.expires < 0 || entry.refreshing) {
+					return entry.response;
+				}
+				entry.refreshing = true;
+				stale = entry.response;
+			}
+		}
+		if (ttl == null) {
+			return load.call(); // not cached
+		}
+		if (entry != null) {
+			refresh(entry, load, ttl);
+			return stale;
+		}
+		GameJoltResponse response = null;
+		try {
+			response = load.call();
+			return response;
+		} finally {
+			synchronized (this) {
+				loads.remove(loading);
+				if (response != null && response.isSuccessful() && !loading.invalidated) {
+					entries.put(key, new Cached(method, user, response, System.nanoTime() + ttl));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fetch a stale response again without making the caller wait. If that fails the stale
+	 * response is kept, and the next caller tries again.
+	 */
+	private void refresh(final Cached entry, final Callable<GameJoltResponse> load, final long ttl) {
+		final Load loading = new Load(entry.method, entry.user);
+		synchronized (this) {
+			loads.add(loading);
+		}
+		GameJoltExecutors.shared().execute(new Runnable() {
+			@Override
+			public void run() {
+				GameJoltResponse response = null;
+				try {
+					response = load.call();
+				} catch (Exception e) {
+					// keep serving the stale response
+				}
+				synchronized (GameJoltCache.this) {
+					loads.remove(loading);
+					if (response != null && response.isSuccessful() && !loading.invalidated) {
+						entry.response = response;
+						entry.expires = System.nanoTime() + ttl;
+					}
+					entry.refreshing = false;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Drop every cached response.
+	 */
+	synchronized void invalidate() {
+		invalidate(null, null);
+	}
+
+	/**
+	 * Drop the cached responses of one method.
+	 * @param method The normalized method, e.g. "trophies".
+	 */
+	synchronized void invalidate(String method) {
+		invalidate(method, null);
+	}
+
+	/**
+	 * Drop the cached responses of one method for one user.
+	 * @param method The normalized method, e.g. "trophies", or null for every method.
+	 * @param user The user, or null for every user and the responses that belong to none.
+	 */
+	synchronized void invalidate(String method, String user) {
+		Iterator<Cached> it = entries.values().iterator();
+		while (it.hasNext()) {
+			Cached entry = it.next();
+			if (matches(entry.method, entry.user, method, user)) {
+				it.remove();
+			}
+		}
+		for (Load load : loads) {
+			if (matches(load.method, load.user, method, user)) {
+				load.invalidated = true;
+			}
+		}
+	}
+
+	private static boolean matches(String method, String user, String invalidMethod, String invalidUser) {
+		return (invalidMethod == null || invalidMethod.equals(method))
+				&& (invalidUser == null || invalidUser.equals(user));
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+}
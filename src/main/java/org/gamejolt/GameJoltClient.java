@@ -0,0 +1,270 @@
+package org.gamejolt;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.gamejolt.GameJoltAPI.Format;
+
+/**
+ * <b>GameJoltClient</b><br/>
+ * The settings of one game, shared by the GameJoltAPI objects of many players, e.g. on a
+ * game server. A client is immutable and safe to use from any thread.
+ * <pre>
+ * GameJoltClient client = new GameJoltClient.Builder(gameId, privateKey)
+ *         .setFormat(Format.JSON)
+ *         .setCacheTime("trophies", 5, TimeUnit.MINUTES)
+ *         .build();
+ * GameJoltAPI player = client.verifyUser(username, userToken); // one per connected player
+ * </pre>
+ * The GameJoltAPI objects of a client share its parser, transport, response cache,
+ * in-flight requests, leaderboard mirrors and server clock, and only keep the user's
+ * credentials of their own, so a connected player costs a few hundred bytes. Each of them
+ * belongs to one player; the settings are made on the builder rather than on the objects,
+ * whose setters for them throw an IllegalStateException.
+ */
+public final class GameJoltClient
+{
+	// read by the GameJoltAPI objects of the client
+	final int gameId;
+	final String privateKey;
+	final RequestSigner signer;
+	final String baseURL;
+	final String version;
+	final Format format;
+	final GameJoltResponseParser parser;
+	final GameJoltTransport transport;
+	final boolean verbose;
+	final GameJoltCoalescer coalescer = new GameJoltCoalescer();
+	final GameJoltCache cache = new GameJoltCache();
+	final ConcurrentHashMap<Integer, LeaderboardMirror> mirrors = new ConcurrentHashMap<>();
+	final DataStoreCodec dataStoreCodec;
+	final String quickplayUsername;
+	final String quickplayUsertoken;
+	final GameJoltAPI gameAPI; // makes the requests that do not belong to a player
+	final ServerClock serverClock;
+
+	/**
+	 * Builds a GameJoltClient.
+	 */
+	public static class Builder
+	{
+		private final int gameId;
+		private final String privateKey;
+		private String baseURL = GameJoltAPI.DEFAULT_BASE_URL;
+		private String version = "1_1";
+		private Format format = Format.KEYPAIR;
+		private GameJoltTransport transport;
+		private boolean verbose = false;
+		private final LinkedHashMap<String, Long> cacheTimes = new LinkedHashMap<>();
+		private int cacheSize = 256;
+		private DataStoreCodec dataStoreCodec;
+
+		/**
+		 * @param gameId Your Game's Unique ID.
+		 * @param privateKey Your Game's Unique (Private) Key.
+		 */
+		public Builder(int gameId, String privateKey) {
+			this.gameId = gameId;
+			this.privateKey = privateKey;
+		}
+
+		/**
+		 * @see GameJoltAPI#setBaseURL(String)
+		 */
+		public Builder setBaseURL(String baseURL) {
+			this.baseURL = baseURL.endsWith("/") ? baseURL : baseURL + "/";
+			return this;
+		}
+
+		/**
+		 * @see GameJoltAPI#setVersion(String)
+		 */
+		public Builder setVersion(String version) {
+			this.version = version;
+			return this;
+		}
+
+		/**
+		 * @see GameJoltAPI#setFormat(Format)
+		 */
+		public Builder setFormat(Format format) {
+			this.format = format;
+			return this;
+		}
+
+		/**
+		 * @see GameJoltAPI#setTransport(GameJoltTransport)
+		 */
+		public Builder setTransport(GameJoltTransport transport) {
+			if (transport == null) {
+				throw new IllegalArgumentException("transport must not be null");
+			}
+			this.transport = transport;
+			return this;
+		}
+
+		/**
+		 * @see GameJoltAPI#setVerbose(boolean)
+		 */
+		public Builder setVerbose(boolean verbose) {
+			this.verbose = verbose;
+			return this;
+		}
+
+		/**
+		 * Cache the responses of a method for all players of the client.
+		 * @see GameJoltAPI#setCacheTime(String, long, TimeUnit)
+		 */
+		public Builder setCacheTime(String method, long time, TimeUnit unit) {
+			if (!GameJoltAPI.isCacheableMethod(method)) {
+				throw new IllegalArgumentException(method + " can not be cached");
+			}
+			cacheTimes.put(GameJoltAPI.normalizeMethod(method), unit.toNanos(time));
+			return this;
+		}
+
+		/**
+		 * @see GameJoltAPI#setCacheSize(int)
+		 */
+		public Builder setCacheSize(int entries) {
+			if (entries < 1) {
+				throw new IllegalArgumentException("entries must be at least 1");
+			}
+			this.cacheSize = entries;
+			return this;
+		}
+
+		/**
+		 * @see GameJoltAPI#setDataStoreCompression(boolean, int)
+		 */
+		public Builder setDataStoreCompression(boolean b, int threshold) {
+			this.dataStoreCodec = b ? new DataStoreCodec(threshold) : null;
+			return this;
+		}
+
+		/**
+		 * @see GameJoltAPI#setDataStoreCompression(boolean)
+		 */
+		public Builder setDataStoreCompression(boolean b) {
+			return setDataStoreCompression(b, DataStoreCodec.DEFAULT_THRESHOLD);
+		}
+
+		/**
+		 * @return A new client with the settings of this builder.
+		 */
+		public GameJoltClient build() {
+			return new GameJoltClient(this);
+		}
+	}
+
+	/**
+	 * Create a client with the default settings.
+	 * @param gameId Your Game's Unique ID.
+	 * @param privateKey Your Game's Unique (Private) Key.
+	 */
+	public GameJoltClient(int gameId, String privateKey) {
+		this(new Builder(gameId, privateKey));
+	}
+
+	private GameJoltClient(Builder builder) {
+		gameId = builder.gameId;
+		privateKey = builder.privateKey;
+		signer = new RequestSigner(privateKey);
+		baseURL = builder.baseURL;
+		version = builder.version;
+		format = builder.format;
+		parser = format.getParser();
+		transport = (builder.transport != null) ? builder.transport : new GameJoltHttpTransport();
+		verbose = builder.verbose;
+		for (Entry<String, Long> e : builder.cacheTimes.entrySet()) {
+			cache.setTimeToLive(e.getKey(), e.getValue());
+		}
+		cache.setMaxEntries(builder.cacheSize);
+		dataStoreCodec = builder.dataStoreCodec;
+		String[] quickplay = GameJoltAPI.readQuickplay();
+		quickplayUsername = (quickplay != null) ? quickplay[0] : null;
+		quickplayUsertoken = (quickplay != null) ? quickplay[1] : null;
+		gameAPI = new GameJoltAPI(this); // sees gameAPI and serverClock still unset
+		serverClock = gameAPI.getServerClock();
+	}
+
+	/**
+	 * Get a GameJoltAPI object of this game without a user. Call
+	 * {@link GameJoltAPI#verifyUser(String, String)} on it to use it for a player.
+	 * @return A new GameJoltAPI object.
+	 */
+	public GameJoltAPI createAPI() {
+		return new GameJoltAPI(this);
+	}
+
+	/**
+	 * Verify a player and get a GameJoltAPI object for them.
+	 * @param username The player's username.
+	 * @param userToken The player's user token.
+	 * @return A new GameJoltAPI object for the player, or null if the user could not be verified.
+	 */
+	public GameJoltAPI verifyUser(String username, String userToken) {
+		GameJoltAPI api = new GameJoltAPI(this);
+		return api.verifyUser(username, userToken) ? api : null;
+	}
+
+	/**
+	 * @return Your Game's Unique ID.
+	 */
+	public int getGameId() {
+		return gameId;
+	}
+
+	/**
+	 * @return The address the requests are sent to.
+	 */
+	public String getBaseURL() {
+		return baseURL;
+	}
+
+	/**
+	 * @return The version of the GameJolt API in use.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return The format of the responses.
+	 */
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return The transport used to perform the HTTP requests.
+	 */
+	public GameJoltTransport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * @return The server clock shared by all players.
+	 * @see GameJoltAPI#getServerClock()
+	 */
+	public ServerClock getServerClock() {
+		return serverClock;
+	}
+
+	/**
+	 * @return The mirror of a highscore table shared by all players.
+	 * @see GameJoltAPI#getLeaderboardMirror(int)
+	 */
+	public LeaderboardMirror getLeaderboardMirror(int id) {
+		return gameAPI.getLeaderboardMirror(id);
+	}
+
+	/**
+	 * Drop every cached response of all players.
+	 */
+	public void invalidateCache() {
+		cache.invalidate();
+	}
+}
@@ -0,0 +1,55 @@
+package org.gamejolt;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Lets concurrent callers asking for the same thing share one call (single-flight).
+ * The first caller for a key runs the call, everybody who asks for the same key while it is
+ * still running waits for it and gets the same result. Once the call finished, the next
+ * caller starts a new one, so results are never cached.
+ */
+class GameJoltCoalescer
+{
+	private final ConcurrentHashMap<String, FutureTask<?>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Run the call, or wait for the call with the same key that is already running.
+	 * @param key Identifies the call, e.g. the method and its parameters.
+	 * @param call The call to run if none with the same key is running.
+	 * @return The result of the call.
+	 * @throws Exception whatever the call threw.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T execute(String key, Callable<T> call) throws Exception {
+		FutureTask<T> task = new FutureTask<T>(call);
+		FutureTask<T> running = (FutureTask<T>) inFlight.putIfAbsent(key, task);
+		if (running == null) {
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(key, task);
+			}
+			running = task;
+		}
+		try {
+			return running.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the number of calls that are running at the moment.
+	 * @return The number of distinct keys in flight.
+	 */
+	int size() {
+		return inFlight.size();
+	}
+}
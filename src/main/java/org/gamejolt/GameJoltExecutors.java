@@ -0,0 +1,104 @@
+package org.gamejolt;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <b>GameJoltExecutors</b><br/>
+ * Executors to run blocking GameJoltAPI calls on, e.g. with {@link AsyncGameJoltAPI}.
+ * <p>
+ * A server that talks to Game Jolt on behalf of many players spends almost all of its time
+ * waiting for responses. On Java 21 and later {@link #newVirtualThreadExecutor()} runs every
+ * call on its own virtual thread, so thousands of requests can be waiting at once without a
+ * platform thread for each of them. The library itself is still built for Java 7, so the
+ * virtual thread executor is looked up at runtime.
+ * <p>
+ * Threads alone do not get more requests out at once: every request also needs one of the
+ * connections of the transport, and a {@link GameJoltHttpTransport} has
+ * {@link GameJoltHttpTransport#DEFAULT_MAX_CONNECTIONS} of them unless told otherwise. The
+ * other requests wait for a connection, and fail if none is free within the read timeout.
+ * Raise the limit along with the number of threads:
+ * <pre>
+ * api.setTransport(new GameJoltHttpTransport(10000, 30000, 256));
+ * </pre>
+ */
+public class GameJoltExecutors
+{
+	private static final Method newVirtualThreadPerTaskExecutor = findVirtualThreadFactory();
+
+	private GameJoltExecutors() {
+	}
+
+	private static Method findVirtualThreadFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Check whether the running JVM supports virtual threads.
+	 * @return true if {@link #newVirtualThreadExecutor()} will use virtual threads.
+	 */
+	public static boolean isVirtualThreadsAvailable() {
+		return newVirtualThreadPerTaskExecutor != null;
+	}
+
+	/**
+	 * Create an executor that starts a new virtual thread for every task.
+	 * If the JVM does not support virtual threads, this falls back to {@link #newCachedExecutor()}.
+	 * Remember to shut the executor down when you are done with it, and to give the transport
+	 * enough connections for the requests you expect to be in flight.
+	 * @see GameJoltHttpTransport#GameJoltHttpTransport(int, int, int)
+	 * @return The new executor.
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		if (newVirtualThreadPerTaskExecutor != null) {
+			try {
+				return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+			} catch (Exception e) {
+				// fall through to platform threads
+			}
+		}
+		return newCachedExecutor();
+	}
+
+	/**
+	 * The executor the library runs its own background requests on, such as the chunks of a
+	 * blob or a reload of a leaderboard mirror. It is created when it is first needed and
+	 * never shut down: its daemon threads end after a minute without work.
+	 * @return The shared executor.
+	 */
+	static ExecutorService shared() {
+		return Shared.EXECUTOR;
+	}
+
+	private static class Shared
+	{
+		static final ExecutorService EXECUTOR = newCachedExecutor();
+	}
+
+	/**
+	 * Create an executor that runs tasks on daemon platform threads, creating new threads as
+	 * needed and reusing idle ones.
+	 * @return The new executor.
+	 */
+	public static ExecutorService newCachedExecutor() {
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "GameJoltAPI-worker-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+}
@@ -0,0 +1,220 @@
+package org.gamejolt;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <b>GameJoltHttpTransport</b><br/>
+ * The default {@link GameJoltTransport}. It uses keep-alive HttpURLConnections and reads
+ * the rest of a response before handing the connection back, so the JVM can reuse the socket
+ * for the next request instead of opening a new one. A rest longer than
+ * {@link #MAX_DRAIN} bytes is cheaper to drop than to download, so the socket is closed instead.
+ * <p>
+ * At most {@link #getMaxConnections()} requests are in flight at once; further requests wait
+ * for a connection to be returned, and fail if none is returned within the read timeout. A
+ * server with many requests in flight at once, e.g. on virtual threads, needs a higher limit
+ * than the default. The number of idle sockets the JVM keeps around per host
+ * is controlled by the standard <code>http.maxConnections</code> system property.
+ */
+public class GameJoltHttpTransport implements GameJoltTransport
+{
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+	public static final int DEFAULT_MAX_CONNECTIONS = 8;
+	/** The most bytes read from an unfinished response to keep its connection alive. */
+	public static final int MAX_DRAIN = 64 * 1024;
+
+	private final int connectTimeout;
+	private final int readTimeout;
+	private final int maxConnections;
+	private final Semaphore connections;
+
+	/**
+	 * Create a transport with the default timeouts and connection limit.
+	 */
+	public GameJoltHttpTransport() {
+		this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_MAX_CONNECTIONS);
+	}
+
+	/**
+	 * Create a transport.
+	 * @param connectTimeout The connect timeout in milliseconds, 0 for no timeout.
+	 * @param readTimeout The read timeout in milliseconds, 0 for no timeout.
+	 * @param maxConnections The maximum number of requests in flight at once.
+	 */
+	public GameJoltHttpTransport(int connectTimeout, int readTimeout, int maxConnections) {
+		if (connectTimeout < 0 || readTimeout < 0) {
+			throw new IllegalArgumentException("Timeouts must not be negative");
+		}
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("maxConnections must be at least 1");
+		}
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.maxConnections = maxConnections;
+		this.connections = new Semaphore(maxConnections, true);
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	@Override
+	public InputStream get(String url) throws IOException {
+		return execute(url, null);
+	}
+
+	@Override
+	public InputStream post(String url, String body) throws IOException {
+		return execute(url, body);
+	}
+
+	private InputStream execute(String url, String body) throws IOException {
+		acquire();
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL(url).openConnection();
+			connection.setConnectTimeout(connectTimeout);
+			connection.setReadTimeout(readTimeout);
+			connection.setUseCaches(false);
+			connection.setRequestProperty("Connection", "keep-alive");
+			if (body != null) {
+				byte[] bytes = body.getBytes("UTF-8");
+				connection.setRequestMethod("POST");
+				connection.setDoOutput(true);
+				connection.setFixedLengthStreamingMode(bytes.length);
+				connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+				try (OutputStream os = connection.getOutputStream()) {
+					os.write(bytes);
+				}
+			}
+			int code = connection.getResponseCode();
+			if (code >= 400) {
+				// the error body has to be consumed as well, otherwise the socket is thrown away.
+				InputStream error = connection.getErrorStream();
+				if (error != null) {
+					try {
+						if (!skipRest(error)) {
+							connection.disconnect();
+						}
+					} finally {
+						error.close();
+					}
+				}
+				throw new IOException("Server returned HTTP response code: " + code + " for URL: " + url);
+			}
+			InputStream stream = new PooledStream(connection, connection.getInputStream());
+			connection = null; // the stream now owns the permit
+			return stream;
+		} finally {
+			if (connection != null) {
+				connections.release();
+			}
+		}
+	}
+
+	private void acquire() throws IOException {
+		try {
+			if (readTimeout > 0) {
+				if (!connections.tryAcquire(readTimeout, TimeUnit.MILLISECONDS)) {
+					throw new IOException("Timed out waiting for a free connection");
+				}
+			} else {
+				connections.acquire();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a free connection");
+		}
+	}
+
+	/**
+	 * Read and discard at most {@link #MAX_DRAIN} bytes of a stream.
+	 * @return true if the end of the stream was reached.
+	 */
+	private static boolean skipRest(InputStream in) throws IOException {
+		byte[] buffer = new byte[512];
+		int skipped = 0;
+		while (skipped < MAX_DRAIN) {
+			int n = in.read(buffer, 0, Math.min(buffer.length, MAX_DRAIN - skipped));
+			if (n == -1) {
+				return true;
+			}
+			skipped += n;
+		}
+		return in.read() == -1;
+	}
+
+	/**
+	 * Stop reading a response of this transport without reading its rest: the connection is
+	 * closed and its permit given back at once. Other streams are simply closed.
+	 * @param in A stream returned by {@link #get(String)} or {@link #post(String, String)}.
+	 */
+	static void abort(InputStream in) throws IOException {
+		if (in instanceof GameJoltHttpTransport.PooledStream) {
+			((GameJoltHttpTransport.PooledStream) in).abort();
+		} else {
+			in.close();
+		}
+	}
+
+	/**
+	 * Wraps a response body. Closing it reads what is left, up to {@link #MAX_DRAIN} bytes,
+	 * so the connection can be kept alive, and gives the permit back to the transport.
+	 */
+	private class PooledStream extends FilterInputStream
+	{
+		private final HttpURLConnection connection;
+		private boolean closed = false;
+
+		PooledStream(HttpURLConnection connection, InputStream in) {
+			super(in);
+			this.connection = connection;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			boolean reusable = false;
+			try {
+				reusable = skipRest(in);
+				in.close();
+			} finally {
+				if (!reusable) {
+					connection.disconnect();
+				}
+				connections.release();
+			}
+		}
+
+		void abort() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				connection.disconnect();
+			} finally {
+				connections.release();
+			}
+		}
+	}
+}
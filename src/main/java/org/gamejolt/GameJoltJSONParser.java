@@ -5,7 +5,9 @@
  */
 package org.gamejolt;
 
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Map;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -17,89 +19,70 @@ import org.json.simple.parser.JSONParser;
 public class GameJoltJSONParser extends GameJoltResponseParser{
 
     @Override
-    public PropertyContainer parsePropertiesFrom(String response, String[] properties) {
+    public GameJoltResponse parse(String response) {
         JSONObject resp = parseResponseString(response);
-        return parsePropertiesFrom(resp, properties);
-    }
-    
-    private PropertyContainer parsePropertiesFrom(JSONObject response, String[] properties) {
-        PropertyContainer container = new PropertyContainer();
-        for (String str : properties) {
-            container.addProperty(str, response.get(str).toString());
+        if (resp == null) {
+            return GameJoltResponse.failed();
         }
-        return container;
+        return toResponse(resp);
     }
 
     @Override
-    public ArrayList<PropertyContainer> parsePropertiesFromArray(String response, String arrayName, String[] properties) {
-        ArrayList<PropertyContainer> containers = new ArrayList<>();
-        JSONObject resp = parseResponseString(response);
-        if (isSuccessful(resp)) { // only attempt to parse if it was successful
-            // get all the elements in the JSONArray list
-            JSONArray entries = (JSONArray)resp.get(arrayName);
-            for (Object o : entries) {
-                // parse each element in the JSON array, and add it to the list of containers
-                containers.add(parsePropertiesFrom((JSONObject) o, properties));
-            }
-        }
-        return containers;
+    GameJoltRowReader openRowReader(InputStream in, String arrayName, String[] properties) {
+        return new GameJoltJSONReader(in, arrayName, properties);
     }
 
-    @Override
-    public boolean isSuccessful(String response) {
-        JSONObject resp = parseResponseString(response);
-            if (response == null)
-                return false;
-        return isSuccessful(resp);
-    }
-    
-    private boolean isSuccessful(JSONObject resp) {
-        return resp.get("success").toString().equals("true");
+    /**
+     * Build the response from the already parsed "response" object, e.g. one of the
+     * sub-responses of a batch request.
+     * @param resp The "response" object.
+     * @return The parsed response.
+     */
+    static GameJoltResponse toResponse(JSONObject resp) {
+        GameJoltResponse response = new GameJoltResponse("true".equals(String.valueOf(resp.get("success"))));
+        for (Object o : resp.entrySet()) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            String key = entry.getKey().toString();
+            Object value = entry.getValue();
+            if (value instanceof JSONArray) {
+                ArrayList<PropertyContainer> containers = new ArrayList<>();
+                for (Object element : (JSONArray) value) {
+                    if (element instanceof JSONObject) {
+                        containers.add(toContainer((JSONObject) element));
+                    }
+                }
+                response.addArray(key, containers);
+            } else if (!(value instanceof JSONObject)) {
+                response.addProperty(key, value == null ? "" : value.toString());
+            }
+        }
+        return response;
     }
 
-    @Override
-    public ArrayList<String> parseDatastoresKeysResponse(String response) {
-        ArrayList<String> keys_list = new ArrayList<>();
-        JSONObject resp = parseResponseString(response);
-        if (!isSuccessful(resp)) {
-                //if (verbose) { System.err.println("GameJoltAPI: Could not get " + type + " DataStores."); }
-                return null;
-        }
-        JSONArray keys = (JSONArray)resp.get("keys");
-        for (Object o : keys) {
-            keys_list.add(((JSONObject)o).get("key").toString());
+    private static PropertyContainer toContainer(JSONObject object) {
+        PropertyContainer container = new PropertyContainer();
+        for (Object o : object.entrySet()) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            Object value = entry.getValue();
+            container.addProperty(entry.getKey().toString(), value == null ? "" : value.toString());
         }
-        return keys_list;
-    }
-    
-    @Override
-    public int parseHighscoreRankResponse(String response) {
-        Highscore h = new Highscore(parsePropertiesFrom(response, 
-                                    new String[]{"rank"}));
-        return Integer.parseInt(h.getProperty("rank"));
+        return container;
     }
 
-    @Override
-    public User parseUserRequestResponse(String response) {
-         // get the first user in the list because this methodo only returns one user
-        JSONObject resp = (JSONObject)(((JSONArray)(parseResponseString(response)).get("users")).get(0));
-        User u = new User(parsePropertiesFrom(resp, getUserProperties()));
-        u.setType(User.UserType.valueOf(resp.get("type").toString().toUpperCase()));
-        u.setStatus(User.UserStatus.valueOf(resp.get("status").toString().toUpperCase()));
-        return u;
-    }
-    
     /**
     * Parses text returned as a response to a request into a JSONObject.
     * @param responseText The string returned as a response to a request in a JSON format.
     * @return The parsed response object. If there was an error while parsing, it returns null.
     */
    private JSONObject parseResponseString(String responseText) {
+       if (responseText == null) {
+           return null;
+       }
        try {
                JSONParser parser = new JSONParser();
                return (JSONObject)((JSONObject)(parser.parse(responseText))).get("response");
        } catch (Exception e) {
-           e.printStackTrace();
+           // not json, e.g. REQUEST_FAILED
        }
        return null;
    }
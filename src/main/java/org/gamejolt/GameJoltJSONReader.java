@@ -0,0 +1,319 @@
+package org.gamejolt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Reads one list of a format=json response straight from the stream, without building a
+ * tree of the whole response. Values are kept as the text Game Jolt sent; numbers, booleans
+ * and null (as "") are not converted. Values of properties nobody asked for are skipped
+ * without being decoded.
+ */
+class GameJoltJSONReader extends GameJoltRowReader
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private enum State { START, IN_ARRAY, END }
+
+	private final Reader in;
+	private final char[] buffer = new char[8192];
+	private int position = 0;
+	private int limit = 0;
+	private final StringBuilder text = new StringBuilder();
+	private final LazyProperties.Builder builder = new LazyProperties.Builder();
+	private State state = State.START;
+
+	/**
+	 * @param in The response body.
+	 * @param arrayName The name of the list to read, such as "scores".
+	 * @param properties The properties to keep of each object, or null to keep all of them.
+	 */
+	GameJoltJSONReader(InputStream in, String arrayName, String[] properties) {
+		this(new InputStreamReader(in, UTF8), arrayName, properties);
+	}
+
+	GameJoltJSONReader(Reader in, String arrayName, String[] properties) {
+		super(arrayName, properties);
+		this.in = in;
+	}
+
+	@Override
+	PropertyContainer nextRow() throws IOException {
+		if (state == State.START) {
+			state = readUntilArray() ? State.IN_ARRAY : State.END;
+		}
+		while (state == State.IN_ARRAY) {
+			int c = nextToken();
+			if (c == ',') {
+				c = nextToken();
+			}
+			if (c == ']') {
+				readRestOfResponse();
+				state = State.END;
+			} else if (c == '{') {
+				return readRow();
+			} else {
+				unread(c);
+				skipValue(); // not an object, nothing to read from it
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Read {"response":{ and the top-level values up to the list.
+	 * @return true if the list was found, false if the response ended without it.
+	 */
+	private boolean readUntilArray() throws IOException {
+		expect('{');
+		while (true) {
+			int c = nextToken();
+			if (c == '}') {
+				return false;
+			}
+			if (c == ',') {
+				c = nextToken();
+			}
+			unread(c);
+			String key = readString();
+			expect(':');
+			c = nextToken();
+			if (key.equals("response") && c == '{') {
+				return readResponseValues(true);
+			}
+			unread(c);
+			skipValue();
+		}
+	}
+
+	/**
+	 * Read the members of the "response" object.
+	 * @param stopAtArray Whether to stop when the list is found.
+	 * @return true if it stopped at the list.
+	 */
+	private boolean readResponseValues(boolean stopAtArray) throws IOException {
+		while (true) {
+			int c = nextToken();
+			if (c == '}') {
+				return false;
+			}
+			if (c == ',') {
+				c = nextToken();
+			}
+			unread(c);
+			String key = readString();
+			expect(':');
+			c = nextToken();
+			if (c == '[' && stopAtArray && key.equals(arrayName)) {
+				return true;
+			}
+			unread(c);
+			if (c == '[' || c == '{') {
+				skipValue();
+			} else {
+				String value = readScalar();
+				response.addProperty(key, value);
+				if (key.equals("success")) {
+					response.setSuccessful(value.equals("true"));
+				}
+			}
+		}
+	}
+
+	private void readRestOfResponse() throws IOException {
+		readResponseValues(false);
+	}
+
+	private PropertyContainer readRow() throws IOException {
+		while (true) {
+			int c = nextToken();
+			if (c == '}') {
+				return builder.build();
+			}
+			if (c == ',') {
+				c = nextToken();
+			}
+			unread(c);
+			readText();
+			String key = wantedName(text);
+			expect(':');
+			c = nextToken();
+			unread(c);
+			if (c == '[' || c == '{' || key == null) {
+				skipValue();
+			} else {
+				readScalarText();
+				builder.add(key, text);
+			}
+		}
+	}
+
+	/**
+	 * Read a string, number, boolean or null as text.
+	 */
+	private String readScalar() throws IOException {
+		readScalarText();
+		return text.toString();
+	}
+
+	/**
+	 * Read a string, number, boolean or null into {@link #text}.
+	 */
+	private void readScalarText() throws IOException {
+		int c = nextToken();
+		unread(c);
+		if (c == '"') {
+			readText();
+			return;
+		}
+		text.setLength(0);
+		while (true) {
+			c = read();
+			if (c == -1 || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+				unread(c);
+				break;
+			}
+			text.append((char) c);
+		}
+		if (text.length() == 4 && text.indexOf("null") == 0) {
+			text.setLength(0);
+		}
+	}
+
+	private String readString() throws IOException {
+		readText();
+		return text.toString();
+	}
+
+	/**
+	 * Read a string into {@link #text}.
+	 */
+	private void readText() throws IOException {
+		expect('"');
+		text.setLength(0);
+		while (true) {
+			int c = read();
+			if (c == '"') {
+				return;
+			}
+			if (c == '\\') {
+				text.append(readEscape());
+			} else if (c == -1) {
+				throw new IOException("Unterminated string in JSON response");
+			} else {
+				text.append((char) c);
+			}
+		}
+	}
+
+	private char readEscape() throws IOException {
+		int c = read();
+		switch (c) {
+			case 'b': return '\b';
+			case 'f': return '\f';
+			case 'n': return '\n';
+			case 'r': return '\r';
+			case 't': return '\t';
+			case 'u':
+				int code = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(read(), 16);
+					if (digit < 0) {
+						throw new IOException("Malformed unicode escape in JSON response");
+					}
+					code = (code << 4) | digit;
+				}
+				return (char) code;
+			case -1:
+				throw new IOException("Unterminated string in JSON response");
+			default:
+				return (char) c; // \" \\ \/
+		}
+	}
+
+	/**
+	 * Skip any value, including nested objects and lists, without keeping it.
+	 */
+	private void skipValue() throws IOException {
+		int depth = 0;
+		boolean inString = false;
+		while (true) {
+			int c = inString ? read() : nextToken();
+			if (c == -1) {
+				throw new IOException("Unexpected end of JSON response");
+			}
+			if (inString) {
+				if (c == '\\') {
+					read();
+				} else if (c == '"') {
+					inString = false;
+					if (depth == 0) {
+						return;
+					}
+				}
+			} else if (c == '"') {
+				inString = true;
+			} else if (c == '{' || c == '[') {
+				depth++;
+			} else if (c == '}' || c == ']') {
+				if (depth == 0) {
+					unread(c); // the end of the enclosing value
+					return;
+				}
+				if (--depth == 0) {
+					return;
+				}
+			} else if (c == ',' && depth == 0) {
+				unread(c);
+				return;
+			}
+		}
+	}
+
+	private void expect(char expected) throws IOException {
+		int c = nextToken();
+		if (c != expected) {
+			throw new IOException("Malformed JSON response, expected '" + expected + "'");
+		}
+	}
+
+	/**
+	 * Read the next character that is not whitespace.
+	 */
+	private int nextToken() throws IOException {
+		int c;
+		do {
+			c = read();
+		} while (c != -1 && Character.isWhitespace(c));
+		return c;
+	}
+
+	/**
+	 * Put back the character that was just read, so it is read again.
+	 */
+	private void unread(int c) {
+		if (c != -1) {
+			position--;
+		}
+	}
+
+	private int read() throws IOException {
+		if (position == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position++];
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
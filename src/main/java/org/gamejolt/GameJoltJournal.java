@@ -0,0 +1,154 @@
+package org.gamejolt;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of records. Every record is framed as its length, the CRC32 of its
+ * payload and the payload itself, so a record that was only partly written when the game
+ * crashed is detected and cut off when the journal is opened again.
+ * <p>
+ * A damaged record in the middle of the journal, e.g. from a bad sector, is skipped: recovery
+ * looks for the next frame whose checksum matches, so the records after it are not lost. An
+ * append that fails halfway removes what it wrote, so it does not leave such a record behind.
+ * <p>
+ * {@link #append(byte[])} only writes to the file; nothing is durable until {@link #sync()}
+ * is called, which lets the caller write many records and pay for one fsync (group commit).
+ */
+class GameJoltJournal implements Closeable
+{
+	private static final int HEADER_SIZE = 8;
+	private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Open the journal, creating the file if it does not exist.
+	 * @param f The journal file.
+	 * @throws IOException if the file could not be opened.
+	 */
+	GameJoltJournal(File f) throws IOException {
+		this.file = new RandomAccessFile(f, "rw");
+		this.channel = file.getChannel();
+	}
+
+	/**
+	 * Read all intact records of the journal. Anything after the last intact record is
+	 * truncated, and following appends go to the end of the journal.
+	 * @return The payloads of all records, in the order they were appended.
+	 * @throws IOException if the file could not be read.
+	 */
+	ArrayList<byte[]> recover() throws IOException {
+		ArrayList<byte[]> records = new ArrayList<>();
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("The journal is too large: " + size + " bytes");
+		}
+		ByteBuffer data = ByteBuffer.allocate((int) size);
+		readFully(data, 0);
+		int position = 0;
+		int end = 0; // the end of the last intact record
+		while (position + HEADER_SIZE <= size) {
+			int length = data.getInt(position);
+			int checksum = data.getInt(position + 4);
+			if (length > 0 && length <= MAX_RECORD_SIZE && position + HEADER_SIZE + length <= size) {
+				crc.reset();
+				crc.update(data.array(), position + HEADER_SIZE, length);
+				if ((int) crc.getValue() == checksum) {
+					records.add(Arrays.copyOfRange(data.array(), position + HEADER_SIZE, position + HEADER_SIZE + length));
+					position += HEADER_SIZE + length;
+					end = position;
+					continue;
+				}
+			}
+			position++; // a torn or damaged record, look for the next intact one
+		}
+		if (end < size) {
+			channel.truncate(end);
+			channel.force(true);
+		}
+		channel.position(end);
+		return records;
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new IOException("Unexpected end of journal");
+			}
+		}
+	}
+
+	/**
+	 * Append a record to the end of the journal. The record is not durable until
+	 * {@link #sync()} is called.
+	 * @param payload The record.
+	 * @throws IOException if the record could not be written.
+	 */
+	void append(byte[] payload) throws IOException {
+		crc.reset();
+		crc.update(payload, 0, payload.length);
+		ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+		frame.putInt(payload.length);
+		frame.putInt((int) crc.getValue());
+		frame.put(payload);
+		frame.flip();
+		long start = channel.position();
+		try {
+			while (frame.hasRemaining()) {
+				channel.write(frame);
+			}
+		} catch (IOException e) {
+			// part of a frame would hide the records appended after it until recovery
+			try {
+				channel.truncate(start);
+				channel.position(start);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Force all appended records to disk.
+	 * @throws IOException if the records could not be written.
+	 */
+	void sync() throws IOException {
+		channel.force(false);
+	}
+
+	/**
+	 * Remove all records from the journal.
+	 * @throws IOException if the file could not be truncated.
+	 */
+	void reset() throws IOException {
+		channel.truncate(0);
+		channel.position(0);
+		channel.force(true);
+	}
+
+	/**
+	 * Get the size of the journal file.
+	 * @return The size in bytes.
+	 * @throws IOException if the size could not be read.
+	 */
+	long size() throws IOException {
+		return channel.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
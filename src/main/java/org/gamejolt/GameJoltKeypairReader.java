@@ -0,0 +1,229 @@
+package org.gamejolt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * Reads a format=keypair response by walking its bytes once. Every line is key:"value";
+ * keys are matched against the requested properties byte by byte, and only the values of
+ * requested keys are turned into Strings.
+ * <p>
+ * Keypair lists have no name: the first key after "success" starts the first object, and
+ * every time that key comes again a new object starts. When a list name is given only the
+ * requested keys are kept, plus the "message" Game Jolt sends on failure. Without a list
+ * name every value is kept, both as a top-level value and in the list, which is how
+ * {@link GameJoltKeypairsParser#parse(String)} uses it.
+ */
+class GameJoltKeypairReader extends GameJoltRowReader
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final byte[] SUCCESS = bytes("success");
+	private static final byte[] MESSAGE = bytes("message");
+	private static final byte[] TRUE = bytes("true");
+
+	private final InputStream in;
+	private final boolean collectAll;
+	private final String[] keys;
+	private final byte[][] keyBytes;
+
+	private final byte[] buffer = new byte[8192];
+	private int position = 0;
+	private int limit = 0;
+	private byte[] line = new byte[256];
+	private int lineLength;
+	private boolean firstLine = true;
+
+	private byte[] startKey;
+	private boolean inRow = false;
+	private final LazyProperties.Builder builder = new LazyProperties.Builder();
+	private final ArrayList<PropertyContainer> rows = new ArrayList<>();
+
+	/**
+	 * @param in The response body.
+	 * @param arrayName The name of the list, or null to keep every value.
+	 * @param properties The properties to keep of each object, or null to keep all of them.
+	 */
+	GameJoltKeypairReader(InputStream in, String arrayName, String[] properties) {
+		super(arrayName, properties);
+		this.in = in;
+		this.collectAll = (arrayName == null);
+		this.keys = properties;
+		if (properties != null) {
+			keyBytes = new byte[properties.length][];
+			for (int i = 0; i < properties.length; i++) {
+				keyBytes[i] = bytes(properties[i]);
+			}
+		} else {
+			keyBytes = null;
+		}
+		if (collectAll) {
+			response.setUnnamedArray(rows);
+		}
+	}
+
+	@Override
+	PropertyContainer nextRow() throws IOException {
+		while (readLine()) {
+			PropertyContainer finished = readPair();
+			if (finished != null) {
+				return finished;
+			}
+		}
+		return finishRow();
+	}
+
+	private PropertyContainer finishRow() {
+		if (!inRow) {
+			return null;
+		}
+		inRow = false;
+		PropertyContainer finished = builder.build();
+		if (collectAll) {
+			rows.add(finished);
+		}
+		return finished;
+	}
+
+	/**
+	 * Handle the line that was just read.
+	 * @return The object that the line ended, if it starts a new one.
+	 */
+	private PropertyContainer readPair() {
+		int end = lineLength;
+		while (end > 0 && (line[end - 1] == '\r' || line[end - 1] == ' ' || line[end - 1] == '\t')) {
+			end--;
+		}
+		int colon = indexOf(':', 0, end);
+		int quote = lastIndexOf('"', end);
+		if (colon < 0 || quote < colon + 2) {
+			return null; // not key:"value"
+		}
+		int valueStart = colon + 2;
+		if (firstLine) {
+			firstLine = false;
+			response.setSuccessful(matches(SUCCESS, 0, colon)
+					&& matches(TRUE, valueStart, quote) && quote == end - 1);
+			return null;
+		}
+		if (matches(MESSAGE, 0, colon) && !collectAll) {
+			response.addProperty("message", new String(line, valueStart, quote - valueStart, UTF8));
+			return null;
+		}
+		String key = keyName(colon);
+
+		PropertyContainer finished = null;
+		if (startKey == null) {
+			startKey = new byte[colon];
+			System.arraycopy(line, 0, startKey, 0, colon);
+		}
+		if (matches(startKey, 0, colon)) {
+			finished = finishRow();
+			inRow = true;
+		}
+		if (key != null) {
+			// the value stays in the builder's buffer until it is asked for
+			builder.add(key, line, valueStart, quote - valueStart);
+			if (collectAll) {
+				response.addProperty(key, new String(line, valueStart, quote - valueStart, UTF8));
+			}
+		}
+		return collectAll ? null : finished;
+	}
+
+	/**
+	 * Get the name of the key on the current line if it was requested, without creating a
+	 * String for it unless every key was requested.
+	 */
+	private String keyName(int length) {
+		if (keys == null) {
+			return new String(line, 0, length, UTF8);
+		}
+		for (int i = 0; i < keyBytes.length; i++) {
+			if (matches(keyBytes[i], 0, length)) {
+				return keys[i];
+			}
+		}
+		return null;
+	}
+
+	private boolean matches(byte[] expected, int from, int to) {
+		if (to - from != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (line[from + i] != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int indexOf(char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (line[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int lastIndexOf(char c, int to) {
+		for (int i = to - 1; i >= 0; i--) {
+			if (line[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Copy the next line, without the newline, into the line buffer.
+	 * @return false at the end of the response.
+	 */
+	private boolean readLine() throws IOException {
+		lineLength = 0;
+		boolean any = false;
+		while (true) {
+			if (position == limit) {
+				limit = in.read(buffer, 0, buffer.length);
+				position = 0;
+				if (limit <= 0) {
+					limit = 0;
+					return any;
+				}
+			}
+			any = true;
+			int start = position;
+			while (position < limit && buffer[position] != '\n') {
+				position++;
+			}
+			append(start, position);
+			if (position < limit) {
+				position++; // the newline
+				return true;
+			}
+		}
+	}
+
+	private void append(int from, int to) {
+		int length = to - from;
+		if (lineLength + length > line.length) {
+			byte[] bigger = new byte[Math.max(line.length * 2, lineLength + length)];
+			System.arraycopy(line, 0, bigger, 0, lineLength);
+			line = bigger;
+		}
+		System.arraycopy(buffer, from, line, lineLength, length);
+		lineLength += length;
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(UTF8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
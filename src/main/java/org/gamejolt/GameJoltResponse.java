@@ -0,0 +1,74 @@
+package org.gamejolt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * <b>GameJoltResponse</b><br/>
+ * A response from Game Jolt, parsed once by a {@link GameJoltResponseParser}.
+ * <p>
+ * The top-level values of the response, such as "message" or "rank", are its properties.
+ * Lists of objects, such as the "scores" of a highscore request, are arrays of
+ * PropertyContainers. The keypair format does not name its lists, so a keypair response has
+ * one array that is returned for every name.
+ */
+public class GameJoltResponse extends PropertyContainer
+{
+	private boolean successful;
+	private final HashMap<String, ArrayList<PropertyContainer>> arrays = new HashMap<>();
+	private ArrayList<PropertyContainer> unnamedArray;
+
+	/**
+	 * Create a new, empty response.
+	 * @param successful Whether Game Jolt reported success.
+	 */
+	GameJoltResponse(boolean successful) {
+		this.successful = successful;
+	}
+
+	/**
+	 * The response used when the request failed or the response could not be parsed.
+	 * @return A new unsuccessful response without any properties.
+	 */
+	static GameJoltResponse failed() {
+		return new GameJoltResponse(false);
+	}
+
+	void setSuccessful(boolean successful) {
+		this.successful = successful;
+	}
+
+	void addArray(String name, ArrayList<PropertyContainer> array) {
+		arrays.put(name, array);
+	}
+
+	void setUnnamedArray(ArrayList<PropertyContainer> array) {
+		this.unnamedArray = array;
+	}
+
+	/**
+	 * Check if Game Jolt reported success.
+	 * @return true if the request was successful.
+	 */
+	public boolean isSuccessful() {
+		return successful;
+	}
+
+	/**
+	 * Get the message Game Jolt sent with the response, usually the reason a request failed.
+	 * @return The message, or null if there is none.
+	 */
+	public String getMessage() {
+		return getProperty("message");
+	}
+
+	/**
+	 * Get a list of objects from the response.
+	 * @param name The name of the list, such as "scores". Ignored for keypair responses.
+	 * @return The objects in the list. This is empty if the response has no such list.
+	 */
+	public ArrayList<PropertyContainer> getArray(String name) {
+		ArrayList<PropertyContainer> array = (unnamedArray != null) ? unnamedArray : arrays.get(name);
+		return (array != null) ? array : new ArrayList<PropertyContainer>();
+	}
+}
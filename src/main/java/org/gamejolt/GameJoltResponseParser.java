@@ -5,20 +5,30 @@
  */
 package org.gamejolt;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
 import java.util.ArrayList;
+import java.util.Locale;
 
 /**
- * An abstract parser for parsing the GameJolt responses
+ * An abstract parser for parsing the GameJolt responses.
+ * Every response body is parsed once into a {@link GameJoltResponse}, and all the
+ * objects are read from that. The methods that take a String parse it first; if you
+ * need several things from one response, call {@link #parse(String)} yourself and
+ * pass the result to the methods that take a GameJoltResponse.
  * @author Kevin
  */
 public abstract class GameJoltResponseParser {
 
     // properties to read from the responses for the different types of objects
-    private final String[] userProperties = {"id", "username", "avatar_url", "signed_up",
-                                    "last_logged_in"};
+    private final String[] userProperties = {"id", "type", "username", "avatar_url", "signed_up",
+                                    "last_logged_in", "status", "developer_name",
+                                    "developer_website", "developer_description"};
 
-    private final String[] highscoreProperties = {"score", "extra_data", "user",
-                                        "user_id", "guest", "stored"};
+    private final String[] highscoreProperties = {"score", "sort", "extra_data", "user",
+                                        "user_id", "guest", "stored", "stored_timestamp"};
 
     private final String[] highscoreTableProperties = {"id",  "name", "description",
                                               "primary"};
@@ -26,76 +36,197 @@ public abstract class GameJoltResponseParser {
     private final String[] trophyProperties = {"id", "title", "description",
                                     "difficulty", "image_url", "achieved"};
 
-    private final String[] serverTimeProperties = {"year", "month", "day", "hour",
+    private final String[] serverTimeProperties = {"timestamp", "timezone", "year", "month", "day", "hour",
                                             "minute", "seconds"};
-    
+
+    /**
+     * Parse a response from GameJolt.
+     * @param response The raw response string
+     * @return The parsed response. If the response could not be parsed, such as
+     * "REQUEST_FAILED" or null, the response is unsuccessful.
+     */
+    public abstract GameJoltResponse parse(String response);
+
+    /**
+     * Parse a response from GameJolt as it is read from the connection, keeping only one
+     * list and the given properties of its objects.
+     * @param in The response body. It is closed when the response has been read.
+     * @param arrayName The name of the list to keep, such as "scores". Ignored for the
+     * KEYPAIR format.
+     * @param properties The properties to keep of each object in the list, or null for all.
+     * @return The parsed response with the top-level values and the one list.
+     * @throws IOException if the response could not be read or is malformed.
+     */
+    public GameJoltResponse parse(InputStream in, String arrayName, String[] properties) throws IOException {
+        try (GameJoltRowReader reader = openRowReader(in, arrayName, properties)) {
+            ArrayList<PropertyContainer> rows = new ArrayList<>();
+            PropertyContainer row;
+            while ((row = reader.nextRow()) != null) {
+                rows.add(row);
+            }
+            GameJoltResponse resp = reader.getResponse();
+            resp.addArray(arrayName, rows);
+            return resp;
+        }
+    }
+
+    /**
+     * Open a reader for the objects of one list in a response. Formats that cannot be
+     * streamed read the whole response first.
+     */
+    GameJoltRowReader openRowReader(InputStream in, String arrayName, String[] properties) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return new GameJoltRowReader.Parsed(parse(body.toString("UTF-8")), arrayName, properties);
+    }
+
     /**
     * Takes a string, then parses the given properties out of the string
     * using the current format
     * @param response The raw response string
-    * @param properties The list of the properties to parse out. if the KEYPAIRS 
-    * format is the current format, this list is ignored
+    * @param properties The list of the properties to parse out. If this is null
+    * all properties are returned.
     * @return The PropertyContainer object will all the properties in the list
     * that it could find, or null if there was an error.
     */
-    public abstract PropertyContainer parsePropertiesFrom(String response, String[] properties);
-    
+    public PropertyContainer parsePropertiesFrom(String response, String[] properties) {
+        GameJoltResponse resp = parse(response);
+        if (!resp.isSuccessful()) {
+            return null;
+        }
+        return select(resp, properties);
+    }
+
     /**
-    * Takes a string, then parses many containers out of it, interpreting it as a 
+    * Takes a string, then parses many containers out of it, interpreting it as a
     * large list.
     * @param response The raw response string
-    * @param properties The list of the properties to parse out.
+    * @param properties The list of the properties to parse out. If this is null
+    * all properties are returned.
     * @param arrayName The name of the array to parse out. This is only needed
     *      for JSON or XML formats.
     * @return THe list of all the PropertyContainer from the array. If there
     * was an error or if the array that was parsed is empty, then an empty array is returned.
     */
-    public abstract ArrayList<PropertyContainer> parsePropertiesFromArray(String response, 
-           String arrayName, String[] properties);
-    
+    public ArrayList<PropertyContainer> parsePropertiesFromArray(String response,
+           String arrayName, String[] properties) {
+        ArrayList<PropertyContainer> containers = new ArrayList<>();
+        GameJoltResponse resp = parse(response);
+        if (resp.isSuccessful()) {
+            for (PropertyContainer pc : resp.getArray(arrayName)) {
+                containers.add(select(pc, properties));
+            }
+        }
+        return containers;
+    }
+
+    /**
+     * Copy the given properties that the container has into a new container.
+     */
+    private PropertyContainer select(PropertyContainer pc, String[] properties) {
+        if (properties == null) {
+            return new PropertyContainer(pc);
+        }
+        PropertyContainer container = new PropertyContainer();
+        for (String str : properties) {
+            String value = pc.getProperty(str);
+            if (value != null) {
+                container.addProperty(str, value);
+            }
+        }
+        return container;
+    }
+
     /**
      * Check if the response was successful
      * @param response THe response from GameJolt
      * @return If the response was successful
      */
-    public abstract boolean isSuccessful(String response);
-    
+    public boolean isSuccessful(String response) {
+        return parse(response).isSuccessful();
+    }
+
     /**
      * Create a ServerTime object from a GameJolt response
      * @param response The response from GameJolt
      * @return The new ServerTime object, or null if there was an error
      */
     public ServerTime parseServerTimeResponse(String response) {
-        if (!isSuccessful(response)) {
+        return parseServerTimeResponse(parse(response));
+    }
+
+    /**
+     * Create a ServerTime object from a parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return The new ServerTime object, or null if there was an error
+     */
+    public ServerTime parseServerTimeResponse(GameJoltResponse response) {
+        if (!response.isSuccessful()) {
             return null;
         }
-        return new ServerTime(parsePropertiesFrom(response, getServerTimeProperties()));
+        return new ServerTime(response);
     }
-    
+
     /**
      * Create a Trophy object from a GameJolt response
      * @param response The response from GameJolt
      * @return The new Trophy object, or null if there was an error or it wasn't successful
      */
     public ArrayList<Trophy> parseTrophyResponse(String response) {
-        if (!isSuccessful(response)) {
+        return parseTrophyResponse(parse(response));
+    }
+
+    /**
+     * Create Trophy objects from a parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return The new Trophy objects, or null if it wasn't successful
+     */
+    public ArrayList<Trophy> parseTrophyResponse(GameJoltResponse response) {
+        if (!response.isSuccessful()) {
             return null;
         }
-        ArrayList<PropertyContainer> containers = parsePropertiesFromArray(response, "trophies", getTrophyProperties());
         ArrayList<Trophy> trophies = new ArrayList<>();
-        for (PropertyContainer pc : containers) {
+        for (PropertyContainer pc : response.getArray("trophies")) {
             trophies.add(new Trophy(pc));
         }
         return trophies;
     }
-    
+
     /**
      * Get a list of Datastore keys from a GameJolt response
      * @param response The response from GameJolt
-     * @return A list of all the keys returned (this could be an empty array)
+     * @return A list of all the keys returned (this could be an empty array), or null
+     * if the request is not successful.
      */
-    public abstract ArrayList<String> parseDatastoresKeysResponse(String response);
-    
+    public ArrayList<String> parseDatastoresKeysResponse(String response) {
+        return parseDatastoresKeysResponse(parse(response));
+    }
+
+    /**
+     * Get a list of Datastore keys from a parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return A list of all the keys returned (this could be an empty array), or null
+     * if the request is not successful.
+     */
+    public ArrayList<String> parseDatastoresKeysResponse(GameJoltResponse response) {
+        if (!response.isSuccessful()) {
+            return null;
+        }
+        ArrayList<String> keys = new ArrayList<>();
+        for (PropertyContainer pc : response.getArray("keys")) {
+            keys.add(pc.getProperty("key"));
+        }
+        return keys;
+    }
+
     /**
      * Get a list of HighscoreTables from a GameJolt response
      * @param response The response from GameJolt
@@ -103,48 +234,260 @@ public abstract class GameJoltResponseParser {
      * the request is not successful, this returns null.
      */
     public ArrayList<HighscoreTable> parseHighscoreTableResponse(String response) {
-        if (!isSuccessful(response)) {
+        return parseHighscoreTableResponse(parse(response));
+    }
+
+    /**
+     * Get a list of HighscoreTables from a parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return A list of all the tables returned (this could be an empty array). If
+     * the request is not successful, this returns null.
+     */
+    public ArrayList<HighscoreTable> parseHighscoreTableResponse(GameJoltResponse response) {
+        if (!response.isSuccessful()) {
             return null;
         }
-        ArrayList<PropertyContainer> containers = parsePropertiesFromArray(response, "tables", getHighscoreTableProperties());
         ArrayList<HighscoreTable> tables = new ArrayList<>();
-        for (PropertyContainer pc : containers) {
+        for (PropertyContainer pc : response.getArray("tables")) {
             tables.add(new HighscoreTable(pc));
         }
         return tables;
     }
-    
+
     /**
      * Get the 'rank' property from the GameJolt response
      * @param response The response from GameJolt
-     * @return The 'rank' property from the response
+     * @return The 'rank' property from the response, or -1 if there was an error
      */
-    public abstract int parseHighscoreRankResponse(String response);
-    
+    public int parseHighscoreRankResponse(String response) {
+        return parseHighscoreRankResponse(parse(response));
+    }
+
+    /**
+     * Get the 'rank' property from the parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return The 'rank' property from the response, or -1 if there was an error
+     */
+    public int parseHighscoreRankResponse(GameJoltResponse response) {
+        String rank = response.getProperty("rank");
+        if (!response.isSuccessful() || rank == null) {
+            return -1;
+        }
+        return Integer.parseInt(rank);
+    }
+
     /**
      * Get a list of Highscores from a GameJolt response
      * @param response The response from GameJolt
      * @return A list of all the highscores parsed from the response (this could be empty)
      */
     public ArrayList<Highscore> parseHighscoreResponse(String response) {
-        if (!isSuccessful(response)) {
+        return parseHighscoreResponse(parse(response));
+    }
+
+    /**
+     * Get a list of Highscores from a parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return A list of all the highscores in the response (this could be empty), or
+     * null if it wasn't successful
+     */
+    public ArrayList<Highscore> parseHighscoreResponse(GameJoltResponse response) {
+        if (!response.isSuccessful()) {
             return null;
         }
-        ArrayList<PropertyContainer> containers = parsePropertiesFromArray(response, "scores", getHighscoreProperties());
         ArrayList<Highscore> highscores = new ArrayList<>();
-        for (PropertyContainer pc : containers) {
+        for (PropertyContainer pc : response.getArray("scores")) {
             highscores.add(new Highscore(pc));
         }
         return highscores;
     }
+
     /**
      * Get a User object from a GameJolt response
      * @param response The response from GameJolt
-     * @return The newly created User object
+     * @return The newly created User object, or null if there was an error
      */
-    public abstract User parseUserRequestResponse(String response);
+    public User parseUserRequestResponse(String response) {
+        return parseUserRequestResponse(parse(response));
+    }
+
+    /**
+     * Get a User object from a parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return The first user in the response, or null if there was an error
+     */
+    public User parseUserRequestResponse(GameJoltResponse response) {
+        ArrayList<PropertyContainer> users = response.getArray("users");
+        if (!response.isSuccessful() || users.isEmpty()) {
+            return null;
+        }
+        // get the first user in the list because this method only returns one user
+        User u = new User(users.get(0));
+        String type = u.getProperty("type");
+        if (type != null) {
+            u.setType(User.UserType.valueOf(type.toUpperCase()));
+        }
+        String status = u.getProperty("status");
+        if (status != null) {
+            u.setStatus(User.UserStatus.valueOf(status.toUpperCase()));
+        }
+        return u;
+    }
+
+
+    /**
+     * Get a list of CompactHighscores from a parsed GameJolt response. Every value is
+     * parsed and decoded here, once.
+     * @param response The parsed response from GameJolt
+     * @return A list of all the highscores in the response (this could be empty), or
+     * null if it wasn't successful
+     */
+    public ArrayList<CompactHighscore> parseCompactHighscoreResponse(GameJoltResponse response) {
+        if (!response.isSuccessful()) {
+            return null;
+        }
+        ArrayList<PropertyContainer> rows = response.getArray("scores");
+        ArrayList<CompactHighscore> highscores = new ArrayList<>(rows.size());
+        for (PropertyContainer pc : rows) {
+            String guest = pc.getProperty("guest");
+            boolean isGuest = guest != null && guest.length() > 0;
+            highscores.add(new CompactHighscore(
+                    decode(pc.getProperty("score")),
+                    parseLong(pc.getProperty("sort"), 0),
+                    decode(pc.getProperty("extra_data")),
+                    (int) parseLong(pc.getProperty("user_id"), -1),
+                    isGuest ? guest : pc.getProperty("user"),
+                    isGuest,
+                    pc.getProperty("stored"),
+                    parseLong(pc.getProperty("stored_timestamp"), -1),
+                    pc));
+        }
+        return highscores;
+    }
+
+    /**
+     * Get a list of CompactHighscores from a GameJolt response
+     * @param response The response from GameJolt
+     * @return A list of all the highscores in the response (this could be empty), or
+     * null if it wasn't successful
+     */
+    public ArrayList<CompactHighscore> parseCompactHighscoreResponse(String response) {
+        return parseCompactHighscoreResponse(parse(response));
+    }
+
+    /**
+     * Get a list of CompactTrophies from a parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return The trophies in the response (this could be empty), or null if it wasn't successful
+     */
+    public ArrayList<CompactTrophy> parseCompactTrophyResponse(GameJoltResponse response) {
+        if (!response.isSuccessful()) {
+            return null;
+        }
+        ArrayList<PropertyContainer> rows = response.getArray("trophies");
+        ArrayList<CompactTrophy> trophies = new ArrayList<>(rows.size());
+        for (PropertyContainer pc : rows) {
+            String achieved = pc.getProperty("achieved");
+            trophies.add(new CompactTrophy(
+                    (int) parseLong(pc.getProperty("id"), -1),
+                    pc.getProperty("title"),
+                    pc.getProperty("description"),
+                    parseEnum(Trophy.Difficulty.class, pc.getProperty("difficulty")),
+                    achieved != null && !achieved.equals("false"),
+                    pc.getProperty("image_url"),
+                    pc));
+        }
+        return trophies;
+    }
+
+    /**
+     * Get a list of CompactTrophies from a GameJolt response
+     * @param response The response from GameJolt
+     * @return The trophies in the response (this could be empty), or null if it wasn't successful
+     */
+    public ArrayList<CompactTrophy> parseCompactTrophyResponse(String response) {
+        return parseCompactTrophyResponse(parse(response));
+    }
+
+    /**
+     * Get a CompactUser from a parsed GameJolt response
+     * @param response The parsed response from GameJolt
+     * @return The first user in the response, or null if there was an error
+     */
+    public CompactUser parseCompactUserResponse(GameJoltResponse response) {
+        ArrayList<PropertyContainer> users = response.getArray("users");
+        if (!response.isSuccessful() || users.isEmpty()) {
+            return null;
+        }
+        PropertyContainer pc = users.get(0);
+        return new CompactUser(
+                (int) parseLong(pc.getProperty("id"), -1),
+                pc.getProperty("username"),
+                parseEnum(User.UserType.class, pc.getProperty("type")),
+                parseEnum(User.UserStatus.class, pc.getProperty("status")),
+                pc.getProperty("avatar_url"),
+                pc.getProperty("signed_up"),
+                pc.getProperty("last_logged_in"),
+                pc);
+    }
+
+    /**
+     * Get a CompactUser from a GameJolt response
+     * @param response The response from GameJolt
+     * @return The first user in the response, or null if there was an error
+     */
+    public CompactUser parseCompactUserResponse(String response) {
+        return parseCompactUserResponse(parse(response));
+    }
+
+    /**
+     * Parse a whole number without throwing.
+     * @return The number, or the fallback if the value is missing or not a number.
+     */
+    static long parseLong(String value, long fallback) {
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Parse an enum constant case-insensitively.
+     * @return The constant, or null if the value is missing or unknown.
+     */
+    static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * URL-decode a value the way Highscore does, skipping the work when there is nothing to decode.
+     * @return The decoded value, the value itself if it is not encoded, or "" for null.
+     */
+    static String decode(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (Exception e) {
+            return value;
+        }
+    }
 
-    
     // properties getters
     public String[] getUserProperties() {
         return userProperties;
@@ -165,6 +508,6 @@ public abstract class GameJoltResponseParser {
     public String[] getServerTimeProperties() {
         return serverTimeProperties;
     }
-    
-    
+
+
 }
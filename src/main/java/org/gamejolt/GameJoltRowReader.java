@@ -0,0 +1,116 @@
+package org.gamejolt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Reads the objects of one list in a response, such as the "scores" of a highscore request,
+ * one at a time. Only the requested properties of each object are kept, so a reader that
+ * streams from the connection needs memory for one object rather than the whole response.
+ * <p>
+ * The top-level values of the response, such as "success" and "message", are collected in
+ * {@link #getResponse()} as they are read. That response is complete once {@link #nextRow()}
+ * has returned null.
+ */
+abstract class GameJoltRowReader implements Closeable
+{
+	/** The top-level values read so far. */
+	protected final GameJoltResponse response = new GameJoltResponse(false);
+
+	/** The name of the list to read. Ignored by the keypair format, which does not name lists. */
+	protected final String arrayName;
+
+	private final HashSet<String> properties;
+	private final String[] wanted;
+
+	/**
+	 * @param arrayName The name of the list to read, such as "scores".
+	 * @param properties The properties to keep of each object, or null to keep all of them.
+	 */
+	protected GameJoltRowReader(String arrayName, String[] properties) {
+		this.arrayName = arrayName;
+		this.properties = (properties == null) ? null : new HashSet<>(Arrays.asList(properties));
+		this.wanted = properties;
+	}
+
+	/**
+	 * Read the next object of the list.
+	 * @return The object with the requested properties, or null if there are no more objects.
+	 * @throws IOException if the response could not be read or is malformed.
+	 */
+	abstract PropertyContainer nextRow() throws IOException;
+
+	/**
+	 * Get the success flag and the top-level values of the response.
+	 * @return The response, without the list that is read by {@link #nextRow()}.
+	 */
+	GameJoltResponse getResponse() {
+		return response;
+	}
+
+	/**
+	 * Check if a property of the objects should be kept.
+	 * @param key The name of the property.
+	 * @return true if the caller asked for the property.
+	 */
+	protected boolean isWanted(String key) {
+		return properties == null || properties.contains(key);
+	}
+
+	/**
+	 * Check if a property of the objects should be kept, without creating a String for a
+	 * name that is not.
+	 * @param name The name of the property, as read from the response.
+	 * @return The requested property name, or null if it should not be kept.
+	 */
+	protected String wantedName(CharSequence name) {
+		if (wanted == null) {
+			return name.toString();
+		}
+		for (String key : wanted) {
+			if (key.contentEquals(name)) {
+				return key;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the list from a response that has already been parsed, for the formats and
+	 * callers that do not stream.
+	 */
+	static class Parsed extends GameJoltRowReader
+	{
+		private final ArrayList<PropertyContainer> rows;
+		private int next = 0;
+
+		Parsed(GameJoltResponse parsed, String arrayName, String[] properties) {
+			super(arrayName, properties);
+			response.setSuccessful(parsed.isSuccessful());
+			response.getProperties().putAll(parsed.getProperties());
+			rows = parsed.getArray(arrayName);
+		}
+
+		@Override
+		PropertyContainer nextRow() {
+			if (next >= rows.size()) {
+				return null;
+			}
+			PropertyContainer row = rows.get(next++);
+			PropertyContainer container = new PropertyContainer();
+			for (String key : row.getProperties().keySet()) {
+				if (isWanted(key)) {
+					container.addProperty(key, row.getProperty(key));
+				}
+			}
+			return container;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
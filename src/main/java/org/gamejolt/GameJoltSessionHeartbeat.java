@@ -0,0 +1,445 @@
+package org.gamejolt;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <b>GameJoltSessionHeartbeat</b><br/>
+ * Keeps the play sessions of many players open, so a game or game server does not need a
+ * timer of its own for every GameJoltAPI object.
+ * <pre>
+ * GameJoltSessionHeartbeat heartbeat = new GameJoltSessionHeartbeat();
+ * GameJoltSessionHeartbeat.Session session = heartbeat.open(api); // api of a verified player
+ * session.setActive(false); // the player opened the pause menu
+ * session.close(); // the player left
+ * </pre>
+ * All sessions share one thread that keeps the time on a hashed timing wheel: a ring of
+ * slots, one per 100 milliseconds, where each session waits in the slot of its next ping.
+ * Adding a session or moving it to another slot takes constant time, however many sessions
+ * there are. The requests themselves run on an executor, by default on virtual threads
+ * where the JVM has them.
+ * <p>
+ * Every ping is scheduled with some random jitter, and the first one after opening at a
+ * random point of the interval, so that sessions opened at the same time do not keep
+ * pinging Game Jolt in bursts. When a player goes from active to idle or back, the change is
+ * sent right away instead of with the next ping. A session whose ping failed is opened again.
+ * <p>
+ * Every ping holds one of the transport's connections for a round trip, so the transport
+ * has to allow as many requests in flight as the sessions need: about the number of
+ * sessions times the round trip, divided by the interval. 10000 sessions pinged every 30
+ * seconds with a round trip of 150 ms keep 50 connections busy, while a
+ * {@link GameJoltHttpTransport} allows {@link GameJoltHttpTransport#DEFAULT_MAX_CONNECTIONS}
+ * unless told otherwise; the other pings wait, and fail once they have waited for the read
+ * timeout. Give the players' {@link GameJoltClient} a transport with room to spare, e.g.
+ * <code>new GameJoltHttpTransport(10000, 30000, 128)</code>.
+ * <p>
+ * Closing the heartbeat, or the JVM shutting down, closes every session that is still open.
+ * All heartbeats share one shutdown hook.
+ */
+public class GameJoltSessionHeartbeat implements Closeable
+{
+	private static final long TICK = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final int WHEEL_SIZE = 1024; // about 100 seconds per turn
+	private static final long RETRY = TimeUnit.SECONDS.toNanos(5);
+
+	// the heartbeats that are not closed yet, closed by a single shutdown hook
+	private static final Set<GameJoltSessionHeartbeat> unclosed =
+			Collections.newSetFromMap(new ConcurrentHashMap<GameJoltSessionHeartbeat, Boolean>());
+	private static boolean shutdownHookAdded = false; // guarded by unclosed
+
+	/**
+	 * The play session of one player.
+	 */
+	public static final class Session
+	{
+		private final GameJoltSessionHeartbeat heartbeat;
+		private final GameJoltAPI api;
+		private final Object io = new Object(); // held while talking to Game Jolt
+		private volatile boolean active = true;
+		private volatile long lastActivity = System.nanoTime();
+
+		// guarded by this
+		private boolean open = false;
+		private boolean closed = false;
+		private boolean running = false;
+		private boolean sentActive = true;
+		private long due;
+
+		private Session(GameJoltSessionHeartbeat heartbeat, GameJoltAPI api) {
+			this.heartbeat = heartbeat;
+			this.api = api;
+		}
+
+		/**
+		 * @return The GameJoltAPI the session is pinged with.
+		 */
+		public GameJoltAPI getAPI() {
+			return api;
+		}
+
+		/**
+		 * Set the player as active or idle, e.g. idle while the game is paused.
+		 * A change is sent to Game Jolt right away.
+		 * @param active true for active, false for idle.
+		 */
+		public void setActive(boolean active) {
+			this.active = active;
+			this.lastActivity = System.nanoTime();
+			statusChanged();
+		}
+
+		/**
+		 * Note that the player did something. With an idle timeout, this keeps the player
+		 * active, and makes an idle player active again.
+		 * @see GameJoltSessionHeartbeat#setIdleTimeout(long, TimeUnit)
+		 */
+		public void touch() {
+			this.lastActivity = System.nanoTime();
+			statusChanged();
+		}
+
+		/**
+		 * Check whether the player counts as active.
+		 * @return true if the player is active, false if idle.
+		 */
+		public boolean isActive() {
+			long timeout = heartbeat.idleTimeout;
+			return active && (timeout <= 0 || System.nanoTime() - lastActivity < timeout);
+		}
+
+		/**
+		 * Check whether Game Jolt accepted the last request for the session.
+		 * @return true if the session is open.
+		 */
+		public synchronized boolean isOpen() {
+			return open;
+		}
+
+		private void statusChanged() {
+			synchronized (this) {
+				if (closed || running || !open || sentActive == isActive()) {
+					return; // the running request sends the change when it is done
+				}
+			}
+			heartbeat.schedule(this, 0);
+		}
+
+		/**
+		 * Stop pinging the session and close it at Game Jolt.
+		 * @return true if the session was closed at Game Jolt, false if it was not open or
+		 * the request failed.
+		 */
+		public boolean close() {
+			synchronized (io) {
+				boolean wasOpen;
+				synchronized (this) {
+					if (closed) {
+						return false;
+					}
+					closed = true;
+					wasOpen = open;
+					open = false;
+				}
+				heartbeat.sessions.remove(this);
+				return wasOpen && api.sessionClose();
+			}
+		}
+
+		/** Open or ping the session. Runs on the heartbeat's executor. */
+		private void run() {
+			boolean opening;
+			boolean status;
+			boolean successful;
+			synchronized (io) {
+				synchronized (this) {
+					if (closed) {
+						running = false;
+						return;
+					}
+					opening = !open;
+				}
+				status = isActive();
+				if (opening) {
+					successful = api.sessionOpen() && (status || api.sessionUpdate(false));
+				} else {
+					successful = api.sessionUpdate(status);
+				}
+			}
+			long delay;
+			synchronized (this) {
+				running = false;
+				if (closed) {
+					return;
+				}
+				open = successful;
+				if (!successful) {
+					if (api.isVerbose()) { System.err.println("GameJoltAPI: Play Session heartbeat failed, opening it again."); }
+					delay = heartbeat.jitter(RETRY);
+				} else {
+					sentActive = status;
+					if (sentActive != isActive()) {
+						delay = 0; // changed while the request was running
+					} else if (opening) {
+						delay = 1 + ThreadLocalRandom.current().nextLong(heartbeat.interval);
+					} else {
+						delay = heartbeat.jitter(heartbeat.interval);
+					}
+				}
+			}
+			heartbeat.schedule(this, delay);
+		}
+	}
+
+	/** A session waiting in a slot of the wheel. */
+	private static class Timeout
+	{
+		final Session session;
+		final long tick;
+		Timeout next;
+
+		Timeout(Session session, long tick) {
+			this.session = session;
+			this.tick = tick;
+		}
+	}
+
+	private final Set<Session> sessions = Collections.newSetFromMap(new ConcurrentHashMap<Session, Boolean>());
+	private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+	private final Timeout[] wheel = new Timeout[WHEEL_SIZE]; // only touched by the ticker
+	private final long start = System.nanoTime();
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+	private final Thread ticker;
+	private volatile long interval = TimeUnit.SECONDS.toNanos(30);
+	private volatile long idleTimeout = 0;
+	private volatile boolean closed = false;
+
+	/**
+	 * Create a heartbeat that sends its requests on virtual threads, or on daemon threads if
+	 * the JVM does not support them.
+	 */
+	public GameJoltSessionHeartbeat() {
+		this(GameJoltExecutors.newVirtualThreadExecutor(), true);
+	}
+
+	/**
+	 * Create a heartbeat that sends its requests on the given executor.
+	 * The executor is not shut down when the heartbeat is closed.
+	 * @param executor The executor to send the requests on.
+	 */
+	public GameJoltSessionHeartbeat(ExecutorService executor) {
+		this(executor, false);
+	}
+
+	private GameJoltSessionHeartbeat(ExecutorService executor, boolean ownExecutor) {
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+		ticker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				tickLoop();
+			}
+		}, "GameJoltAPI-heartbeat");
+		ticker.setDaemon(true);
+		addToShutdownHook(this);
+		ticker.start();
+	}
+
+	private static void addToShutdownHook(GameJoltSessionHeartbeat heartbeat) {
+		synchronized (unclosed) {
+			if (!shutdownHookAdded) {
+				Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (GameJoltSessionHeartbeat h : new ArrayList<>(unclosed)) {
+							if (unclosed.remove(h)) {
+								h.closeSessions();
+							}
+						}
+					}
+				}, "GameJoltAPI-heartbeat-shutdown"));
+				shutdownHookAdded = true;
+			}
+			unclosed.add(heartbeat);
+		}
+	}
+
+	/**
+	 * Set how often sessions are pinged. Game Jolt closes sessions that were not pinged for
+	 * 120 seconds. By default, this is 30 seconds, give or take 10 percent.
+	 * @param time The time between pings.
+	 * @param unit The unit of the time.
+	 */
+	public void setInterval(long time, TimeUnit unit) {
+		if (time <= 0) {
+			throw new IllegalArgumentException("interval must be positive");
+		}
+		this.interval = unit.toNanos(time);
+	}
+
+	/**
+	 * Set how long a player may do nothing before the session is reported as idle.
+	 * Call {@link Session#touch()} when the player does something. Going idle this way is
+	 * sent with the next ping. By default, this is 0 and only {@link Session#setActive(boolean)}
+	 * changes the status.
+	 * @param time The time until a player counts as idle, or 0 to never go idle by itself.
+	 * @param unit The unit of the time.
+	 */
+	public void setIdleTimeout(long time, TimeUnit unit) {
+		this.idleTimeout = unit.toNanos(time);
+	}
+
+	/**
+	 * Open a play session for the verified user of a GameJoltAPI and keep it open.
+	 * The session is opened in the background; use a separate GameJoltAPI object for every
+	 * player.
+	 * @param api The GameJoltAPI of the player.
+	 * @return The session, or null if the user is not verified or the heartbeat is closed.
+	 */
+	public Session open(GameJoltAPI api) {
+		if (closed || !api.isVerified()) {
+			return null;
+		}
+		Session session = new Session(this, api);
+		sessions.add(session);
+		schedule(session, 0);
+		return session;
+	}
+
+	/**
+	 * @return The number of sessions the heartbeat keeps open.
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	private long jitter(long delay) {
+		return delay - delay / 10 + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+	}
+
+	/** Put the session in the slot of its next request, replacing the one it was in. */
+	private void schedule(Session session, long delay) {
+		long tick = (System.nanoTime() - start) / TICK + Math.max(1, (delay + TICK - 1) / TICK);
+		synchronized (session) {
+			if (session.closed) {
+				return;
+			}
+			session.due = tick;
+		}
+		added.add(new Timeout(session, tick));
+	}
+
+	private void tickLoop() {
+		long tick = 0;
+		while (!closed) {
+			long wait = start + tick * TICK - System.nanoTime();
+			if (wait > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(wait);
+				} catch (InterruptedException e) {
+					return;
+				}
+				continue;
+			}
+			Timeout t;
+			while ((t = added.poll()) != null) {
+				int slot = (int) (Math.max(t.tick, tick) & (WHEEL_SIZE - 1));
+				t.next = wheel[slot];
+				wheel[slot] = t;
+			}
+			int slot = (int) (tick & (WHEEL_SIZE - 1));
+			Timeout previous = null;
+			t = wheel[slot];
+			while (t != null) {
+				Timeout next = t.next;
+				if (t.tick <= tick) {
+					if (previous == null) {
+						wheel[slot] = next;
+					} else {
+						previous.next = next;
+					}
+					expire(t);
+				} else {
+					previous = t; // due in a later turn of the wheel
+				}
+				t = next;
+			}
+			tick++;
+		}
+	}
+
+	private void expire(Timeout t) {
+		final Session session = t.session;
+		synchronized (session) {
+			// a session that was moved to another slot leaves its old timeout behind
+			if (session.closed || session.running || session.due != t.tick) {
+				return;
+			}
+			session.running = true;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					session.run();
+				}
+			});
+		} catch (RuntimeException e) {
+			// the executor was shut down
+			synchronized (session) {
+				session.running = false;
+			}
+		}
+	}
+
+	/**
+	 * Stop pinging and close every session at Game Jolt. This blocks until the sessions are
+	 * closed.
+	 */
+	@Override
+	public void close() {
+		if (unclosed.remove(this)) { // otherwise closed already, or by the shutdown hook
+			closeSessions();
+		}
+	}
+
+	private void closeSessions() {
+		closed = true;
+		ticker.interrupt();
+		ArrayList<Session> open = new ArrayList<>(sessions);
+		final CountDownLatch done = new CountDownLatch(open.size());
+		for (final Session session : open) {
+			Runnable task = new Runnable() {
+				@Override
+				public void run() {
+					try {
+						session.close();
+					} finally {
+						done.countDown();
+					}
+				}
+			};
+			try {
+				executor.execute(task);
+			} catch (RuntimeException e) {
+				task.run();
+			}
+		}
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+}
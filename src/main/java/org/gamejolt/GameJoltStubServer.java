@@ -0,0 +1,986 @@
+package org.gamejolt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gamejolt.Trophy.Difficulty;
+import org.json.simple.JSONValue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <b>GameJoltStubServer</b><br/>
+ * A small in-process imitation of the Game Jolt game API, for testing games and for load
+ * and latency tests without touching gamejolt.com.
+ * <p>
+ * It implements the endpoints this library uses (users, users/auth, scores, scores/add,
+ * scores/tables, scores/get-rank, trophies, trophies/add-achieved, data-store/*, sessions/*,
+ * time and batch) in the keypair, json, xml and dump formats, and rejects requests with a
+ * wrong signature just like Game Jolt does. Everything is kept in memory.
+ * <pre>
+ * GameJoltStubServer stub = new GameJoltStubServer(1, "secret");
+ * stub.addUser(1, "player", "token");
+ * stub.start();
+ * GameJoltAPI api = new GameJoltAPI(1, "secret");
+ * api.setBaseURL(stub.getBaseURL());
+ * </pre>
+ */
+public class GameJoltStubServer
+{
+	private static class StubUser
+	{
+		final int id;
+		final String name;
+		final String token;
+		final long signedUp = System.currentTimeMillis() / 1000;
+		final HashMap<Integer, String> achieved = new HashMap<>();
+		final TreeMap<String, String> dataStore = new TreeMap<>();
+		boolean sessionOpen = false;
+		String sessionStatus = "active";
+
+		StubUser(int id, String name, String token) {
+			this.id = id;
+			this.name = name;
+			this.token = token;
+		}
+	}
+
+	private static class StubTrophy
+	{
+		int id;
+		String title;
+		String description;
+		Difficulty difficulty;
+	}
+
+	private static class StubTable
+	{
+		int id;
+		String name;
+		String description;
+		boolean primary;
+		final ArrayList<StubScore> scores = new ArrayList<>(); // best first
+	}
+
+	private static class StubScore
+	{
+		String score;
+		int sort;
+		String extra;
+		StubUser user;
+		String guest;
+		long stored;
+	}
+
+	/** The result of one request, rendered in whatever format was asked for. */
+	private static class Reply
+	{
+		boolean success = true;
+		String arrayName;
+		String itemName;
+		final LinkedHashMap<String, String> values = new LinkedHashMap<>();
+		final ArrayList<LinkedHashMap<String, String>> rows = new ArrayList<>();
+		String dump; // the data for format=dump
+		String batch; // the JSON array of sub-responses of a batch request
+
+		static Reply failure(String message) {
+			Reply r = new Reply();
+			r.success = false;
+			r.values.put("message", message);
+			return r;
+		}
+
+		Reply array(String arrayName, String itemName) {
+			this.arrayName = arrayName;
+			this.itemName = itemName;
+			return this;
+		}
+	}
+
+	private final int gameId;
+	private final String privateKey;
+	private final HashMap<String, StubUser> users = new HashMap<>();
+	private final TreeMap<Integer, StubTrophy> trophies = new TreeMap<>();
+	private final TreeMap<Integer, StubTable> tables = new TreeMap<>();
+	private final TreeMap<String, String> gameDataStore = new TreeMap<>();
+	private final AtomicLong requestCount = new AtomicLong();
+	private final Set<String> connections = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final AtomicLong bytesSent = new AtomicLong();
+	private volatile long latency = 0;
+	private volatile int bandwidth = 0;
+	private volatile boolean checkSignatures = true;
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/**
+	 * Create a stub server for one game. It has a single, primary highscore table with the id 1.
+	 * @param gameId The game ID the requests have to use.
+	 * @param privateKey The private key the requests have to be signed with.
+	 */
+	public GameJoltStubServer(int gameId, String privateKey) {
+		this.gameId = gameId;
+		this.privateKey = privateKey;
+		addTable(1, "Primary", "The primary table", true);
+	}
+
+	/**
+	 * Start listening on a free port of the loopback interface.
+	 * @throws IOException if the server could not be started.
+	 */
+	public void start() throws IOException {
+		start(0);
+	}
+
+	/**
+	 * Start listening on the loopback interface.
+	 * @param port The port to listen on, or 0 for any free port.
+	 * @throws IOException if the server could not be started.
+	 */
+	public synchronized void start(int port) throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("The stub server is already running");
+		}
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), 512);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/api/game/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				GameJoltStubServer.this.handle(exchange);
+			}
+		});
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				notFound(exchange);
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * Stop the server.
+	 */
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+			executor = null;
+		}
+	}
+
+	/**
+	 * Get the address to pass to {@link GameJoltAPI#setBaseURL(String)}.
+	 * @return The base URL of the running server.
+	 */
+	public synchronized String getBaseURL() {
+		if (server == null) {
+			throw new IllegalStateException("The stub server is not running");
+		}
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/game/";
+	}
+
+	/**
+	 * Delay every response, to simulate the latency of the real server.
+	 * @param millis The delay in milliseconds.
+	 */
+	public void setLatency(long millis) {
+		this.latency = millis;
+	}
+
+	/**
+	 * Send response bodies no faster than the given rate, to simulate a slow download.
+	 * @param bytesPerSecond The rate, or 0 to send responses as fast as possible.
+	 */
+	public void setBandwidth(int bytesPerSecond) {
+		this.bandwidth = bytesPerSecond;
+	}
+
+	/**
+	 * Sets whether requests with a wrong signature are rejected. By default, this is set to true.
+	 * @param b whether to check the signatures.
+	 */
+	public void setCheckSignatures(boolean b) {
+		this.checkSignatures = b;
+	}
+
+	/**
+	 * Get the number of HTTP requests the server has received, e.g. to check that
+	 * requests were shared or batched.
+	 * @return The number of HTTP requests received.
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Get the number of response body bytes the server has written, e.g. to check that a
+	 * client stopped a download early.
+	 * @return The number of bytes written.
+	 */
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	/**
+	 * Get the number of different connections the requests have come in on, e.g. to check
+	 * that a client keeps its connections alive.
+	 * @return The number of connections seen.
+	 */
+	public long getConnectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Get the status of a user's play session, e.g. to check that it is being pinged.
+	 * @param username The user's name.
+	 * @return "active" or "idle", or null if the user has no open session.
+	 */
+	public synchronized String getSessionStatus(String username) {
+		StubUser user = users.get(username.toLowerCase());
+		return (user != null && user.sessionOpen) ? user.sessionStatus : null;
+	}
+
+	/**
+	 * Get a value of the game's data store as it is stored, e.g. to check that it was
+	 * compressed.
+	 * @param key The key of the value.
+	 * @return The stored value, or null if there is none.
+	 */
+	public synchronized String getGameDataStore(String key) {
+		return gameDataStore.get(key);
+	}
+
+	/**
+	 * Add a user that can be verified.
+	 * @param id The user's ID.
+	 * @param username The user's name.
+	 * @param token The user's token.
+	 */
+	public synchronized void addUser(int id, String username, String token) {
+		users.put(username.toLowerCase(), new StubUser(id, username, token));
+	}
+
+	/**
+	 * Add a trophy.
+	 * @param id The trophy's ID.
+	 * @param title The trophy's title.
+	 * @param description The trophy's description.
+	 * @param difficulty The trophy's difficulty.
+	 */
+	public synchronized void addTrophy(int id, String title, String description, Difficulty difficulty) {
+		StubTrophy t = new StubTrophy();
+		t.id = id;
+		t.title = title;
+		t.description = description;
+		t.difficulty = difficulty;
+		trophies.put(id, t);
+	}
+
+	/**
+	 * Add a highscore table.
+	 * @param id The table's ID.
+	 * @param name The table's name.
+	 * @param description The table's description.
+	 * @param primary Whether this becomes the primary table.
+	 */
+	public synchronized void addTable(int id, String name, String description, boolean primary) {
+		if (primary) {
+			for (StubTable t : tables.values()) {
+				t.primary = false;
+			}
+		}
+		StubTable t = new StubTable();
+		t.id = id;
+		t.name = name;
+		t.description = description;
+		t.primary = primary;
+		tables.put(id, t);
+	}
+
+	/**
+	 * Add a guest highscore directly, e.g. to fill a table for a test.
+	 * @param tableId The table's ID.
+	 * @param guest The guest's name.
+	 * @param score The score string.
+	 * @param sort The sort value.
+	 */
+	public synchronized void addGuestScore(int tableId, String guest, String score, int sort) {
+		StubScore s = new StubScore();
+		s.score = score;
+		s.sort = sort;
+		s.extra = "";
+		s.guest = guest;
+		s.stored = System.currentTimeMillis() / 1000;
+		insertScore(tables.get(tableId), s);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		connections.add(exchange.getRemoteAddress().toString());
+		try {
+			String rawQuery = exchange.getRequestURI().getRawQuery();
+			HashMap<String, String> params = parseQuery(rawQuery);
+			if ("POST".equals(exchange.getRequestMethod())) {
+				params.putAll(parseQuery(readBody(exchange.getRequestBody())));
+			}
+			String path = exchange.getRequestURI().getRawPath();
+			String method = path.substring("/api/game/".length());
+			if (method.startsWith("v")) {
+				method = method.substring(method.indexOf('/') + 1); // the version
+			}
+
+			Reply reply;
+			String signed = "http://" + exchange.getRequestHeaders().getFirst("Host") + path + "?" + rawQuery;
+			if (!hasValidSignature(signed, params)) {
+				reply = Reply.failure("The signature you entered for the request is invalid.");
+			} else if (normalize(method).equals("batch")) {
+				reply = batch(params);
+			} else {
+				reply = dispatch(normalize(method), params);
+			}
+			if (latency > 0) {
+				Thread.sleep(latency);
+			}
+			byte[] body = render(reply, params).getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				send(os, body);
+			}
+		} catch (Exception e) {
+			if (exchange.getResponseCode() == -1) {
+				exchange.sendResponseHeaders(500, -1);
+			} // otherwise the client went away during the body
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Write a response body, in slices of 50 ms if the bandwidth is limited.
+	 */
+	private void send(OutputStream os, byte[] body) throws IOException, InterruptedException {
+		int rate = bandwidth;
+		int slice = (rate > 0) ? Math.max(1, rate / 20) : Math.max(1, body.length);
+		for (int off = 0; off < body.length; off += slice) {
+			if (off > 0) {
+				Thread.sleep(50);
+			}
+			int n = Math.min(slice, body.length - off);
+			os.write(body, off, n);
+			os.flush();
+			bytesSent.addAndGet(n);
+		}
+	}
+
+	/**
+	 * Answer a request outside of the API with an error page, as a web server would.
+	 */
+	private void notFound(HttpExchange exchange) throws IOException {
+		connections.add(exchange.getRemoteAddress().toString());
+		try {
+			byte[] body = "<h1>404 Not Found</h1>".getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+			exchange.sendResponseHeaders(404, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Answer a request without going through HTTP or checking the signature, e.g. to record
+	 * responses for the parser benchmarks.
+	 * @param method The API method, such as "scores/".
+	 * @param params The parameters of the request, including the format.
+	 * @return The response as Game Jolt would send it.
+	 */
+	String respond(String method, HashMap<String, String> params) {
+		return render(dispatch(normalize(method), params), params);
+	}
+
+	private boolean hasValidSignature(String signedURL, HashMap<String, String> params) {
+		if (!checkSignatures) {
+			return true;
+		}
+		if (!String.valueOf(gameId).equals(params.get("game_id"))) {
+			return false;
+		}
+		int index = signedURL.lastIndexOf("&signature=");
+		if (index < 0) {
+			return false;
+		}
+		String expected = RequestSigner.md5(signedURL.substring(0, index) + privateKey);
+		return expected.equals(params.get("signature"));
+	}
+
+	private Reply batch(HashMap<String, String> params) throws UnsupportedEncodingException {
+		Reply reply = new Reply();
+		TreeMap<Integer, String> requests = new TreeMap<>();
+		for (Entry<String, String> e : params.entrySet()) {
+			if (e.getKey().startsWith("requests[")) {
+				String index = e.getKey().substring("requests[".length(), e.getKey().length() - 1);
+				requests.put(index.isEmpty() ? requests.size() : Integer.parseInt(index), e.getValue());
+			}
+		}
+		boolean breakOnError = "true".equals(params.get("break_on_error"));
+		ArrayList<String> responses = new ArrayList<>();
+		for (String sub : requests.values()) {
+			int query = sub.indexOf('?');
+			String path = query < 0 ? sub : sub.substring(0, query);
+			HashMap<String, String> subParams = parseQuery(query < 0 ? "" : sub.substring(query + 1));
+			Reply subReply;
+			if (!hasValidSignature(sub, subParams)) {
+				subReply = Reply.failure("The signature you entered for the request is invalid.");
+			} else {
+				subReply = dispatch(normalize(path), subParams);
+			}
+			responses.add(renderJSONObject(subReply));
+			if (breakOnError && !subReply.success) {
+				break;
+			}
+		}
+		reply.batch = "[" + join(responses) + "]";
+		return reply;
+	}
+
+	private synchronized Reply dispatch(String method, HashMap<String, String> params) {
+		switch (method) {
+			case "users":
+				return users(params);
+			case "users/auth":
+				return auth(params) != null ? new Reply() : Reply.failure("No such user with the credentials passed in could be found.");
+			case "scores":
+				return scores(params);
+			case "scores/add":
+				return addScore(params);
+			case "scores/tables":
+				return tables();
+			case "scores/get-rank":
+				return rank(params);
+			case "trophies":
+				return trophies(params);
+			case "trophies/add-achieved":
+				return achieve(params);
+			case "data-store":
+			case "data-store/set":
+			case "data-store/update":
+			case "data-store/remove":
+			case "data-store/get-keys":
+				return dataStore(method, params);
+			case "sessions/open":
+			case "sessions/ping":
+			case "sessions/check":
+			case "sessions/close":
+				return session(method, params);
+			case "time":
+			case "get-time":
+				return time();
+			default:
+				return Reply.failure("Unknown method " + method);
+		}
+	}
+
+	private StubUser auth(HashMap<String, String> params) {
+		String name = params.get("username");
+		if (name == null) {
+			return null;
+		}
+		StubUser u = users.get(name.toLowerCase());
+		if (u == null || !u.token.equals(params.get("user_token"))) {
+			return null;
+		}
+		return u;
+	}
+
+	private Reply users(HashMap<String, String> params) {
+		Reply reply = new Reply().array("users", "user");
+		if (params.containsKey("user_id")) {
+			for (String id : params.get("user_id").split(",")) {
+				for (StubUser u : users.values()) {
+					if (String.valueOf(u.id).equals(id.trim())) {
+						reply.rows.add(userRow(u));
+					}
+				}
+			}
+		} else if (params.containsKey("username")) {
+			StubUser u = users.get(params.get("username").toLowerCase());
+			if (u != null) {
+				reply.rows.add(userRow(u));
+			}
+		}
+		if (reply.rows.isEmpty()) {
+			return Reply.failure("No such user could be found.");
+		}
+		return reply;
+	}
+
+	private LinkedHashMap<String, String> userRow(StubUser u) {
+		LinkedHashMap<String, String> row = new LinkedHashMap<>();
+		row.put("id", String.valueOf(u.id));
+		row.put("type", "User");
+		row.put("username", u.name);
+		row.put("avatar_url", "http://127.0.0.1/avatar/" + u.id + ".png");
+		row.put("signed_up", "1 day ago");
+		row.put("signed_up_timestamp", String.valueOf(u.signedUp));
+		row.put("last_logged_in", "Online Now");
+		row.put("last_logged_in_timestamp", String.valueOf(System.currentTimeMillis() / 1000));
+		row.put("status", "Active");
+		return row;
+	}
+
+	private StubTable table(HashMap<String, String> params) {
+		String id = params.get("table_id");
+		if (id != null) {
+			return tables.get(Integer.parseInt(id));
+		}
+		for (StubTable t : tables.values()) {
+			if (t.primary) {
+				return t;
+			}
+		}
+		return null;
+	}
+
+	private Reply scores(HashMap<String, String> params) {
+		StubTable table = table(params);
+		if (table == null) {
+			return Reply.failure("The high score table ID you passed in does not belong to this game.");
+		}
+		StubUser user = null;
+		if (params.containsKey("username")) {
+			user = auth(params);
+			if (user == null) {
+				return Reply.failure("No such user with the credentials passed in could be found.");
+			}
+		}
+		int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : 10;
+		Reply reply = new Reply().array("scores", "score");
+		for (StubScore s : table.scores) {
+			if (reply.rows.size() >= limit) {
+				break;
+			}
+			if (user != null && s.user != user) {
+				continue;
+			}
+			if (params.containsKey("guest") && !params.get("guest").equals(s.guest)) {
+				continue;
+			}
+			LinkedHashMap<String, String> row = new LinkedHashMap<>();
+			row.put("score", s.score);
+			row.put("sort", String.valueOf(s.sort));
+			row.put("extra_data", s.extra);
+			row.put("user", s.user == null ? "" : s.user.name);
+			row.put("user_id", s.user == null ? "" : String.valueOf(s.user.id));
+			row.put("guest", s.guest == null ? "" : s.guest);
+			row.put("stored", "Just now");
+			row.put("stored_timestamp", String.valueOf(s.stored));
+			reply.rows.add(row);
+		}
+		return reply;
+	}
+
+	private Reply addScore(HashMap<String, String> params) {
+		StubTable table = table(params);
+		if (table == null) {
+			return Reply.failure("The high score table ID you passed in does not belong to this game.");
+		}
+		StubScore s = new StubScore();
+		if (params.containsKey("guest")) {
+			s.guest = params.get("guest");
+		} else {
+			s.user = auth(params);
+			if (s.user == null) {
+				return Reply.failure("No such user with the credentials passed in could be found.");
+			}
+		}
+		if (!params.containsKey("score") || !params.containsKey("sort")) {
+			return Reply.failure("You must enter a score and a sort value.");
+		}
+		s.score = params.get("score");
+		s.sort = Integer.parseInt(params.get("sort"));
+		s.extra = params.containsKey("extra_data") ? params.get("extra_data") : "";
+		s.stored = System.currentTimeMillis() / 1000;
+		insertScore(table, s);
+		return new Reply();
+	}
+
+	private void insertScore(StubTable table, StubScore s) {
+		int low = 0;
+		int high = table.scores.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (table.scores.get(mid).sort >= s.sort) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		table.scores.add(low, s);
+	}
+
+	private Reply tables() {
+		Reply reply = new Reply().array("tables", "table");
+		for (StubTable t : tables.values()) {
+			LinkedHashMap<String, String> row = new LinkedHashMap<>();
+			row.put("id", String.valueOf(t.id));
+			row.put("name", t.name);
+			row.put("description", t.description);
+			row.put("primary", t.primary ? "1" : "");
+			reply.rows.add(row);
+		}
+		return reply;
+	}
+
+	private Reply rank(HashMap<String, String> params) {
+		StubTable table = table(params);
+		if (table == null) {
+			return Reply.failure("The high score table ID you passed in does not belong to this game.");
+		}
+		if (!params.containsKey("sort")) {
+			return Reply.failure("You must pass in a sort value.");
+		}
+		int sort = Integer.parseInt(params.get("sort"));
+		int rank = 1;
+		for (StubScore s : table.scores) {
+			if (s.sort <= sort) {
+				break;
+			}
+			rank++;
+		}
+		Reply reply = new Reply();
+		reply.values.put("rank", String.valueOf(rank));
+		return reply;
+	}
+
+	private Reply trophies(HashMap<String, String> params) {
+		StubUser user = auth(params);
+		if (user == null) {
+			return Reply.failure("No such user with the credentials passed in could be found.");
+		}
+		String achieved = params.get("achieved");
+		Reply reply = new Reply().array("trophies", "trophy");
+		for (StubTrophy t : trophies.values()) {
+			if (params.containsKey("trophy_id") && !params.get("trophy_id").equals(String.valueOf(t.id))) {
+				continue;
+			}
+			String date = user.achieved.get(t.id);
+			if ("true".equals(achieved) && date == null || "false".equals(achieved) && date != null) {
+				continue;
+			}
+			LinkedHashMap<String, String> row = new LinkedHashMap<>();
+			row.put("id", String.valueOf(t.id));
+			row.put("title", t.title);
+			row.put("description", t.description);
+			String difficulty = t.difficulty.toString();
+			row.put("difficulty", difficulty.charAt(0) + difficulty.substring(1).toLowerCase());
+			row.put("image_url", "http://127.0.0.1/trophy/" + t.id + ".png");
+			row.put("achieved", date == null ? "false" : date);
+			reply.rows.add(row);
+		}
+		if (params.containsKey("trophy_id") && reply.rows.isEmpty()) {
+			return Reply.failure("Incorrect trophy ID.");
+		}
+		return reply;
+	}
+
+	private Reply achieve(HashMap<String, String> params) {
+		StubUser user = auth(params);
+		if (user == null) {
+			return Reply.failure("No such user with the credentials passed in could be found.");
+		}
+		Integer id = params.containsKey("trophy_id") ? Integer.valueOf(params.get("trophy_id")) : null;
+		if (id == null || !trophies.containsKey(id)) {
+			return Reply.failure("Incorrect trophy ID.");
+		}
+		if (user.achieved.containsKey(id)) {
+			return Reply.failure("The user already has this trophy.");
+		}
+		user.achieved.put(id, "Just now");
+		return new Reply();
+	}
+
+	private Reply dataStore(String method, HashMap<String, String> params) {
+		TreeMap<String, String> store = gameDataStore;
+		if (params.containsKey("username")) {
+			StubUser user = auth(params);
+			if (user == null) {
+				return Reply.failure("No such user with the credentials passed in could be found.");
+			}
+			store = user.dataStore;
+		}
+		if (method.equals("data-store/get-keys")) {
+			Reply reply = new Reply().array("keys", "key");
+			for (String key : store.keySet()) {
+				LinkedHashMap<String, String> row = new LinkedHashMap<>();
+				row.put("key", key);
+				reply.rows.add(row);
+			}
+			return reply;
+		}
+		String key = params.get("key");
+		if (key == null) {
+			return Reply.failure("You must enter a key with the request.");
+		}
+		Reply reply = new Reply();
+		switch (method) {
+			case "data-store":
+				if (!store.containsKey(key)) {
+					return Reply.failure("There is no item with the key passed in.");
+				}
+				reply.dump = store.get(key);
+				reply.values.put("data", reply.dump);
+				return reply;
+			case "data-store/set":
+				if (!params.containsKey("data")) {
+					return Reply.failure("You must enter data with the request.");
+				}
+				store.put(key, params.get("data"));
+				return reply;
+			case "data-store/remove":
+				if (store.remove(key) == null) {
+					return Reply.failure("There is no item with the key passed in.");
+				}
+				return reply;
+			default: // update
+				if (!store.containsKey(key)) {
+					return Reply.failure("There is no item with the key passed in.");
+				}
+				String value = params.containsKey("value") ? params.get("value") : "";
+				String data = update(store.get(key), String.valueOf(params.get("operation")), value);
+				if (data == null) {
+					return Reply.failure("Value must be numeric if operation is a numeric operation.");
+				}
+				store.put(key, data);
+				reply.dump = data;
+				reply.values.put("data", data);
+				return reply;
+		}
+	}
+
+	private static String update(String data, String operation, String value) {
+		switch (operation) {
+			case "append":
+				return data + value;
+			case "prepend":
+				return value + data;
+			default:
+				try {
+					long a = Long.parseLong(data);
+					long b = Long.parseLong(value);
+					switch (operation) {
+						case "add": return String.valueOf(a + b);
+						case "subtract": return String.valueOf(a - b);
+						case "multiply": return String.valueOf(a * b);
+						case "divide": return String.valueOf(a / b);
+						default: return null;
+					}
+				} catch (RuntimeException e) {
+					return null;
+				}
+		}
+	}
+
+	private Reply session(String method, HashMap<String, String> params) {
+		StubUser user = auth(params);
+		if (user == null) {
+			return Reply.failure("No such user with the credentials passed in could be found.");
+		}
+		switch (method) {
+			case "sessions/open":
+				user.sessionOpen = true;
+				user.sessionStatus = "active";
+				return new Reply();
+			case "sessions/ping":
+				if (!user.sessionOpen) {
+					return Reply.failure("Could not find an open session. You must open a new one.");
+				}
+				if (params.containsKey("status")) {
+					user.sessionStatus = params.get("status");
+				}
+				return new Reply();
+			case "sessions/check":
+				return user.sessionOpen ? new Reply() : Reply.failure("There is no open session.");
+			default: // close
+				if (!user.sessionOpen) {
+					return Reply.failure("Could not find an open session.");
+				}
+				user.sessionOpen = false;
+				return new Reply();
+		}
+	}
+
+	private Reply time() {
+		TimeZone zone = TimeZone.getTimeZone("America/New_York");
+		Calendar c = Calendar.getInstance(zone);
+		Reply reply = new Reply();
+		reply.values.put("timestamp", String.valueOf(c.getTimeInMillis() / 1000));
+		reply.values.put("timezone", zone.getID());
+		reply.values.put("year", String.valueOf(c.get(Calendar.YEAR)));
+		reply.values.put("month", String.valueOf(c.get(Calendar.MONTH) + 1));
+		reply.values.put("day", String.valueOf(c.get(Calendar.DAY_OF_MONTH)));
+		reply.values.put("hour", String.valueOf(c.get(Calendar.HOUR_OF_DAY)));
+		reply.values.put("minute", String.valueOf(c.get(Calendar.MINUTE)));
+		reply.values.put("seconds", String.valueOf(c.get(Calendar.SECOND)));
+		return reply;
+	}
+
+	/*
+	 * Rendering
+	 */
+
+	private String render(Reply reply, HashMap<String, String> params) {
+		String format = params.containsKey("format") ? params.get("format") : "keypair";
+		if (reply.batch != null) {
+			// batch responses are always json
+			return "{\"response\":{\"success\":\"" + reply.success + "\",\"responses\":" + reply.batch + "}}";
+		}
+		switch (format) {
+			case "dump":
+				return (reply.success ? "SUCCESS\r\n" + (reply.dump == null ? "" : reply.dump)
+						: "FAILURE\r\n" + reply.values.get("message"));
+			case "json":
+				return "{\"response\":" + renderJSONObject(reply) + "}";
+			case "xml":
+				return renderXML(reply);
+			default:
+				return renderKeypair(reply);
+		}
+	}
+
+	private static String renderKeypair(Reply reply) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("success:\"").append(reply.success).append("\"\n");
+		for (Entry<String, String> e : reply.values.entrySet()) {
+			sb.append(e.getKey()).append(":\"").append(e.getValue()).append("\"\n");
+		}
+		for (LinkedHashMap<String, String> row : reply.rows) {
+			for (Entry<String, String> e : row.entrySet()) {
+				sb.append(e.getKey()).append(":\"").append(e.getValue()).append("\"\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String renderJSONObject(Reply reply) {
+		LinkedHashMap<String, Object> response = new LinkedHashMap<>();
+		response.put("success", String.valueOf(reply.success));
+		response.putAll(reply.values);
+		if (reply.arrayName != null) {
+			response.put(reply.arrayName, reply.rows);
+		}
+		return JSONValue.toJSONString(response);
+	}
+
+	private static String renderXML(Reply reply) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><response>");
+		sb.append("<success>").append(reply.success).append("</success>");
+		if (reply.arrayName != null) {
+			// the array comes right after success, as on Game Jolt
+			sb.append('<').append(reply.arrayName).append('>');
+			for (LinkedHashMap<String, String> row : reply.rows) {
+				sb.append('<').append(reply.itemName).append('>');
+				appendXMLValues(sb, row);
+				sb.append("</").append(reply.itemName).append('>');
+			}
+			sb.append("</").append(reply.arrayName).append('>');
+		}
+		appendXMLValues(sb, reply.values);
+		sb.append("</response>");
+		return sb.toString();
+	}
+
+	private static void appendXMLValues(StringBuilder sb, LinkedHashMap<String, String> values) {
+		for (Entry<String, String> e : values.entrySet()) {
+			sb.append('<').append(e.getKey()).append('>');
+			String v = e.getValue();
+			for (int i = 0; i < v.length(); i++) {
+				char c = v.charAt(i);
+				switch (c) {
+					case '<': sb.append("&lt;"); break;
+					case '>': sb.append("&gt;"); break;
+					case '&': sb.append("&amp;"); break;
+					default: sb.append(c);
+				}
+			}
+			sb.append("</").append(e.getKey()).append('>');
+		}
+	}
+
+	/*
+	 * Helpers
+	 */
+
+	private static String normalize(String method) {
+		int start = 0;
+		int end = method.length();
+		while (start < end && method.charAt(start) == '/') { start++; }
+		while (end > start && method.charAt(end - 1) == '/') { end--; }
+		return method.substring(start, end);
+	}
+
+	private static HashMap<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+		HashMap<String, String> params = new HashMap<>();
+		if (query == null) {
+			return params;
+		}
+		for (String pair : query.split("&")) {
+			if (pair.length() == 0) {
+				continue;
+			}
+			int eq = pair.indexOf('=');
+			String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+			String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+			params.put(key, value);
+		}
+		return params;
+	}
+
+	private static String readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			body.write(buffer, 0, read);
+		}
+		return body.toString("UTF-8");
+	}
+
+	private static String join(ArrayList<String> parts) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < parts.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(parts.get(i));
+		}
+		return sb.toString();
+	}
+}
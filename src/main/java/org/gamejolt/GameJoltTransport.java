@@ -0,0 +1,34 @@
+package org.gamejolt;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <b>GameJoltTransport</b><br/>
+ * Performs the HTTP requests for a GameJoltAPI object. The default implementation is
+ * {@link GameJoltHttpTransport}; supply your own with {@link GameJoltAPI#setTransport(GameJoltTransport)}
+ * if you need a different HTTP client, proxying or instrumentation.
+ * <p>
+ * Implementations must be safe to use from several threads at once.
+ * The stream returned by either method must be closed by the caller, which allows
+ * the implementation to reuse the underlying connection.
+ */
+public interface GameJoltTransport
+{
+	/**
+	 * Performs a GET request.
+	 * @param url The full, signed request URL.
+	 * @return The body of the response.
+	 * @throws IOException if the request could not be completed.
+	 */
+	public InputStream get(String url) throws IOException;
+
+	/**
+	 * Performs a POST request with a form encoded body.
+	 * @param url The full, signed request URL.
+	 * @param body The form encoded body, e.g. "data=abc".
+	 * @return The body of the response.
+	 * @throws IOException if the request could not be completed.
+	 */
+	public InputStream post(String url, String body) throws IOException;
+}
@@ -0,0 +1,491 @@
+package org.gamejolt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import org.gamejolt.DataStore.DataStoreType;
+
+/**
+ * <b>GameJoltWriteQueue</b><br/>
+ * Makes sure highscores, trophies and data store writes reach Game Jolt even if the network
+ * is down when they happen, or the game is closed before they could be sent.
+ * <p>
+ * Every write is first appended to a journal file on disk and then sent in the background,
+ * in the order it was queued. Writes that fail because Game Jolt could not be reached are
+ * retried until they get through, also after the game was restarted with the same journal
+ * file. The calling thread never waits for the network.
+ * <p>
+ * Writes are made durable in groups: a background thread writes everything that was queued
+ * since the last fsync and then syncs once. Use {@link #flush()} if you need to know that the
+ * writes are on disk, e.g. right before the game exits.
+ * <p>
+ * A write is sent at least once. Writes that were already delivered are recorded in the
+ * journal and never sent again; the same trophy queued twice for the same user is only
+ * sent once. If the game dies right after Game Jolt accepted a write but before that was
+ * recorded, the write will be sent once more on the next start. Achieving a trophy or
+ * setting a data store key twice does no harm, but Game Jolt has no way to recognise a
+ * repeated highscore, so in that case the highscore is added twice.
+ */
+public class GameJoltWriteQueue implements Closeable
+{
+	private static final byte RECORD_WRITE = 1;
+	private static final byte RECORD_DONE = 2;
+
+	private static final long MIN_RETRY_DELAY = 1000;
+	private static final long MAX_RETRY_DELAY = 60000;
+
+	/** A queued write. */
+	private static class Write
+	{
+		final long id;
+		final String method;
+		final boolean post;
+		final LinkedHashMap<String, String> params;
+		final LinkedHashMap<String, String> postParams;
+		final String dedupKey;
+
+		Write(long id, String method, boolean post, LinkedHashMap<String, String> params, LinkedHashMap<String, String> postParams, String dedupKey) {
+			this.id = id;
+			this.method = method;
+			this.post = post;
+			this.params = params;
+			this.postParams = postParams;
+			this.dedupKey = dedupKey;
+		}
+	}
+
+	private final GameJoltAPI api;
+	private final GameJoltJournal journal;
+	private final Object lock = new Object();
+
+	// guarded by lock
+	private final ArrayDeque<byte[]> unwritten = new ArrayDeque<>();
+	private final ArrayDeque<Write> unwrittenWrites = new ArrayDeque<>();
+	private final ArrayDeque<Write> undelivered = new ArrayDeque<>();
+	private final HashSet<String> pendingKeys = new HashSet<>();
+	private long nextId = 1;
+	private long queuedCount = 0;
+	private long syncedCount = 0;
+	private int outstanding = 0;
+	private IOException journalError = null;
+	private boolean closed = false;
+
+	private final Thread writer;
+	private final Thread sender;
+
+	/**
+	 * Open the write queue. Writes left in the journal from a previous run are sent again.
+	 * @param api The GameJoltAPI object to send the writes with.
+	 * @param journalFile The file to keep the queued writes in, e.g. "gjapi-queue.dat".
+	 * @throws IOException if the journal file could not be opened or read.
+	 */
+	public GameJoltWriteQueue(GameJoltAPI api, File journalFile) throws IOException {
+		this.api = api;
+		this.journal = new GameJoltJournal(journalFile);
+		recover();
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "GameJoltAPI-journal");
+		writer.setDaemon(true);
+		sender = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				sendLoop();
+			}
+		}, "GameJoltAPI-sender");
+		sender.setDaemon(true);
+		writer.start();
+		sender.start();
+	}
+
+	/**
+	 * Queue a highscore for the currently verified user. In the rare case that the game dies
+	 * between Game Jolt accepting the highscore and the queue recording it, it is added again
+	 * on the next start.
+	 * @see GameJoltAPI#addHighscore(int, String, int, String)
+	 * @return true if the highscore was queued, false if the user is not verified or the queue is closed.
+	 */
+	public boolean addHighscore(int id, String score, int sort, String extra) {
+		LinkedHashMap<String, String> params = new LinkedHashMap<>();
+		if (!api.addCredentials(params)) {
+			return false;
+		}
+		params.put("score", ""+score);
+		params.put("extra_data", ""+extra);
+		params.put("sort", ""+sort);
+		if (id!=0)
+			params.put("table_id", String.valueOf(id));
+		return queue("scores/add", false, params, null, null);
+	}
+
+	/**
+	 * Queue a highscore for a guest. Like {@link #addHighscore(int, String, int, String)}, it
+	 * can be added twice if the game dies while it is being sent.
+	 * @see GameJoltAPI#addHighscore(int, String, String, int, String)
+	 * @return true if the highscore was queued, false if the queue is closed.
+	 */
+	public boolean addHighscore(int id, String guest_username, String score, int sort, String extra) {
+		LinkedHashMap<String, String> params = new LinkedHashMap<>();
+		params.put("guest", guest_username);
+		params.put("score", ""+score);
+		params.put("sort", ""+sort);
+		params.put("extra_data", ""+extra);
+		if (id!=0)
+			params.put("table_id", String.valueOf(id));
+		return queue("scores/add", false, params, null, null);
+	}
+
+	/**
+	 * Queue a trophy for the currently verified user. Queueing a trophy that is already
+	 * waiting to be sent for the same user does nothing.
+	 * @see GameJoltAPI#achieveTrophy(int)
+	 * @return true if the trophy was queued or is already queued, false if the user is not verified or the queue is closed.
+	 */
+	public boolean achieveTrophy(int trophyId) {
+		LinkedHashMap<String, String> params = new LinkedHashMap<>();
+		if (!api.addCredentials(params)) {
+			return false;
+		}
+		params.put("trophy_id", String.valueOf(trophyId));
+		return queue("trophies/add-achieved", false, params, null, params.get("username") + "/trophy/" + trophyId);
+	}
+
+	/**
+	 * Queue a data store write.
+	 * @see GameJoltAPI#setDataStore(DataStoreType, String, String)
+	 * @return true if the write was queued, false if it is a user data store and the user is not verified, or the queue is closed.
+	 */
+	public boolean setDataStore(DataStoreType type, String key, String data) {
+		LinkedHashMap<String, String> params = new LinkedHashMap<>();
+		if (type == DataStoreType.USER && !api.addCredentials(params)) {
+			return false;
+		}
+		params.put("key", ""+key);
+		LinkedHashMap<String, String> postParams = new LinkedHashMap<>();
+		postParams.put("data", api.encodeDataStore(""+data));
+		return queue("data-store/set", true, params, postParams, null);
+	}
+
+	/**
+	 * Get the number of writes that have not been delivered to Game Jolt yet.
+	 * @return The number of queued writes.
+	 */
+	public int getPendingCount() {
+		synchronized (lock) {
+			return outstanding;
+		}
+	}
+
+	/**
+	 * Wait until everything queued so far is written to disk.
+	 * @throws IOException if the journal could not be written.
+	 * @throws InterruptedException if the thread was interrupted while waiting.
+	 */
+	public void flush() throws IOException, InterruptedException {
+		synchronized (lock) {
+			long target = queuedCount;
+			while (syncedCount < target && journalError == null && writer.isAlive()) {
+				lock.wait();
+			}
+			if (journalError != null) {
+				throw journalError;
+			}
+		}
+	}
+
+	/**
+	 * Write everything that is queued to disk and stop sending. Writes that were not
+	 * delivered yet stay in the journal and are sent the next time it is opened.
+	 * @throws IOException if the journal could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			lock.notifyAll();
+		}
+		sender.interrupt();
+		try {
+			writer.join();
+			sender.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		journal.close();
+		synchronized (lock) {
+			if (journalError != null) {
+				throw journalError;
+			}
+		}
+	}
+
+	private boolean queue(String method, boolean post, LinkedHashMap<String, String> params, LinkedHashMap<String, String> postParams, String dedupKey) {
+		synchronized (lock) {
+			if (closed) {
+				return false;
+			}
+			if (dedupKey != null && !pendingKeys.add(dedupKey)) {
+				return true; // already waiting to be sent
+			}
+			Write w = new Write(nextId++, method, post, params, postParams, dedupKey);
+			unwritten.add(encodeWrite(w));
+			unwrittenWrites.add(w);
+			queuedCount++;
+			outstanding++;
+			lock.notifyAll();
+			return true;
+		}
+	}
+
+	/**
+	 * Writes queued records to the journal; one fsync for everything that piled up meanwhile.
+	 */
+	private void writeLoop() {
+		ArrayList<byte[]> records = new ArrayList<>();
+		ArrayList<Write> writes = new ArrayList<>();
+		while (true) {
+			long count;
+			boolean compact;
+			synchronized (lock) {
+				while (unwritten.isEmpty() && !closed) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (unwritten.isEmpty()) {
+					return; // closed and everything is written
+				}
+				records.addAll(unwritten);
+				writes.addAll(unwrittenWrites);
+				unwritten.clear();
+				unwrittenWrites.clear();
+				count = queuedCount;
+				compact = outstanding == 0;
+			}
+			try {
+				if (compact) {
+					// everything in the journal was delivered, start over with an empty file
+					journal.reset();
+				} else {
+					for (byte[] record : records) {
+						journal.append(record);
+					}
+					journal.sync();
+				}
+			} catch (IOException e) {
+				synchronized (lock) {
+					journalError = e;
+					lock.notifyAll();
+				}
+				if (api.isVerbose()) { System.err.println("GameJoltAPI: Could not write the queue journal: " + e.getMessage()); }
+				return;
+			}
+			synchronized (lock) {
+				syncedCount = count;
+				undelivered.addAll(writes); // only send what is safely on disk
+				lock.notifyAll();
+			}
+			records.clear();
+			writes.clear();
+		}
+	}
+
+	/**
+	 * Sends the durable writes one after the other, retrying while Game Jolt can't be reached.
+	 */
+	private void sendLoop() {
+		long delay = MIN_RETRY_DELAY;
+		while (true) {
+			Write w;
+			synchronized (lock) {
+				while (undelivered.isEmpty() && !closed) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (closed) {
+					return;
+				}
+				w = undelivered.peek();
+			}
+			String response = send(w);
+			if (response == null || response.equals("REQUEST_FAILED")) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					return;
+				}
+				delay = Math.min(delay * 2, MAX_RETRY_DELAY);
+				continue;
+			}
+			delay = MIN_RETRY_DELAY;
+			if (isSuccessful(response)) {
+				delivered(w);
+			} else if (api.isVerbose()) {
+				System.err.println("GameJoltAPI: Game Jolt rejected a queued " + w.method + " request: " + response);
+			}
+			synchronized (lock) {
+				undelivered.poll();
+				if (w.dedupKey != null) {
+					pendingKeys.remove(w.dedupKey);
+				}
+				outstanding--;
+				unwritten.add(encodeDone(w.id));
+				queuedCount++;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private boolean isSuccessful(String response) {
+		try {
+			return api.getParser().isSuccessful(response);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Tell the api about a trophy or highscore Game Jolt accepted, the way its own
+	 * achieveTrophy and addHighscore do, so it is not sent again and mirrors see it.
+	 */
+	private void delivered(Write w) {
+		if (w.method.equals("trophies/add-achieved")) {
+			api.trophyAchieved(w.params.get("username"), Integer.parseInt(w.params.get("trophy_id")));
+		} else if (w.method.equals("scores/add")) {
+			String table = w.params.get("table_id");
+			api.highscoreAdded(table == null ? 0 : Integer.parseInt(table), Integer.parseInt(w.params.get("sort")));
+		}
+	}
+
+	private String send(Write w) {
+		// the parameters already contain the credentials, so the request can be repeated
+		// after a restart even if no user is verified at that point.
+		HashMap<String, String> params = new HashMap<String, String>(w.params);
+		if (w.post) {
+			return api.requestAsPost(w.method, params, new HashMap<String, String>(w.postParams), false);
+		}
+		return api.request(w.method, params, false);
+	}
+
+	private void recover() throws IOException {
+		LinkedHashMap<Long, Write> writes = new LinkedHashMap<>();
+		for (byte[] record : journal.recover()) {
+			try {
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+				byte kind = in.readByte();
+				long id = in.readLong();
+				if (kind == RECORD_WRITE) {
+					String method = readString(in);
+					boolean post = in.readBoolean();
+					LinkedHashMap<String, String> params = readMap(in);
+					LinkedHashMap<String, String> postParams = post ? readMap(in) : null;
+					String dedupKey = in.readBoolean() ? readString(in) : null;
+					writes.put(id, new Write(id, method, post, params, postParams, dedupKey));
+				} else if (kind == RECORD_DONE) {
+					writes.remove(id);
+				} else {
+					continue;
+				}
+				nextId = Math.max(nextId, id + 1);
+			} catch (IOException e) {
+				// not a record of this queue, found while skipping a damaged part of the journal
+				if (api.isVerbose()) { System.err.println("GameJoltAPI: Skipped an unreadable record of the queue journal."); }
+			}
+		}
+		for (Write w : writes.values()) {
+			if (w.dedupKey != null && !pendingKeys.add(w.dedupKey)) {
+				continue; // the same trophy was queued twice
+			}
+			undelivered.add(w);
+			outstanding++;
+		}
+		if (outstanding == 0 && journal.size() > 0) {
+			journal.reset();
+		}
+	}
+
+	private static byte[] encodeWrite(Write w) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(RECORD_WRITE);
+			out.writeLong(w.id);
+			writeString(out, w.method);
+			out.writeBoolean(w.post);
+			writeMap(out, w.params);
+			if (w.post) {
+				writeMap(out, w.postParams);
+			}
+			out.writeBoolean(w.dedupKey != null);
+			if (w.dedupKey != null) {
+				writeString(out, w.dedupKey);
+			}
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // can't happen with a ByteArrayOutputStream
+		}
+	}
+
+	private static byte[] encodeDone(long id) {
+		return new byte[] {RECORD_DONE,
+				(byte) (id >>> 56), (byte) (id >>> 48), (byte) (id >>> 40), (byte) (id >>> 32),
+				(byte) (id >>> 24), (byte) (id >>> 16), (byte) (id >>> 8), (byte) id};
+	}
+
+	// strings are written as length and UTF-8 bytes, writeUTF is limited to 64kb
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > in.available()) {
+			throw new IOException("Malformed record");
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	private static void writeMap(DataOutputStream out, LinkedHashMap<String, String> map) throws IOException {
+		out.writeInt(map.size());
+		for (Entry<String, String> e : map.entrySet()) {
+			writeString(out, e.getKey());
+			writeString(out, e.getValue());
+		}
+	}
+
+	private static LinkedHashMap<String, String> readMap(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		LinkedHashMap<String, String> map = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			map.put(readString(in), readString(in));
+		}
+		return map;
+	}
+}
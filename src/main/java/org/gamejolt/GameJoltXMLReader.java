@@ -0,0 +1,214 @@
+package org.gamejolt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads a format=xml response with StAX, in one pass and without building a DOM.
+ * <p>
+ * A child of &lt;response&gt; that contains elements is a list, such as
+ * &lt;scores&gt;&lt;score&gt;...&lt;/score&gt;&lt;/scores&gt;; any other child is a
+ * top-level value. When a list name is given, that list is streamed by {@link #nextRow()}
+ * and the other lists are skipped. Without a list name every list is collected into the
+ * response, which is how {@link GameJoltXMLParser#parse(String)} uses it.
+ */
+class GameJoltXMLReader extends GameJoltRowReader
+{
+	/** Creating a factory looks up the implementation on the classpath, so each thread keeps one. */
+	private static final ThreadLocal<XMLInputFactory> FACTORY = new ThreadLocal<XMLInputFactory>() {
+		@Override
+		protected XMLInputFactory initialValue() {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			return factory;
+		}
+	};
+
+	private enum State { START, IN_ARRAY, END }
+
+	private final XMLStreamReader xml;
+	private final Closeable source;
+	private final StringBuilder text = new StringBuilder();
+	private final LazyProperties.Builder builder = new LazyProperties.Builder();
+	private State state = State.START;
+
+	/**
+	 * @param in The response body.
+	 * @param arrayName The name of the list to read, such as "scores", or null to collect every list.
+	 * @param properties The properties to keep of each object, or null to keep all of them.
+	 */
+	GameJoltXMLReader(InputStream in, String arrayName, String[] properties) throws IOException {
+		super(arrayName, properties);
+		this.source = in;
+		try {
+			this.xml = FACTORY.get().createXMLStreamReader(in);
+		} catch (XMLStreamException e) {
+			throw new IOException("Malformed XML response", e);
+		}
+	}
+
+	GameJoltXMLReader(Reader in, String arrayName, String[] properties) throws IOException {
+		super(arrayName, properties);
+		this.source = in;
+		try {
+			this.xml = FACTORY.get().createXMLStreamReader(in);
+		} catch (XMLStreamException e) {
+			throw new IOException("Malformed XML response", e);
+		}
+	}
+
+	@Override
+	PropertyContainer nextRow() throws IOException {
+		try {
+			if (state == State.START) {
+				state = (nextTag() == XMLStreamConstants.START_ELEMENT && readResponseValues(arrayName != null))
+						? State.IN_ARRAY : State.END;
+			}
+			if (state == State.IN_ARRAY) {
+				if (nextTag() == XMLStreamConstants.START_ELEMENT) {
+					return readRow();
+				}
+				readResponseValues(false); // the values after the list
+				state = State.END;
+			}
+			return null;
+		} catch (XMLStreamException e) {
+			throw new IOException("Malformed XML response", e);
+		}
+	}
+
+	/**
+	 * Read the children of &lt;response&gt;.
+	 * @param stopAtArray Whether to stop at the start of the list.
+	 * @return true if it stopped at the list, false at the end of the response.
+	 */
+	private boolean readResponseValues(boolean stopAtArray) throws XMLStreamException {
+		while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String name = xml.getLocalName();
+			if (stopAtArray && name.equals(arrayName)) {
+				return true;
+			}
+			text.setLength(0);
+			int event;
+			while ((event = xml.next()) != XMLStreamConstants.END_ELEMENT) {
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					// a list
+					if (arrayName == null) {
+						response.addArray(name, readRows());
+					} else {
+						skipElement();
+						skipRest();
+					}
+					break;
+				}
+				appendText(event);
+			}
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				String value = text.toString();
+				response.addProperty(name, value);
+				if (name.equals("success")) {
+					response.setSuccessful(value.equals("true"));
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Read the objects of a list, starting at the first one, up to the end of the list.
+	 */
+	private ArrayList<PropertyContainer> readRows() throws XMLStreamException {
+		ArrayList<PropertyContainer> rows = new ArrayList<>();
+		do {
+			rows.add(readRow());
+		} while (nextTag() == XMLStreamConstants.START_ELEMENT);
+		return rows;
+	}
+
+	/**
+	 * Read one object of a list, starting at its start element, up to its end element.
+	 */
+	private PropertyContainer readRow() throws XMLStreamException {
+		while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String key = wantedName(xml.getLocalName());
+			if (key == null) {
+				skipElement();
+				continue;
+			}
+			text.setLength(0);
+			int event;
+			while ((event = xml.next()) != XMLStreamConstants.END_ELEMENT) {
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					skipElement();
+				} else {
+					appendText(event);
+				}
+			}
+			builder.add(key, text);
+		}
+		return builder.build();
+	}
+
+	private void appendText(int event) {
+		if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+				|| event == XMLStreamConstants.SPACE) {
+			text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+		}
+	}
+
+	/**
+	 * Skip the element that has just started, including its content.
+	 */
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Skip the rest of the current element.
+	 */
+	private void skipRest() throws XMLStreamException {
+		while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+			skipElement();
+		}
+	}
+
+	/**
+	 * Move to the next start or end element, ignoring text, comments and the like.
+	 */
+	private int nextTag() throws XMLStreamException {
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+				return event;
+			}
+		}
+		return XMLStreamConstants.END_DOCUMENT;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			xml.close();
+		} catch (XMLStreamException e) {
+			// the source is closed below anyway
+		}
+		source.close();
+	}
+}
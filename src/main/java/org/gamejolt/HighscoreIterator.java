@@ -0,0 +1,130 @@
+package org.gamejolt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <b>HighscoreIterator</b><br/>
+ * Iterates over the highscores of a response while it is still being read from the
+ * connection. Each call to {@link #next()} parses one more highscore, so memory stays the
+ * same however many highscores were asked for, and a slow consumer simply slows down the
+ * download.
+ * <p>
+ * The iterator holds one of the transport's connections until the last highscore has been
+ * read. Close it yourself if you stop early, preferably with try-with-resources; the rest of
+ * the response is then dropped rather than downloaded:
+ * <pre>
+ * try (HighscoreIterator it = api.getHighscoreIterator(0, true, 100000)) {
+ *     while (it.hasNext()) {
+ *         Highscore h = it.next();
+ *     }
+ * }
+ * </pre>
+ * This class is only instantiated from within the org.gamejolt.* package.
+ */
+public final class HighscoreIterator implements Iterator<Highscore>, Closeable
+{
+	private final InputStream in;
+	private final GameJoltRowReader reader;
+	private PropertyContainer next;
+	private boolean done = false;
+	private IOException error;
+
+	/**
+	 * @param in The response the reader reads from.
+	 */
+	HighscoreIterator(InputStream in, GameJoltRowReader reader) {
+		this.in = in;
+		this.reader = reader;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		if (done) {
+			return false;
+		}
+		try {
+			next = reader.nextRow();
+		} catch (IOException e) {
+			error = e;
+			next = null;
+		}
+		if (next == null) {
+			done = true;
+			closeQuietly();
+		}
+		return next != null;
+	}
+
+	@Override
+	public Highscore next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Highscore h = new Highscore(next);
+		next = null;
+		return h;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Highscores can not be removed");
+	}
+
+	/**
+	 * Whether Game Jolt reported success and the response could be read. This is only
+	 * known once {@link #hasNext()} has returned false.
+	 * @return true if the request was successful and every highscore was read.
+	 */
+	public boolean isSuccessful() {
+		return error == null && reader.getResponse().isSuccessful();
+	}
+
+	/**
+	 * Get the message Game Jolt sent with an unsuccessful response.
+	 * @return The message, or null.
+	 */
+	public String getMessage() {
+		return reader.getResponse().getMessage();
+	}
+
+	/**
+	 * Get the error that stopped the iteration early, for example a dropped connection.
+	 * @return The error, or null if there was none.
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Stop reading and release the connection. If not every highscore has been read, the
+	 * connection is closed rather than kept alive.
+	 */
+	@Override
+	public void close() throws IOException {
+		boolean exhausted = done;
+		done = true;
+		next = null;
+		try {
+			if (!exhausted) {
+				GameJoltHttpTransport.abort(in);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			reader.close();
+		} catch (IOException e) {
+			// the highscores have been read already
+		}
+	}
+}
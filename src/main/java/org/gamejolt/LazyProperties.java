@@ -0,0 +1,172 @@
+package org.gamejolt;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The properties of one object in a response, kept as offsets into a buffer of the response
+ * text. A value only becomes a String when it is asked for, so a leaderboard that only reads
+ * "sort" and "user_id" does not pay for the other fields.
+ * <p>
+ * The buffer is shared by many objects of the same response and is never changed after the
+ * object is built, so copies of a {@link PropertyContainer} can share this without copying.
+ * Strings that have been created are cached; the cache may be filled by several threads at
+ * once, which is harmless because they create equal Strings.
+ */
+final class LazyProperties
+{
+	private final String[] keys;
+	private final char[] buffer;
+	private final int[] offsets;
+	private String[] values;
+
+	private LazyProperties(String[] keys, char[] buffer, int[] offsets) {
+		this.keys = keys;
+		this.buffer = buffer;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Get the value of a property.
+	 * @param key The name of the property.
+	 * @return The value, or null if the object does not have the property.
+	 */
+	String get(String key) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == key || keys[i].equals(key)) {
+				return valueAt(i);
+			}
+		}
+		return null;
+	}
+
+	int size() {
+		return keys.length;
+	}
+
+	String keyAt(int i) {
+		return keys[i];
+	}
+
+	String valueAt(int i) {
+		String[] cache = values;
+		if (cache == null) {
+			cache = new String[keys.length];
+			values = cache;
+		}
+		String value = cache[i];
+		if (value == null) {
+			value = new String(buffer, offsets[i * 2], offsets[i * 2 + 1]);
+			cache[i] = value;
+		}
+		return value;
+	}
+
+	/**
+	 * Builds the objects of one response. Values are appended to a chunk of chars; the chunks
+	 * start small and grow, and one object always lies within one chunk.
+	 */
+	static final class Builder
+	{
+		private static final Charset UTF8 = Charset.forName("UTF-8");
+		private static final int FIRST_CHUNK = 512;
+		private static final int MAX_CHUNK = 16 * 1024;
+
+		private char[] chunk = new char[FIRST_CHUNK];
+		private int used = 0;
+		private int rowStart = 0;
+
+		private String[] keys = new String[8];
+		private int[] offsets = new int[16];
+		private int size = 0;
+		private String[] lastKeys;
+
+		/**
+		 * Add a property to the object being built.
+		 * @param key The name of the property.
+		 * @param value The value.
+		 */
+		void add(String key, CharSequence value) {
+			int length = value.length();
+			int start = reserve(key, length);
+			if (value instanceof StringBuilder) {
+				((StringBuilder) value).getChars(0, length, chunk, start);
+			} else {
+				value.toString().getChars(0, length, chunk, start);
+			}
+		}
+
+		/**
+		 * Add a property whose value is UTF-8 encoded.
+		 * @param key The name of the property.
+		 * @param bytes The buffer holding the value.
+		 * @param offset The start of the value.
+		 * @param length The number of bytes of the value.
+		 */
+		void add(String key, byte[] bytes, int offset, int length) {
+			for (int i = offset; i < offset + length; i++) {
+				if (bytes[i] < 0) {
+					add(key, new String(bytes, offset, length, UTF8));
+					return;
+				}
+			}
+			int start = reserve(key, length);
+			for (int i = 0; i < length; i++) {
+				chunk[start + i] = (char) bytes[offset + i];
+			}
+		}
+
+		private int reserve(String key, int length) {
+			if (used + length > chunk.length) {
+				// move the object so far to a new chunk, the old one stays with the objects using it
+				int row = used - rowStart;
+				char[] bigger = new char[Math.max(row + length, Math.min(MAX_CHUNK, chunk.length * 2))];
+				System.arraycopy(chunk, rowStart, bigger, 0, row);
+				chunk = bigger;
+				rowStart = 0;
+				used = row;
+			}
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				offsets = Arrays.copyOf(offsets, size * 4);
+			}
+			keys[size] = key;
+			offsets[size * 2] = used - rowStart;
+			offsets[size * 2 + 1] = length;
+			size++;
+			int start = used;
+			used += length;
+			return start;
+		}
+
+		/**
+		 * Finish the object being built.
+		 * @return The object; the next values start a new one.
+		 */
+		PropertyContainer build() {
+			String[] rowKeys = lastKeys;
+			if (rowKeys == null || rowKeys.length != size || !sameKeys(rowKeys)) {
+				rowKeys = Arrays.copyOf(keys, size);
+				lastKeys = rowKeys; // objects of a list usually have the same keys
+			}
+			int[] rowOffsets = new int[size * 2];
+			for (int i = 0; i < size; i++) {
+				rowOffsets[i * 2] = offsets[i * 2] + rowStart;
+				rowOffsets[i * 2 + 1] = offsets[i * 2 + 1];
+			}
+			PropertyContainer container = new PropertyContainer(new LazyProperties(rowKeys, chunk, rowOffsets));
+			rowStart = used;
+			size = 0;
+			return container;
+		}
+
+		private boolean sameKeys(String[] rowKeys) {
+			for (int i = 0; i < size; i++) {
+				if (!rowKeys[i].equals(keys[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package org.gamejolt;
+
+import java.util.Arrays;
+
+/**
+ * An order-statistic multiset of sort values: a treap kept in primitive arrays, where every
+ * node knows how many values its subtree holds. Adding a value, the rank of a value and the
+ * value at a rank all take O(log n). Equal values share one node with a count.
+ * <p>
+ * Higher sort values rank first, as on Game Jolt. Not thread safe.
+ */
+final class LeaderboardIndex
+{
+	// node 0 is the empty tree, so a child of 0 means "none"
+	private long[] keys = new long[16];
+	private int[] counts = new int[16];
+	private int[] sizes = new int[16];
+	private int[] priorities = new int[16];
+	private int[] left = new int[16];
+	private int[] right = new int[16];
+	private int nodes = 0;
+	private int root = 0;
+	private int random = 0x2545F491;
+
+	/**
+	 * @return The number of values, counting equal values once each.
+	 */
+	int size() {
+		return sizes[root];
+	}
+
+	/**
+	 * Add a value.
+	 * @param key The sort value.
+	 */
+	void add(long key) {
+		root = insert(root, key);
+	}
+
+	private int insert(int n, long key) {
+		if (n == 0) {
+			return newNode(key);
+		}
+		if (key == keys[n]) {
+			counts[n]++;
+		} else if (key < keys[n]) {
+			// insert may grow the arrays, so assign after it returns
+			int child = insert(left[n], key);
+			left[n] = child;
+			if (priorities[child] > priorities[n]) {
+				n = rotateRight(n);
+			}
+		} else {
+			int child = insert(right[n], key);
+			right[n] = child;
+			if (priorities[child] > priorities[n]) {
+				n = rotateLeft(n);
+			}
+		}
+		update(n);
+		return n;
+	}
+
+	private int newNode(long key) {
+		nodes++;
+		if (nodes == keys.length) {
+			int capacity = keys.length * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+			priorities = Arrays.copyOf(priorities, capacity);
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+		}
+		// xorshift; only needs to be unpredictable to the order of the values
+		random ^= random << 13;
+		random ^= random >>> 17;
+		random ^= random << 5;
+		keys[nodes] = key;
+		counts[nodes] = 1;
+		sizes[nodes] = 1;
+		priorities[nodes] = random;
+		left[nodes] = 0;
+		right[nodes] = 0;
+		return nodes;
+	}
+
+	private int rotateRight(int n) {
+		int l = left[n];
+		left[n] = right[l];
+		right[l] = n;
+		update(n);
+		update(l);
+		return l;
+	}
+
+	private int rotateLeft(int n) {
+		int r = right[n];
+		right[n] = left[r];
+		left[r] = n;
+		update(n);
+		update(r);
+		return r;
+	}
+
+	private void update(int n) {
+		sizes[n] = sizes[left[n]] + sizes[right[n]] + counts[n];
+	}
+
+	/**
+	 * Count the values that rank before the given one.
+	 * @param key The sort value.
+	 * @return The number of values higher than key.
+	 */
+	int countHigher(long key) {
+		int higher = 0;
+		int n = root;
+		while (n != 0) {
+			if (key < keys[n]) {
+				higher += counts[n] + sizes[right[n]];
+				n = left[n];
+			} else if (key > keys[n]) {
+				n = right[n];
+			} else {
+				return higher + sizes[right[n]];
+			}
+		}
+		return higher;
+	}
+
+	/**
+	 * Count the values equal to the given one.
+	 * @param key The sort value.
+	 * @return The number of values equal to key.
+	 */
+	int count(long key) {
+		int n = root;
+		while (n != 0) {
+			if (key < keys[n]) {
+				n = left[n];
+			} else if (key > keys[n]) {
+				n = right[n];
+			} else {
+				return counts[n];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Get the value at a rank.
+	 * @param rank The rank, 1 being the highest value.
+	 * @return The value, or null if the rank is out of range.
+	 */
+	Long get(int rank) {
+		if (rank < 1 || rank > size()) {
+			return null;
+		}
+		int n = root;
+		while (true) {
+			int higher = sizes[right[n]];
+			if (rank <= higher) {
+				n = right[n];
+			} else if (rank <= higher + counts[n]) {
+				return keys[n];
+			} else {
+				rank -= higher + counts[n];
+				n = left[n];
+			}
+		}
+	}
+
+	/**
+	 * @return The lowest value higher than key, or null if there is none.
+	 */
+	Long higher(long key) {
+		Long found = null;
+		int n = root;
+		while (n != 0) {
+			if (keys[n] > key) {
+				found = keys[n];
+				n = left[n];
+			} else {
+				n = right[n];
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @return The highest value lower than key, or null if there is none.
+	 */
+	Long lower(long key) {
+		Long found = null;
+		int n = root;
+		while (n != 0) {
+			if (keys[n] < key) {
+				found = keys[n];
+				n = right[n];
+			} else {
+				n = left[n];
+			}
+		}
+		return found;
+	}
+}
@@ -0,0 +1,228 @@
+package org.gamejolt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <b>LeaderboardMirror</b><br/>
+ * A local copy of the sort values of one highscore table, for showing "you are now #N"
+ * without asking Game Jolt. Ranks and neighbouring scores are answered in O(log n) from an
+ * order-statistic tree.
+ * <p>
+ * The mirror is filled by {@link #sync()}, which reads the table's highscores. Highscores
+ * added with the same GameJoltAPI (or GameJoltClient) are added to the mirror as soon as
+ * Game Jolt accepts them, and once the reconcile interval has passed the next query reloads
+ * the table in the background, picking up the highscores of other players.
+ * <p>
+ * Game Jolt can not be asked for the highscores added since a given time, so the
+ * highscores of other players are not merged in one by one: the reload replaces the mirror
+ * with the best highscores of the table, which also drops the ones that were removed.
+ * <p>
+ * Game Jolt only returns a limited number of highscores, and the mirror asks for 100. If the
+ * table has more, the mirror only knows the best ones, and {@link #getRank(long)} asks
+ * Game Jolt for scores below them.
+ * Get a mirror with {@link GameJoltAPI#getLeaderboardMirror(int)}.
+ */
+public class LeaderboardMirror
+{
+	private final GameJoltAPI api;
+	private final int tableId;
+	private final int limit;
+
+	private LeaderboardIndex index = new LeaderboardIndex();
+	private boolean complete = false;
+	private long lowest = Long.MAX_VALUE;
+	private boolean synced = false;
+	private long syncedAt;
+	private long reconcileInterval = TimeUnit.MINUTES.toNanos(5);
+	// the scores added since each running sync started, one list per sync
+	private final ArrayList<ArrayList<Long>> addedWhileSyncing = new ArrayList<>();
+
+	/**
+	 * @param api The API to read the highscores with.
+	 * @param tableId The id of the table, or 0 for the primary table.
+	 * @param limit The number of highscores to mirror at most.
+	 */
+	LeaderboardMirror(GameJoltAPI api, int tableId, int limit) {
+		this.api = api;
+		this.tableId = tableId;
+		this.limit = limit;
+	}
+
+	/**
+	 * Get the id of the mirrored table.
+	 * @return The id, or 0 for the primary table if its id could not be found out.
+	 */
+	public int getTableId() {
+		return tableId;
+	}
+
+	/**
+	 * Set how old the mirror can get before a query reloads it in the background.
+	 * By default, this is 5 minutes.
+	 * @param time The time between reloads, or 0 to only reload with {@link #sync()}.
+	 * @param unit The unit of the time.
+	 */
+	public synchronized void setReconcileInterval(long time, TimeUnit unit) {
+		this.reconcileInterval = unit.toNanos(time);
+	}
+
+	/**
+	 * Load the table from Game Jolt, replacing what the mirror knew. This blocks until the
+	 * highscores are read.
+	 * @return true if the highscores could be read.
+	 */
+	public boolean sync() {
+		return sync(startSync());
+	}
+
+	private synchronized ArrayList<Long> startSync() {
+		ArrayList<Long> added = new ArrayList<>();
+		addedWhileSyncing.add(added);
+		return added;
+	}
+
+	private boolean sync(ArrayList<Long> added) {
+		LeaderboardIndex loaded = new LeaderboardIndex();
+		long low = Long.MAX_VALUE;
+		boolean successful = false;
+		try (HighscoreIterator it = api.getHighscoreIterator(tableId, true, limit)) {
+			if (it != null) {
+				while (it.hasNext()) {
+					Highscore h = it.next();
+					long sort = GameJoltResponseParser.parseLong(h.getProperty("sort"), 0);
+					loaded.add(sort);
+					low = Math.min(low, sort);
+				}
+				successful = it.isSuccessful();
+			}
+		} catch (Exception e) {
+			successful = false;
+		}
+		synchronized (this) {
+			for (int i = 0; i < addedWhileSyncing.size(); i++) {
+				if (addedWhileSyncing.get(i) == added) { // not equals(), another sync's list may hold the same scores
+					addedWhileSyncing.remove(i);
+					break;
+				}
+			}
+			if (successful) {
+				complete = loaded.size() < limit;
+				// scores added while loading are missing from the response unless Game Jolt
+				// had them already; an equal score in the response is taken to be the added one
+				HashMap<Long, Integer> found = new HashMap<>();
+				ArrayList<Long> missing = new ArrayList<>();
+				for (Long sort : added) {
+					Integer seen = found.get(sort);
+					int n = (seen == null) ? 0 : seen;
+					if (n < loaded.count(sort)) {
+						found.put(sort, n + 1);
+					} else {
+						missing.add(sort);
+					}
+				}
+				for (long sort : missing) {
+					loaded.add(sort);
+				}
+				index = loaded;
+				lowest = low;
+			}
+			synced = true;
+			syncedAt = System.nanoTime();
+		}
+		return successful;
+	}
+
+	/**
+	 * Add a score to the mirror. This is done for you when a highscore is added through the
+	 * GameJoltAPI that created the mirror.
+	 * @param sort The sort value of the score.
+	 */
+	public synchronized void add(long sort) {
+		index.add(sort);
+		for (ArrayList<Long> added : addedWhileSyncing) {
+			added.add(sort);
+		}
+	}
+
+	/**
+	 * Get the rank a score has or would have in the table, as Game Jolt's get-rank does.
+	 * If the score is below every mirrored score and the table has more highscores than
+	 * the mirror holds, Game Jolt is asked.
+	 * @param sort The sort value of the score.
+	 * @return The rank, 1 being the best, or -1 if it could not be found out.
+	 */
+	public int getRank(long sort) {
+		synchronized (this) {
+			reconcileIfOld();
+			if (complete || sort >= lowest) {
+				return index.countHigher(sort) + 1;
+			}
+		}
+		return api.getHighscoreRank(sort, tableId);
+	}
+
+	/**
+	 * Get the sort value at a rank.
+	 * @param rank The rank, 1 being the best.
+	 * @return The sort value, or null if the mirror has no score at that rank.
+	 */
+	public synchronized Long getScoreAtRank(int rank) {
+		reconcileIfOld();
+		return index.get(rank);
+	}
+
+	/**
+	 * Get the next better score, i.e. the one to beat.
+	 * @param sort The sort value of a score.
+	 * @return The lowest sort value higher than sort, or null if there is none.
+	 */
+	public synchronized Long getNextHigherScore(long sort) {
+		reconcileIfOld();
+		return index.higher(sort);
+	}
+
+	/**
+	 * Get the next worse score.
+	 * @param sort The sort value of a score.
+	 * @return The highest sort value lower than sort, or null if the mirror has none.
+	 */
+	public synchronized Long getNextLowerScore(long sort) {
+		reconcileIfOld();
+		return index.lower(sort);
+	}
+
+	/**
+	 * @return The number of mirrored scores.
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * Whether the mirror holds every highscore of the table, so every rank is exact.
+	 * @return true if the last sync got fewer highscores than the limit.
+	 */
+	public synchronized boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Load the table in the background if it was never loaded or the interval has passed.
+	 * Queries keep using the old copy until the new one is read.
+	 */
+	private void reconcileIfOld() {
+		if (!addedWhileSyncing.isEmpty() || synced && (reconcileInterval <= 0 || System.nanoTime() - syncedAt < reconcileInterval)) {
+			return;
+		}
+		// no other query should start a reload, and adds from now on must survive it
+		final ArrayList<Long> added = startSync();
+		GameJoltExecutors.shared().execute(new Runnable() {
+			@Override
+			public void run() {
+				sync(added);
+			}
+		});
+	}
+}
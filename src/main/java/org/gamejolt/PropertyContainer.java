@@ -11,32 +11,53 @@ import java.util.HashMap;
  * A type of object that holds a list of properties
  * @author Kevin Prehn
  */
-public class PropertyContainer 
+public class PropertyContainer
 {
-        /** The properties */
+        /** The properties that have been added, or all of them once they are materialized */
 	private HashMap<String, String> properties;
 
+        /** The properties still in the response they were read from, or null */
+        private LazyProperties lazy;
+
         public PropertyContainer(PropertyContainer other) {
-            properties = new HashMap<>();
-            properties.putAll(other.getProperties());
+            if (other.lazy != null) {
+                // share the response buffer instead of copying every value
+                lazy = other.lazy;
+                if (other.properties != null) {
+                    properties = new HashMap<>(other.properties);
+                }
+            } else {
+                properties = new HashMap<>();
+                properties.putAll(other.getProperties());
+            }
         }
-        
+
 	/**
 	 * Create a new PropertyContainer.
 	 */
 	public PropertyContainer() {
 		properties = new HashMap<String, String>();
 	}
-	
+
+	/**
+	 * Create a PropertyContainer whose values are read from the response when asked for.
+	 */
+	PropertyContainer(LazyProperties lazy) {
+		this.lazy = lazy;
+	}
+
 	/**
 	 * Adds a property to the PropertyContainer.
 	 * @param key The key by which the property can be accessed.
 	 * @param value The value for the key.
 	 */
 	public void addProperty(String key, String value) {
+		if (properties == null) {
+			properties = new HashMap<String, String>();
+		}
 		properties.put(key, value);
 	}
-	
+
 	/**
 	 * Gets a property of the PropertyContainer that isn't specified by a specific method.
 	 * This exists for forward compatibility.
@@ -44,10 +65,32 @@ public class PropertyContainer
 	 * @return A property of the PropertyContainer that isn't specified by a specific method.
 	 */
 	public String getProperty(String key) {
-		return properties.get(key);
+		if (properties != null) {
+			String value = properties.get(key);
+			if (value != null || lazy == null || properties.containsKey(key)) {
+				return value;
+			}
+		}
+		return (lazy != null) ? lazy.get(key) : null;
 	}
-        
+
+        /**
+         * Get all properties. This turns every value into a String, so prefer
+         * {@link #getProperty(String)} for single values.
+         * @return The map of all properties.
+         */
         public HashMap<String, String> getProperties() {
+            if (lazy != null) {
+                HashMap<String, String> all = new HashMap<>();
+                for (int i = 0; i < lazy.size(); i++) {
+                    all.put(lazy.keyAt(i), lazy.valueAt(i));
+                }
+                if (properties != null) {
+                    all.putAll(properties);
+                }
+                properties = all;
+                lazy = null;
+            }
             return properties;
         }
 
@@ -0,0 +1,172 @@
+package org.gamejolt;
+
+import java.nio.charset.Charset;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Calculates the MD5 signatures of Game Jolt requests.
+ * <p>
+ * The signed URL of a request always starts with the same prefix for a given endpoint, e.g.
+ * "http://gamejolt.com/api/game/v1/scores/?game_id=1". The digest state after hashing such a
+ * prefix is kept, so signing a request only clones that state and hashes the parameters and
+ * the private key. Strings are encoded and hex-encoded into buffers that are reused.
+ * <p>
+ * These states are kept in a small pool shared by all threads rather than per thread: a
+ * virtual thread is started for every task, and would otherwise set up a new state, with an
+ * empty prefix cache, for every request it signs. Signing never blocks, so there are rarely
+ * more states in use than cores.
+ */
+class RequestSigner
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final int DIGEST_LENGTH = 16;
+
+	/** The number of prefixes remembered per state; a game uses a dozen or so. */
+	private static final int MAX_PREFIXES = 64;
+
+	private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+	private static final ArrayDeque<State> states = new ArrayDeque<>();
+
+	private final byte[] key;
+
+	/**
+	 * Create a signer for the given private key.
+	 * @param privateKey Your Game's Unique (Private) Key.
+	 */
+	RequestSigner(String privateKey) {
+		this.key = privateKey.getBytes(UTF8);
+	}
+
+	/**
+	 * Calculate the signature of the URL prefix + suffix.
+	 * @param prefix The part of the URL that is the same for every request to an endpoint.
+	 * @param suffix The rest of the URL.
+	 * @return The MD5 of the URL followed by the private key, as 32 lower case hex digits.
+	 */
+	String sign(String prefix, String suffix) {
+		State state = takeState();
+		try {
+			MessageDigest digest = state.digestAfter(prefix);
+			state.update(digest, suffix);
+			digest.update(key);
+			return state.finish(digest);
+		} finally {
+			giveBack(state);
+		}
+	}
+
+	/**
+	 * Calculate the MD5 hash of a String.
+	 * @param input The String you want the hash of.
+	 * @return The hash as 32 lower case hex digits.
+	 */
+	static String md5(String input) {
+		State state = takeState();
+		try {
+			MessageDigest digest = state.md5;
+			digest.reset();
+			state.update(digest, input);
+			return state.finish(digest);
+		} finally {
+			giveBack(state);
+		}
+	}
+
+	private static State takeState() {
+		synchronized (states) {
+			State state = states.poll();
+			if (state != null) {
+				return state;
+			}
+		}
+		return new State();
+	}
+
+	private static void giveBack(State state) {
+		synchronized (states) {
+			if (states.size() < POOL_SIZE) {
+				states.push(state);
+			}
+		}
+	}
+
+	private static final class State
+	{
+		final MessageDigest md5;
+		final HashMap<String, MessageDigest> prefixes = new HashMap<>();
+		final byte[] digest = new byte[DIGEST_LENGTH];
+		final char[] hex = new char[DIGEST_LENGTH * 2];
+		byte[] bytes = new byte[256];
+
+		State() {
+			try {
+				md5 = MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("MD5 is not available", e);
+			}
+		}
+
+		/**
+		 * Get a fresh digest that has already hashed the prefix.
+		 */
+		MessageDigest digestAfter(String prefix) {
+			MessageDigest prefixed = prefixes.get(prefix);
+			if (prefixed == null) {
+				if (prefixes.size() >= MAX_PREFIXES) {
+					prefixes.clear();
+				}
+				md5.reset();
+				update(md5, prefix);
+				prefixed = copy(md5);
+				prefixes.put(prefix, prefixed);
+			}
+			return copy(prefixed);
+		}
+
+		private MessageDigest copy(MessageDigest digest) {
+			try {
+				return (MessageDigest) digest.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException("MD5 cannot be cloned", e);
+			}
+		}
+
+		/**
+		 * Hash a String, without allocating when it is plain ASCII like URLs normally are.
+		 */
+		void update(MessageDigest digest, String s) {
+			int length = s.length();
+			if (bytes.length < length) {
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+			}
+			for (int i = 0; i < length; i++) {
+				char c = s.charAt(i);
+				if (c >= 0x80) {
+					digest.update(bytes, 0, i);
+					digest.update(s.substring(i).getBytes(UTF8));
+					return;
+				}
+				bytes[i] = (byte) c;
+			}
+			digest.update(bytes, 0, length);
+		}
+
+		String finish(MessageDigest digest) {
+			try {
+				digest.digest(this.digest, 0, DIGEST_LENGTH);
+			} catch (DigestException e) {
+				throw new IllegalStateException(e);
+			}
+			for (int i = 0; i < DIGEST_LENGTH; i++) {
+				hex[i * 2] = HEX[(this.digest[i] >> 4) & 0xF];
+				hex[i * 2 + 1] = HEX[this.digest[i] & 0xF];
+			}
+			return new String(hex);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package org.gamejolt;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <b>ServerClock</b><br/>
+ * Game Jolt's clock, kept locally so reading it does not need a request. A sync asks for
+ * the server time a few times and works out how far the server clock is from
+ * {@link System#nanoTime()}, like NTP does; reading the clock then only adds that offset.
+ * <p>
+ * Game Jolt sends whole seconds, so one sample only tells that the server's second started
+ * somewhere within the round trip plus one second. Every sample limits the offset to an
+ * interval, and the samples are spread over a second so that the intersection of the
+ * intervals becomes much smaller than that. {@link #getErrorMillis()} is half its width,
+ * plus what the local clock may have drifted since.
+ * <p>
+ * The first read syncs with one sample and refines the offset in the background. After
+ * that the clock syncs again in the background once the resync interval has passed.
+ * Get the clock with {@link GameJoltAPI#getServerClock()}.
+ */
+public class ServerClock
+{
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	/** How far a quartz clock may drift, in nanoseconds per second (100 ppm). */
+	private static final long DRIFT = 100000;
+
+	/** How long to wait before trying again after a failed background sync. */
+	private static final long RETRY = TimeUnit.SECONDS.toNanos(30);
+
+	private final GameJoltAPI api;
+	private final Object firstSync = new Object();
+	private volatile Estimate estimate;
+	private volatile int samples = 5;
+	private volatile long resyncInterval = TimeUnit.MINUTES.toNanos(10);
+	private volatile boolean attempted = false;
+	private volatile long attemptedAt;
+	private boolean syncing = false;
+
+	/** The result of one sync. */
+	private static class Estimate
+	{
+		final long offset; // server time in epoch nanoseconds minus System.nanoTime()
+		final long error;
+		final long syncedAt;
+		final TimeZone timeZone;
+
+		Estimate(long offset, long error, long syncedAt, TimeZone timeZone) {
+			this.offset = offset;
+			this.error = error;
+			this.syncedAt = syncedAt;
+			this.timeZone = timeZone;
+		}
+	}
+
+	ServerClock(GameJoltAPI api) {
+		this.api = api;
+	}
+
+	/**
+	 * Set how many times a sync asks for the server time. More samples give a smaller error.
+	 * By default, this is 5.
+	 * @param samples The number of samples, at least 1.
+	 */
+	public void setSamples(int samples) {
+		if (samples < 1) {
+			throw new IllegalArgumentException("samples must be at least 1");
+		}
+		this.samples = samples;
+	}
+
+	/**
+	 * Set how long the clock is used before it syncs again in the background.
+	 * By default, this is 10 minutes.
+	 * @param time The time between syncs, or 0 to only sync with {@link #sync()}.
+	 * @param unit The unit of the time.
+	 */
+	public void setResyncInterval(long time, TimeUnit unit) {
+		this.resyncInterval = unit.toNanos(time);
+	}
+
+	/**
+	 * Sync the clock with Game Jolt, spreading the samples over about a second.
+	 * This blocks until all samples are taken.
+	 * @return true if at least one sample could be taken.
+	 */
+	public boolean sync() {
+		int n = samples;
+		return sync(n, SECOND / n);
+	}
+
+	private boolean sync(int count, long spacing) {
+		attemptedAt = System.nanoTime();
+		attempted = true;
+		long lo = Long.MIN_VALUE;
+		long hi = Long.MAX_VALUE;
+		TimeZone zone = null;
+		boolean any = false;
+		try {
+			for (int i = 0; i < count; i++) {
+				if (i > 0 && spacing > 0) {
+					Thread.sleep(spacing / 1000000, (int) (spacing % 1000000));
+				}
+				long t0 = System.nanoTime();
+				ServerTime time = api.getServerTime();
+				long t1 = System.nanoTime();
+				if (time == null) {
+					continue;
+				}
+				// the server's second began between t0 - 1s and t1
+				long server = time.getTimestamp() * SECOND;
+				long sampleLo = server - t1;
+				long sampleHi = server + SECOND - t0;
+				if (sampleLo > hi || sampleHi < lo) {
+					// does not fit the earlier samples, e.g. the server clock was set; start over
+					lo = sampleLo;
+					hi = sampleHi;
+				} else {
+					lo = Math.max(lo, sampleLo);
+					hi = Math.min(hi, sampleHi);
+				}
+				if (time.getTimezone() != null) {
+					zone = TimeZone.getTimeZone(time.getTimezone());
+				}
+				any = true;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			if (api.isVerbose()) { System.err.println("GameJoltAPI: Could not sync the server clock: " + e.getMessage()); }
+		}
+		if (any) {
+			Estimate old = estimate;
+			if (zone == null) {
+				zone = (old != null) ? old.timeZone : TimeZone.getDefault();
+			}
+			estimate = new Estimate(lo + (hi - lo) / 2, (hi - lo) / 2, System.nanoTime(), zone);
+		}
+		synchronized (this) {
+			syncing = false;
+		}
+		return any;
+	}
+
+	/**
+	 * Get the server time.
+	 * @return The server time in milliseconds since 1970, or the local time if the clock
+	 * could not be synced.
+	 */
+	public long currentTimeMillis() {
+		Estimate e = current();
+		if (e == null) {
+			return System.currentTimeMillis();
+		}
+		return (System.nanoTime() + e.offset) / 1000000;
+	}
+
+	/**
+	 * Get how far {@link #currentTimeMillis()} may be from the server's clock.
+	 * @return The error bound in milliseconds, or -1 if the clock could not be synced.
+	 */
+	public long getErrorMillis() {
+		Estimate e = estimate;
+		if (e == null) {
+			return -1;
+		}
+		long elapsed = System.nanoTime() - e.syncedAt;
+		return (e.error + elapsed / SECOND * DRIFT) / 1000000 + 1;
+	}
+
+	/**
+	 * Check whether the clock has been synced with Game Jolt.
+	 * @return true if the server time is known.
+	 */
+	public boolean isSynchronized() {
+		return estimate != null;
+	}
+
+	/**
+	 * Get the time zone of the server, e.g. for finding out when the server's day begins.
+	 * @return The server's time zone, or the local one if the clock could not be synced.
+	 */
+	public TimeZone getTimeZone() {
+		Estimate e = current();
+		return (e == null) ? TimeZone.getDefault() : e.timeZone;
+	}
+
+	/**
+	 * Get the server time as a Calendar in the server's time zone.
+	 * @return A new Calendar set to the server time.
+	 */
+	public Calendar getCalendar() {
+		Calendar c = Calendar.getInstance(getTimeZone());
+		c.setTimeInMillis(currentTimeMillis());
+		return c;
+	}
+
+	/**
+	 * Get the estimate, syncing first if there is none and starting a background sync when
+	 * it is old.
+	 */
+	private Estimate current() {
+		Estimate e = estimate;
+		if (e == null) {
+			synchronized (firstSync) {
+				e = estimate;
+				if (e == null && (!attempted || System.nanoTime() - attemptedAt >= RETRY)) {
+					// one quick sample so the caller does not wait a second, then refine it
+					sync(1, 0);
+					e = estimate;
+					if (e != null) {
+						startBackgroundSync();
+					}
+				}
+			}
+			return e;
+		}
+		long now = System.nanoTime();
+		long interval = resyncInterval;
+		if (interval > 0 && now - e.syncedAt >= interval && now - attemptedAt >= Math.min(interval, RETRY)) {
+			startBackgroundSync();
+		}
+		return e;
+	}
+
+	private synchronized void startBackgroundSync() {
+		if (syncing) {
+			return;
+		}
+		syncing = true;
+		GameJoltExecutors.shared().execute(new Runnable() {
+			@Override
+			public void run() {
+				sync();
+			}
+		});
+	}
+}
@@ -51,7 +51,7 @@ public class Trophy extends PropertyContainer
 	 * @return The difficulty of the Trophy.
 	 */
 	public Difficulty getDifficulty() {
-		return Difficulty.valueOf(getProperty("difficulty"));
+		return Difficulty.valueOf(getProperty("difficulty").toUpperCase());
 	}
 	
 	/**
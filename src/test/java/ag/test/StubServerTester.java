@@ -0,0 +1,1046 @@
+package org.ag.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gamejolt.BatchRequest;
+import org.gamejolt.BatchRequest.Result;
+import org.gamejolt.CompactHighscore;
+import org.gamejolt.DataStore;
+import org.gamejolt.DataStore.DataStoreOperation;
+import org.gamejolt.DataStore.DataStoreType;
+import org.gamejolt.DataStoreResult;
+import org.gamejolt.GameJoltAPI;
+import org.gamejolt.GameJoltAPI.Format;
+import org.gamejolt.GameJoltBlobStore;
+import org.gamejolt.GameJoltClient;
+import org.gamejolt.GameJoltHttpTransport;
+import org.gamejolt.GameJoltSessionHeartbeat;
+import org.gamejolt.GameJoltStubServer;
+import org.gamejolt.GameJoltTransport;
+import org.gamejolt.GameJoltWriteQueue;
+import org.gamejolt.HighscoreIterator;
+import org.gamejolt.HighscoreTable;
+import org.gamejolt.LeaderboardMirror;
+import org.gamejolt.ServerClock;
+import org.gamejolt.Trophy;
+import org.gamejolt.Trophy.Achieved;
+import org.gamejolt.Trophy.Difficulty;
+import org.gamejolt.User;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs the API against a local GameJoltStubServer in every format, no credentials needed.
+ */
+public class StubServerTester {
+
+ private static final int gameId = 1;
+ private static final String privateKey = "secret";
+
+ static GameJoltStubServer stub;
+
+ @BeforeClass
+ public static void beforeClass() throws Exception {
+  stub = new GameJoltStubServer(gameId, privateKey);
+  stub.addUser(1, "player", "token");
+  stub.addTrophy(1, "First", "The first trophy", Difficulty.BRONZE);
+  stub.addTrophy(2, "Second", "The second trophy", Difficulty.GOLD);
+  stub.addUser(4, "heartbeat", "token4");
+  stub.addUser(5, "client", "token5");
+  stub.addUser(6, "loader", "token6");
+  stub.addUser(7, "blobs", "token7");
+  stub.addUser(8, "batcher", "token8");
+  stub.addUser(9, "queued", "token9");
+  stub.addTable(2, "Speedrun", "Fastest times", false);
+  stub.start();
+ }
+
+ @AfterClass
+ public static void afterClass() {
+  stub.stop();
+ }
+
+ private static GameJoltAPI api(Format format) {
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  api.setFormat(format);
+  assertTrue(api.verifyUser("player", "token"));
+  return api;
+ }
+
+ /** Passes requests on, unless the network is down or the URL contains the blocked text. */
+ static class FlakyTransport implements GameJoltTransport {
+  final GameJoltTransport http = new GameJoltHttpTransport();
+  volatile boolean down = false;
+  volatile String blocked;
+  volatile String lastURL;
+
+  @Override
+  public InputStream get(String url) throws IOException {
+   check(url);
+   return http.get(url);
+  }
+  @Override
+  public InputStream post(String url, String body) throws IOException {
+   check(url);
+   return http.post(url, body);
+  }
+  private void check(String url) throws IOException {
+   lastURL = url;
+   String b = blocked;
+   if (down || (b != null && url.contains(b))) {
+    throw new IOException("Network is unreachable");
+   }
+  }
+ }
+
+ private static GameJoltAPI queueAPI(GameJoltTransport transport) {
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  api.setTransport(transport);
+  assertTrue(api.verifyUser("queued", "token9"));
+  return api;
+ }
+
+ private static void awaitPending(GameJoltWriteQueue queue, int pending) throws Exception {
+  for (int i = 0; i < 100 && queue.getPendingCount() > pending; i++) {
+   Thread.sleep(50);
+  }
+  assertEquals(pending, queue.getPendingCount());
+  queue.flush();
+ }
+
+ @Test
+ public void testVerifyUser(){
+  for (Format f : Format.values()) {
+   GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+   api.setBaseURL(stub.getBaseURL());
+   api.setFormat(f);
+   assertFalse(api.verifyUser("player", "wrong"));
+   assertTrue(api.verifyUser("player", "token"));
+  }
+ }
+ @Test
+ public void testWrongSignature(){
+  for (Format f : Format.values()) {
+   GameJoltAPI api = new GameJoltAPI(gameId, "not the key");
+   api.setBaseURL(stub.getBaseURL());
+   api.setFormat(f);
+   assertFalse(api.verifyUser("player", "token"));
+  }
+ }
+ @Test
+ public void testHttpTransportKeepAlive(){
+  GameJoltAPI api = api(Format.JSON);
+  long before = stub.getConnectionCount();
+  for (int i = 0; i < 20; i++) {
+   assertNotNull(api.getServerTime());
+  }
+  // the requests one after the other share a connection
+  assertTrue(stub.getConnectionCount() - before <= 2);
+ }
+ @Test
+ public void testHttpTransportErrors() throws Exception {
+  GameJoltHttpTransport http = new GameJoltHttpTransport(1000, 1000, 1);
+  String missing = stub.getBaseURL().replace("/api/game/", "/missing");
+  long before = stub.getConnectionCount();
+  for (int i = 0; i < 10; i++) {
+   try {
+    http.get(missing).close();
+    fail("the 404 was not reported");
+   } catch (IOException expected) {
+    assertTrue(expected.getMessage().contains("404"));
+   }
+  }
+  // the error pages were read to the end and the connection given back each time
+  http.get(stub.getBaseURL() + "time/?game_id=" + gameId).close();
+  assertTrue(stub.getConnectionCount() - before <= 2);
+ }
+ @Test
+ public void testHttpTransportLimit() throws Exception {
+  GameJoltHttpTransport http = new GameJoltHttpTransport(1000, 200, 1);
+  String url = stub.getBaseURL() + "time/?game_id=" + gameId;
+  InputStream first = http.get(url);
+  try {
+   http.get(url).close();
+   fail("a second request got past the limit of one connection");
+  } catch (IOException expected) {
+  }
+  first.close();
+  http.get(url).close();
+ }
+ @Test
+ public void testGetUser(){
+  for (Format f : Format.values()) {
+   User u = api(f).getUser("player");
+   assertNotNull(u);
+   assertEquals(1, u.getId());
+   assertEquals(User.UserType.USER, u.getType());
+  }
+ }
+ @Test
+ public void testHighscoreTables(){
+  for (Format f : Format.values()) {
+   ArrayList<HighscoreTable> tables = api(f).getHighscoreTables();
+   assertNotNull(tables);
+   // other tests add tables of their own, so only look for the ones of beforeClass()
+   HighscoreTable primary = null;
+   HighscoreTable speedrun = null;
+   for (HighscoreTable t : tables) {
+    if (t.getId() == 1) {
+     primary = t;
+    } else if (t.getId() == 2) {
+     speedrun = t;
+    }
+   }
+   assertNotNull(primary);
+   assertTrue(primary.isPrimary());
+   assertNotNull(speedrun);
+   assertEquals("Speedrun", speedrun.getName());
+   assertFalse(speedrun.isPrimary());
+  }
+ }
+ @Test
+ public void testHighscoreRank(){
+  stub.addGuestScore(2, "guest", "1000 Points", 1000);
+  for (Format f : Format.values()) {
+   assertEquals(1, api(f).getHighscoreRank(5000, 2));
+   assertEquals(2, api(f).getHighscoreRank(10, 2));
+  }
+ }
+ @Test
+ public void testCompactHighscores(){
+  stub.addTable(3, "Compact", "Compact scores", false);
+  stub.addGuestScore(3, "first guest", "50 Points", 50);
+  stub.addGuestScore(3, "second guest", "7 Points", 7);
+  for (Format f : Format.values()) {
+   ArrayList<CompactHighscore> scores = api(f).getCompactHighscores(3, true, 10);
+   assertEquals(2, scores.size());
+   Collections.sort(scores);
+   assertEquals(7, scores.get(0).getScoreValue());
+   assertEquals("7 Points", scores.get(0).getScoreString());
+   assertEquals("second guest", scores.get(0).getUsername());
+   assertTrue(scores.get(0).isGuestHighscore());
+   assertEquals(-1, scores.get(0).getUserId());
+   assertEquals("50", scores.get(1).getProperty("sort"));
+  }
+ }
+ @Test
+ public void testHighscoreIterator() throws Exception {
+  stub.addTable(4, "Iterator", "Many scores", false);
+  for (int i = 0; i < 500; i++) {
+   stub.addGuestScore(4, "guest " + i, i + " Points", i);
+  }
+  for (Format f : Format.values()) {
+   int count = 0;
+   try (HighscoreIterator it = api(f).getHighscoreIterator(4, true, 1000)) {
+    while (it.hasNext()) {
+     assertTrue(it.next().isGuestHighscore());
+     count++;
+    }
+    assertTrue(it.isSuccessful());
+   }
+   assertEquals(500, count);
+   // stopping early releases the connection
+   try (HighscoreIterator it = api(f).getHighscoreIterator(4, true, 1000)) {
+    assertTrue(it.hasNext());
+    assertNotNull(it.next());
+   }
+  }
+ }
+ @Test
+ public void testHighscoreIteratorAbort() throws Exception {
+  stub.addTable(9, "Download", "A slow download", false);
+  for (int i = 0; i < 2000; i++) {
+   stub.addGuestScore(9, "guest " + i, i + " Points", i);
+  }
+  GameJoltAPI api = api(Format.KEYPAIR);
+  api.setTransport(new GameJoltHttpTransport(1000, 1000, 1));
+  stub.setBandwidth(20000); // the whole table would take seconds
+  try {
+   long sent = stub.getBytesSent();
+   HighscoreIterator it = api.getHighscoreIterator(9, true, 2000);
+   assertTrue(it.hasNext());
+   assertNotNull(it.next());
+   long start = System.nanoTime();
+   it.close();
+   assertTrue(System.nanoTime() - start < 500000000L);
+   Thread.sleep(300);
+   assertTrue(stub.getBytesSent() - sent < 20000);
+  } finally {
+   stub.setBandwidth(0);
+  }
+  // the only connection was given back
+  assertTrue(api.getServerTime() != null);
+ }
+ @Test
+ public void testCoalescing() throws Exception {
+  final GameJoltAPI api = api(Format.JSON);
+  ExecutorService threads = Executors.newFixedThreadPool(8);
+  stub.setLatency(200);
+  try {
+   // identical reads at the same time share one request
+   long before = stub.getRequestCount();
+   ArrayList<Future<ArrayList<HighscoreTable>>> tables = new ArrayList<>();
+   for (int i = 0; i < 8; i++) {
+    tables.add(threads.submit(new Callable<ArrayList<HighscoreTable>>() {
+     @Override
+     public ArrayList<HighscoreTable> call() {
+      return api.getHighscoreTables();
+     }
+    }));
+   }
+   for (Future<ArrayList<HighscoreTable>> f : tables) {
+    assertNotNull(f.get());
+   }
+   assertEquals(before + 1, stub.getRequestCount());
+
+   // but session checks answer for the session as it is when they are made
+   assertTrue(api.sessionOpen());
+   before = stub.getRequestCount();
+   ArrayList<Future<Boolean>> checks = new ArrayList<>();
+   for (int i = 0; i < 4; i++) {
+    checks.add(threads.submit(new Callable<Boolean>() {
+     @Override
+     public Boolean call() {
+      return api.sessionCheck();
+     }
+    }));
+   }
+   for (Future<Boolean> f : checks) {
+    assertTrue(f.get());
+   }
+   assertEquals(before + 4, stub.getRequestCount());
+  } finally {
+   stub.setLatency(0);
+   api.sessionClose();
+   threads.shutdown();
+  }
+ }
+ @Test
+ public void testCache() throws Exception {
+  stub.addUser(2, "cached", "token2");
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  assertTrue(api.verifyUser("cached", "token2"));
+  api.setCacheTime("trophies", 1, TimeUnit.HOURS);
+  long before = stub.getRequestCount();
+  for (int i = 0; i < 3; i++) {
+   assertEquals(2, api.getTrophies().size());
+  }
+  assertEquals(before + 1, stub.getRequestCount());
+  // achieving a trophy (after fetching the achieved ones) drops the cached trophies
+  assertTrue(api.achieveTrophy(2));
+  assertTrue(api.getTrophy(2).isAchieved());
+  assertEquals(before + 4, stub.getRequestCount());
+
+  // a stale response is returned at once and fetched again in the background
+  api.setCacheTime("trophies", 1, TimeUnit.MILLISECONDS);
+  assertNotNull(api.getTrophies());
+  Thread.sleep(5);
+  stub.setLatency(500);
+  try {
+   long start = System.currentTimeMillis();
+   assertEquals(2, api.getTrophies().size());
+   assertTrue(System.currentTimeMillis() - start < 250);
+  } finally {
+   stub.setLatency(0);
+  }
+  api.invalidateCache();
+ }
+ @Test
+ public void testCacheScopes() throws Exception {
+  for (String method : new String[] {"users/auth", "sessions/check", "time", "achieve-trophy"}) {
+   try {
+    new GameJoltAPI(gameId, privateKey).setCacheTime(method, 1, TimeUnit.HOURS);
+    fail(method + " must not be cached");
+   } catch (IllegalArgumentException e) {
+   }
+  }
+  stub.addUser(10, "watcher", "token10");
+  stub.addUser(12, "bystander", "token12");
+  GameJoltClient client = new GameJoltClient.Builder(gameId, privateKey)
+    .setBaseURL(stub.getBaseURL())
+    .setCacheTime("trophies", 1, TimeUnit.HOURS)
+    .build();
+  final GameJoltAPI other = client.verifyUser("bystander", "token12");
+  GameJoltAPI watcher = client.verifyUser("watcher", "token10");
+  assertNotNull(other.getTrophies());
+  assertNotNull(watcher.getTrophies());
+
+  // achieving a trophy only drops the achiever's cached trophies
+  assertTrue(watcher.achieveTrophy(1));
+  long before = stub.getRequestCount();
+  assertNotNull(other.getTrophies());
+  assertEquals(before, stub.getRequestCount());
+  assertTrue(watcher.getTrophy(1).isAchieved());
+  assertEquals(before + 1, stub.getRequestCount());
+
+  // and does not keep another player's response that was in flight from being cached
+  client.invalidateCache();
+  stub.setLatency(300);
+  Thread loading = new Thread() {
+   @Override
+   public void run() {
+    other.getTrophies();
+   }
+  };
+  try {
+   loading.start();
+   Thread.sleep(100);
+   assertTrue(watcher.achieveTrophy(2));
+   loading.join();
+  } finally {
+   stub.setLatency(0);
+  }
+  before = stub.getRequestCount();
+  assertNotNull(other.getTrophies());
+  assertEquals(before, stub.getRequestCount());
+  client.invalidateCache();
+ }
+ @Test
+ public void testAchieveTrophyOnce() throws Exception {
+  stub.addUser(3, "achiever", "token3");
+  final GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  assertTrue(api.verifyUser("achiever", "token3"));
+  long before = stub.getRequestCount();
+  final AtomicInteger failed = new AtomicInteger();
+  Thread[] threads = new Thread[8];
+  for (int i = 0; i < threads.length; i++) {
+   threads[i] = new Thread(new Runnable() {
+    @Override
+    public void run() {
+     for (int j = 0; j < 100; j++) {
+      if (!api.achieveTrophy(1)) {
+       failed.incrementAndGet();
+      }
+     }
+    }
+   });
+   threads[i].start();
+  }
+  for (Thread t : threads) {
+   t.join();
+  }
+  assertEquals(0, failed.get());
+  // fetching the achieved trophies, and a single achieve
+  assertEquals(before + 2, stub.getRequestCount());
+  long after = stub.getRequestCount();
+  assertTrue(api.achieveTrophy(1));
+  assertEquals(after, stub.getRequestCount());
+ }
+ @Test
+ public void testAchievedTrophiesNotFetched() throws Exception {
+  stub.addUser(11, "seeder", "token11");
+  GameJoltAPI elsewhere = new GameJoltAPI(gameId, privateKey);
+  elsewhere.setBaseURL(stub.getBaseURL());
+  assertTrue(elsewhere.verifyUser("seeder", "token11"));
+  assertTrue(elsewhere.achieveTrophy(2));
+
+  FlakyTransport network = new FlakyTransport();
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  api.setTransport(network);
+  assertTrue(api.verifyUser("seeder", "token11"));
+  // the achieved trophies can not be fetched, so the trophy is sent
+  network.blocked = "achieved=true";
+  assertTrue(api.achieveTrophy(1));
+  // they are fetched the next time, rather than taken to be none
+  network.blocked = "add-achieved";
+  assertTrue(api.achieveTrophy(2));
+ }
+ @Test
+ public void testLeaderboardMirror(){
+  stub.addTable(5, "Mirror", "Mirrored scores", false);
+  for (int i = 1; i <= 50; i++) {
+   stub.addGuestScore(5, "guest " + i, i + " Points", i * 10);
+  }
+  GameJoltAPI api = api(Format.JSON);
+  LeaderboardMirror mirror = api.getLeaderboardMirror(5);
+  assertTrue(mirror.sync());
+  assertEquals(50, mirror.size());
+  assertTrue(mirror.isComplete());
+  for (int sort = 0; sort <= 510; sort += 15) {
+   assertEquals(api.getHighscoreRank(sort, 5), mirror.getRank(sort));
+  }
+  assertEquals(Long.valueOf(500), mirror.getScoreAtRank(1));
+  assertEquals(Long.valueOf(260), mirror.getNextHigherScore(255));
+  assertEquals(Long.valueOf(250), mirror.getNextLowerScore(255));
+  // a highscore added through the API shows up without another sync
+  long before = stub.getRequestCount();
+  assertTrue(api.addHighscore(5, "mirror guest", "255 Points", 255, ""));
+  assertEquals(26, mirror.getRank(255));
+  assertEquals(27, mirror.getRank(254));
+  assertEquals(api.getHighscoreRank(254, 5), mirror.getRank(254));
+  assertEquals(before + 2, stub.getRequestCount());
+ }
+ @Test
+ public void testLeaderboardMirrorPrimary(){
+  GameJoltAPI api = api(Format.JSON);
+  LeaderboardMirror mirror = api.getLeaderboardMirror(0);
+  assertSame(mirror, api.getLeaderboardMirror(1));
+  assertEquals(1, mirror.getTableId());
+  assertTrue(mirror.sync());
+  // highscores added without a table id go to the primary table's mirror
+  int size = mirror.size();
+  assertTrue(api.addHighscore("primary guest", "7 Points", 7));
+  assertEquals(size + 1, mirror.size());
+ }
+ @Test
+ public void testLeaderboardMirrorBelowTheTop(){
+  stub.addTable(10, "Long", "More scores than a mirror holds", false);
+  for (int i = 1; i <= 150; i++) {
+   stub.addGuestScore(10, "guest " + i, i + " Points", i);
+  }
+  FlakyTransport network = new FlakyTransport();
+  GameJoltAPI api = api(Format.JSON);
+  api.setTransport(network);
+  LeaderboardMirror mirror = api.getLeaderboardMirror(10);
+  assertTrue(mirror.sync());
+  assertFalse(mirror.isComplete());
+  assertEquals(100, mirror.size());
+  // below the mirrored scores Game Jolt is asked, with the sort value as it is
+  assertEquals(131, mirror.getRank(20));
+  mirror.getRank(-4294967296L);
+  assertTrue(network.lastURL.contains("sort=-4294967296"));
+ }
+ @Test
+ public void testLeaderboardMirrorOverlappingSyncs(){
+  stub.addTable(12, "Overlap", "Scores added while syncing", false);
+  for (int i = 1; i <= 10; i++) {
+   stub.addGuestScore(12, "guest " + i, i + " Points", i * 10);
+  }
+  final LeaderboardMirror[] mirror = new LeaderboardMirror[1];
+  final AtomicInteger fetches = new AtomicInteger();
+  GameJoltAPI api = api(Format.JSON);
+  api.setTransport(new FlakyTransport() {
+   @Override
+   public InputStream get(String url) throws IOException {
+    if (url.contains("table_id=12") && fetches.incrementAndGet() == 1) {
+     // a highscore is accepted just before Game Jolt answers, and a second sync runs meanwhile
+     stub.addGuestScore(12, "late guest", "55 Points", 55);
+     mirror[0].add(55);
+     assertTrue(mirror[0].sync());
+    }
+    return super.get(url);
+   }
+  });
+  mirror[0] = api.getLeaderboardMirror(12);
+  assertTrue(mirror[0].sync());
+  assertEquals(2, fetches.get());
+  // both responses have the added highscore already, so it is only counted once
+  assertEquals(11, mirror[0].size());
+  assertEquals(6, mirror[0].getRank(55));
+ }
+ @Test
+ public void testTrophies(){
+  GameJoltAPI api = api(Format.KEYPAIR);
+  assertNotNull(api.getTrophies());
+  assertEquals(2, api.getTrophies().size());
+  assertTrue(api.achieveTrophy(1));
+  assertFalse(api.achieveTrophy(-1));
+  for (Format f : Format.values()) {
+   Trophy t = api(f).getTrophy(1);
+   assertNotNull(t);
+   assertTrue(t.isAchieved());
+   assertEquals(1, api(f).getTrophies(Achieved.TRUE).size());
+  }
+ }
+ @Test
+ public void testDataStore(){
+  for (Format f : Format.values()) {
+   GameJoltAPI api = api(f);
+   DataStore s;
+   assertNotNull(s=api.setDataStore(DataStoreType.GAME, "testkey", "testdata"));
+   assertNotNull(s=api.getDataStore(DataStoreType.GAME, "testkey"));
+   assertEquals("testdata",s.getData());
+   assertNotNull(s=api.updateDataStore(DataStoreType.GAME, "testkey", DataStoreOperation.APPEND, "lol"));
+   assertEquals("testdatalol",s.getData());
+   assertTrue(api.getDataStoreKeys(DataStoreType.GAME).contains("testkey"));
+   assertTrue(api.removeDataStore(DataStoreType.GAME, "testkey"));
+   assertNull(api.getDataStore(DataStoreType.GAME, "testkey"));
+  }
+ }
+ @Test
+ public void testDataStoreObjects(){
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  assertTrue(api.verifyUser("loader", "token6"));
+  for (int i = 0; i < 40; i++) {
+   assertNotNull(api.setDataStore(DataStoreType.USER, "save" + i, "data" + i));
+  }
+  // one of the keys can not be read
+  final GameJoltTransport http = api.getTransport();
+  api.setTransport(new GameJoltTransport() {
+   @Override
+   public InputStream get(String url) throws IOException {
+    if (url.matches(".*[?&]key=save7(&.*)?")) {
+     throw new IOException("Connection reset");
+    }
+    return http.get(url);
+   }
+   @Override
+   public InputStream post(String url, String body) throws IOException {
+    return http.post(url, body);
+   }
+  });
+  DataStoreResult result;
+  stub.setLatency(50);
+  try {
+   long start = System.currentTimeMillis();
+   result = api.getDataStoreObjects(DataStoreType.USER, 8);
+   // one after the other this would take 41 * 50 ms
+   assertTrue(System.currentTimeMillis() - start < 1000);
+  } finally {
+   stub.setLatency(0);
+  }
+  assertTrue(result.isSuccessful());
+  assertFalse(result.isComplete());
+  assertEquals(api.getDataStoreKeys(DataStoreType.USER), result.getKeys());
+  assertEquals(39, result.getObjects().size());
+  assertEquals(Collections.singleton("save7"), result.getErrors().keySet());
+  for (int i = 0; i < result.size(); i++) {
+   String key = result.getKeys().get(i);
+   if (key.equals("save7")) {
+    assertNull(result.getObject(i));
+    assertNotNull(result.getError(i));
+   } else {
+    assertEquals("data" + key.substring(4), result.getObject(i).getData());
+   }
+  }
+ }
+ @Test
+ public void testDataStoreObjectsInterrupted() throws Exception {
+  stub.addUser(14, "interrupted", "token14");
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  assertTrue(api.verifyUser("interrupted", "token14"));
+  for (int i = 0; i < 40; i++) {
+   assertNotNull(api.setDataStore(DataStoreType.USER, "save" + i, "data" + i));
+  }
+  // the caller is interrupted while the tenth key is read
+  final Thread caller = Thread.currentThread();
+  api.setTransport(new FlakyTransport() {
+   @Override
+   public InputStream get(String url) throws IOException {
+    if (url.matches(".*[?&]key=save10(&.*)?")) {
+     caller.interrupt();
+    }
+    return super.get(url);
+   }
+  });
+  DataStoreResult result;
+  stub.setLatency(20);
+  try {
+   result = api.getDataStoreObjects(DataStoreType.USER, 4);
+   assertTrue(Thread.interrupted());
+  } finally {
+   stub.setLatency(0);
+  }
+  // every key was read or has an error, and nothing is read after the call returned
+  long requests = stub.getRequestCount();
+  int interrupted = 0;
+  for (int i = 0; i < result.size(); i++) {
+   if (result.getObject(i) == null) {
+    assertNotNull(result.getError(i));
+    interrupted++;
+   }
+  }
+  assertTrue(interrupted > 0);
+  Thread.sleep(200);
+  assertEquals(requests, stub.getRequestCount());
+ }
+ @Test
+ public void testBlobStore() throws Exception {
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  assertTrue(api.verifyUser("blobs", "token7"));
+  GameJoltBlobStore blobs = new GameJoltBlobStore(api);
+  blobs.setChunkSize(1000);
+  byte[] data = new byte[10500];
+  new Random(1).nextBytes(data);
+  assertTrue(blobs.put(DataStoreType.USER, "save", data));
+  // the manifest and 11 chunks
+  assertEquals(12, api.getDataStoreKeys(DataStoreType.USER).size());
+  assertArrayEquals(data, blobs.getBytes(DataStoreType.USER, "save"));
+
+  // a new version replaces the chunks of the old one
+  byte[] smaller = Arrays.copyOf(data, 2500);
+  assertTrue(blobs.put(DataStoreType.USER, "save", smaller));
+  ArrayList<String> keys = api.getDataStoreKeys(DataStoreType.USER);
+  assertEquals(4, keys.size());
+  assertArrayEquals(smaller, blobs.getBytes(DataStoreType.USER, "save"));
+
+  // a chunk that was changed fails the hash check
+  for (String key : keys) {
+   if (key.endsWith(".1")) {
+    assertNotNull(api.setDataStore(DataStoreType.USER, key, "AAAA"));
+   }
+  }
+  try {
+   blobs.getBytes(DataStoreType.USER, "save");
+   fail("the changed chunk was not noticed");
+  } catch (IOException expected) {
+  }
+
+  assertTrue(blobs.remove(DataStoreType.USER, "save"));
+  assertTrue(api.getDataStoreKeys(DataStoreType.USER).isEmpty());
+  assertNull(blobs.get(DataStoreType.USER, "save"));
+ }
+ @Test
+ public void testDataStoreCompression(){
+  GameJoltAPI api = api(Format.KEYPAIR);
+  api.setDataStoreCompression(true);
+  StringBuilder save = new StringBuilder("{\"levels\":[");
+  for (int i = 0; i < 200; i++) {
+   save.append("{\"id\":").append(i).append(",\"stars\":").append(i % 4).append(",\"unlocked\":true},");
+  }
+  save.append("{}]}");
+  assertNotNull(api.setDataStore(DataStoreType.GAME, "compressed", save.toString()));
+  assertNotNull(api.setDataStore(DataStoreType.GAME, "small", "{\"volume\":7}"));
+  assertEquals(save.toString(), api.getDataStore(DataStoreType.GAME, "compressed").getData());
+
+  // what Game Jolt keeps
+  String stored = stub.getGameDataStore("compressed");
+  assertTrue(stored.startsWith("GJZ1:"));
+  assertTrue(stored.length() * 5 < save.length());
+  assertEquals("{\"volume\":7}", stub.getGameDataStore("small"));
+
+  // a copy of the game without compression reads the original
+  GameJoltAPI plain = api(Format.KEYPAIR);
+  assertEquals(save.toString(), plain.getDataStore(DataStoreType.GAME, "compressed").getData());
+  // appending and prepending change the original rather than the compressed text
+  assertEquals("[" + save, api.updateDataStore(DataStoreType.GAME, "compressed", DataStoreOperation.PREPEND, "[").getData());
+  assertTrue(stub.getGameDataStore("compressed").startsWith("GJZ1:"));
+  assertEquals("[" + save + "!", api.updateDataStore(DataStoreType.GAME, "compressed", DataStoreOperation.APPEND, "!").getData());
+  assertEquals("[" + save + "!", plain.getDataStore(DataStoreType.GAME, "compressed").getData());
+  assertEquals("{\"volume\":7}!", api.updateDataStore(DataStoreType.GAME, "small", DataStoreOperation.APPEND, "!").getData());
+  // without compression, Game Jolt appends in a single request
+  long before = stub.getRequestCount();
+  assertEquals("{\"volume\":7}!!", plain.updateDataStore(DataStoreType.GAME, "small", DataStoreOperation.APPEND, "!").getData());
+  assertEquals(before + 1, stub.getRequestCount());
+
+  assertTrue(api.removeDataStore(DataStoreType.GAME, "compressed"));
+  assertTrue(api.removeDataStore(DataStoreType.GAME, "small"));
+ }
+ @Test
+ public void testBatchRequest(){
+  stub.addTable(6, "Batch", "Batched scores", false);
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  api.setVersion("1_2");
+  assertTrue(api.verifyUser("batcher", "token8"));
+  assertTrue(api.achieveTrophy(1));
+  LeaderboardMirror mirror = api.getLeaderboardMirror(6);
+  assertTrue(mirror.sync());
+
+  BatchRequest batch = new BatchRequest(api);
+  Result<Boolean> trophy = batch.achieveTrophy(2);
+  Result<Boolean> score = batch.addHighscore(6, "70 Points", 70, "");
+  Result<Integer> rank = batch.getHighscoreRank(65, 6);
+  Result<DataStore> set = batch.setDataStore(DataStoreType.USER, "batched", "value");
+  Result<ArrayList<String>> keys = batch.getDataStoreKeys(DataStoreType.USER);
+  long before = stub.getRequestCount();
+  assertTrue(batch.execute());
+  assertEquals(before + 1, stub.getRequestCount());
+  // every result gets its own sub-response
+  assertTrue(trophy.get());
+  assertTrue(score.get());
+  assertEquals(Integer.valueOf(2), rank.get());
+  assertEquals("value", set.get().getData());
+  assertEquals(Collections.singletonList("batched"), keys.get());
+
+  // the trophy and the highscore are known locally, as if they were sent one by one
+  long after = stub.getRequestCount();
+  assertTrue(api.achieveTrophy(2));
+  assertEquals(1, mirror.getRank(70));
+  assertEquals(1, mirror.size());
+  assertEquals(after, stub.getRequestCount());
+
+  // nothing after the failing sub-request is processed
+  BatchRequest failing = new BatchRequest(api);
+  failing.setBreakOnError(true);
+  Result<Boolean> removed = failing.removeDataStore(DataStoreType.USER, "batched");
+  Result<Boolean> unknown = failing.achieveTrophy(-1);
+  Result<Boolean> skipped = failing.addHighscore(6, "80 Points", 80, "");
+  assertTrue(failing.execute());
+  assertTrue(removed.get());
+  assertFalse(unknown.get());
+  assertFalse(unknown.isSuccessful());
+  assertTrue(skipped.isDone());
+  assertFalse(skipped.get());
+  assertEquals(1, api.getHighscores(6, true, 10).size());
+  assertEquals(1, mirror.size());
+ }
+ @Test
+ public void testWriteQueueReplay() throws Exception {
+  stub.addTable(7, "Queue", "Queued scores", false);
+  File file = File.createTempFile("gjapi-queue", ".dat");
+  File crashed = File.createTempFile("gjapi-queue", ".dat");
+  file.deleteOnExit();
+  crashed.deleteOnExit();
+  FlakyTransport network = new FlakyTransport();
+  GameJoltAPI api = queueAPI(network);
+  network.down = true;
+  GameJoltWriteQueue queue = new GameJoltWriteQueue(api, file);
+  assertTrue(queue.addHighscore(7, "10 Points", 10, ""));
+  assertTrue(queue.achieveTrophy(2));
+  assertTrue(queue.achieveTrophy(2)); // already queued
+  assertTrue(queue.setDataStore(DataStoreType.USER, "queued", "saved"));
+  assertEquals(3, queue.getPendingCount());
+
+  // once flush() returns, the writes survive the game dying without close()
+  queue.flush();
+  Files.copy(file.toPath(), crashed.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  GameJoltWriteQueue afterCrash = new GameJoltWriteQueue(api, crashed);
+  assertEquals(3, afterCrash.getPendingCount());
+  afterCrash.close();
+  queue.close();
+
+  // the next start sends them, each one once
+  network.down = false;
+  long before = stub.getRequestCount();
+  queue = new GameJoltWriteQueue(api, file);
+  awaitPending(queue, 0);
+  queue.close();
+  assertEquals(before + 3, stub.getRequestCount());
+  assertEquals(1, api.getHighscores(7, true, 10).size());
+  assertTrue(api.getTrophy(2).isAchieved());
+  assertEquals("saved", api.getDataStore(DataStoreType.USER, "queued").getData());
+
+  // delivered writes are not sent again, and the journal is emptied
+  assertEquals(0, file.length());
+  before = stub.getRequestCount();
+  queue = new GameJoltWriteQueue(api, file);
+  Thread.sleep(200);
+  assertEquals(0, queue.getPendingCount());
+  queue.close();
+  assertEquals(before, stub.getRequestCount());
+ }
+ @Test
+ public void testWriteQueueDone() throws Exception {
+  stub.addTable(8, "Done", "Delivered scores", false);
+  File file = File.createTempFile("gjapi-queue", ".dat");
+  file.deleteOnExit();
+  FlakyTransport network = new FlakyTransport();
+  GameJoltAPI api = queueAPI(network);
+  network.blocked = "key=blocked";
+  GameJoltWriteQueue queue = new GameJoltWriteQueue(api, file);
+  assertTrue(queue.addHighscore(8, "20 Points", 20, ""));
+  assertTrue(queue.setDataStore(DataStoreType.USER, "blocked", "later"));
+  assertTrue(queue.addHighscore(8, "30 Points", 30, ""));
+  // the first highscore is delivered, the rest waits behind the blocked write
+  awaitPending(queue, 2);
+  queue.close();
+
+  network.blocked = null;
+  long before = stub.getRequestCount();
+  queue = new GameJoltWriteQueue(api, file);
+  awaitPending(queue, 0);
+  queue.close();
+  // the delivered highscore was recorded as done and is not added twice
+  assertEquals(before + 2, stub.getRequestCount());
+  assertEquals(2, api.getHighscores(8, true, 10).size());
+  assertEquals("later", api.getDataStore(DataStoreType.USER, "blocked").getData());
+ }
+ @Test
+ public void testWriteQueueDelivered() throws Exception {
+  stub.addUser(13, "courier", "token13");
+  stub.addTable(11, "Courier", "Queued scores", false);
+  File file = File.createTempFile("gjapi-queue", ".dat");
+  file.deleteOnExit();
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  assertTrue(api.verifyUser("courier", "token13"));
+  // the achieved trophies are tracked from here on
+  assertTrue(api.achieveTrophy(1));
+  LeaderboardMirror mirror = api.getLeaderboardMirror(11);
+  assertTrue(mirror.sync());
+  assertEquals(0, mirror.size());
+
+  GameJoltWriteQueue queue = new GameJoltWriteQueue(api, file);
+  assertTrue(queue.achieveTrophy(2));
+  assertTrue(queue.addHighscore(11, "30 Points", 30, ""));
+  awaitPending(queue, 0);
+  queue.close();
+  // the delivered trophy is known, so it is not sent again
+  long before = stub.getRequestCount();
+  assertTrue(api.achieveTrophy(2));
+  assertEquals(before, stub.getRequestCount());
+  // and the delivered highscore is in the mirror without another sync
+  assertEquals(1, mirror.size());
+  assertEquals(1, mirror.getRank(30));
+ }
+ @Test
+ public void testWriteQueueDamagedJournal() throws Exception {
+  File file = File.createTempFile("gjapi-queue", ".dat");
+  file.deleteOnExit();
+  FlakyTransport network = new FlakyTransport();
+  GameJoltAPI api = queueAPI(network);
+  network.down = true;
+  GameJoltWriteQueue queue = new GameJoltWriteQueue(api, file);
+  assertTrue(queue.setDataStore(DataStoreType.USER, "first", "1"));
+  assertTrue(queue.setDataStore(DataStoreType.USER, "second", "2"));
+  assertTrue(queue.setDataStore(DataStoreType.USER, "third", "3"));
+  queue.close();
+
+  // records are framed as length, CRC32 and payload: damage the second one, and add the
+  // start of a record that was never finished
+  try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+   long second = 8 + raf.readInt();
+   raf.seek(second + 8 + 4);
+   int b = raf.read();
+   raf.seek(second + 8 + 4);
+   raf.write(b ^ 0xff);
+   raf.seek(raf.length());
+   raf.writeInt(1000);
+   raf.writeInt(0);
+   raf.write(new byte[10]);
+  }
+
+  network.down = false;
+  queue = new GameJoltWriteQueue(api, file);
+  assertEquals(2, queue.getPendingCount());
+  awaitPending(queue, 0);
+  queue.close();
+  assertEquals("1", api.getDataStore(DataStoreType.USER, "first").getData());
+  assertNull(api.getDataStore(DataStoreType.USER, "second"));
+  assertEquals("3", api.getDataStore(DataStoreType.USER, "third").getData());
+ }
+ @Test
+ public void testSession(){
+  for (Format f : Format.values()) {
+   GameJoltAPI api = api(f);
+   assertTrue(api.sessionOpen());
+   assertTrue(api.sessionCheck());
+   assertTrue(api.sessionUpdate(false));
+   assertTrue(api.sessionClose());
+   assertFalse(api.sessionCheck());
+  }
+ }
+ @Test
+ public void testClient(){
+  GameJoltClient client = new GameJoltClient.Builder(gameId, privateKey)
+    .setBaseURL(stub.getBaseURL())
+    .setFormat(Format.JSON)
+    .setCacheTime("scores/tables", 1, TimeUnit.HOURS)
+    .build();
+  assertNull(client.verifyUser("player", "wrong"));
+  GameJoltAPI player = client.verifyUser("player", "token");
+  GameJoltAPI other = client.verifyUser("client", "token5");
+  assertNotNull(player);
+  assertNotNull(other);
+  assertEquals(Format.JSON, other.format);
+
+  // the players share the responses that do not belong to one of them
+  long before = stub.getRequestCount();
+  assertEquals(player.getHighscoreTables().size(), other.getHighscoreTables().size());
+  assertEquals(before + 1, stub.getRequestCount());
+  assertSame(player.getServerClock(), other.getServerClock());
+  assertSame(client.getLeaderboardMirror(2), player.getLeaderboardMirror(2));
+
+  // but each one has its own user
+  assertTrue(other.sessionOpen());
+  assertNull(stub.getSessionStatus("player"));
+  assertEquals("active", stub.getSessionStatus("client"));
+  assertTrue(other.sessionClose());
+  client.invalidateCache();
+
+  // and can not change the settings of the other players
+  for (int i = 0; i < 8; i++) {
+   try {
+    switch (i) {
+     case 0: player.setBaseURL(stub.getBaseURL()); break;
+     case 1: player.setVersion("1_2"); break;
+     case 2: player.setFormat(Format.XML); break;
+     case 3: player.setTransport(new GameJoltHttpTransport()); break;
+     case 4: player.setCacheTime("trophies", 1, TimeUnit.HOURS); break;
+     case 5: player.setCacheSize(1); break;
+     case 6: player.invalidateCache(); break;
+     case 7: player.setDataStoreCompression(true); break;
+    }
+    fail("setting " + i + " was changed through a player");
+   } catch (IllegalStateException e) {
+   }
+  }
+  assertEquals(Format.JSON, player.format);
+ }
+ @Test
+ public void testSessionHeartbeat() throws Exception {
+  GameJoltAPI api = new GameJoltAPI(gameId, privateKey);
+  api.setBaseURL(stub.getBaseURL());
+  assertTrue(api.verifyUser("heartbeat", "token4"));
+  GameJoltSessionHeartbeat heartbeat = new GameJoltSessionHeartbeat();
+  heartbeat.setInterval(200, TimeUnit.MILLISECONDS);
+  GameJoltSessionHeartbeat.Session session = heartbeat.open(api);
+  assertNotNull(session);
+  for (int i = 0; i < 50 && !session.isOpen(); i++) {
+   Thread.sleep(100);
+  }
+  assertEquals("active", stub.getSessionStatus("heartbeat"));
+  assertEquals(1, heartbeat.getSessionCount());
+
+  // the first ping is within one interval, the next ones every interval
+  long before = stub.getRequestCount();
+  Thread.sleep(1000);
+  assertTrue(stub.getRequestCount() - before >= 3);
+
+  // going idle is sent right away, not with the next ping
+  heartbeat.setInterval(1, TimeUnit.MINUTES);
+  Thread.sleep(300);
+  session.setActive(false);
+  for (int i = 0; i < 20 && !"idle".equals(stub.getSessionStatus("heartbeat")); i++) {
+   Thread.sleep(50);
+  }
+  assertEquals("idle", stub.getSessionStatus("heartbeat"));
+  assertFalse(session.isActive());
+
+  heartbeat.close();
+  assertNull(stub.getSessionStatus("heartbeat"));
+  assertEquals(0, heartbeat.getSessionCount());
+  assertNull(heartbeat.open(api));
+ }
+ @Test
+ public void testGetServerTime(){
+  for (Format f : Format.values()) {
+   assertNotNull(api(f).getServerTime());
+  }
+ }
+ @Test
+ public void testServerClock(){
+  ServerClock clock = api(Format.JSON).getServerClock();
+  clock.setSamples(3);
+  assertTrue(clock.sync());
+  assertTrue(clock.isSynchronized());
+  // the stub runs on this machine, so the server time is the local time
+  long error = clock.getErrorMillis();
+  assertTrue(error > 0 && error < 1000);
+  assertTrue(Math.abs(clock.currentTimeMillis() - System.currentTimeMillis()) <= error);
+ }
+}